@@ -33,6 +33,7 @@ import org.itest.generator.ITestObjectGenerator;
 import org.itest.impl.ITestDeclarativeObjectGeneratorImpl;
 import org.itest.impl.ITestDefinitionFactoryImpl;
 import org.itest.impl.ITestExecutionVerifierImpl;
+import org.itest.impl.ITestMemoizingParamMerger;
 import org.itest.impl.ITestMethodExecutorImpl;
 import org.itest.impl.ITestParamLoaderImpl;
 import org.itest.impl.ITestParamMergerImpl;
@@ -56,7 +57,7 @@ public class ITestConfigImpl implements ITestConfig {
 
     private ITestMethodExecutor iTestPathVerifier = new ITestMethodExecutorImpl(this);
 
-    private ITestParamMerger iTestParamsMerger = new ITestParamMergerImpl();
+    private ITestParamMerger iTestParamsMerger = new ITestMemoizingParamMerger(new ITestParamMergerImpl());
 
     private ITestParamParser iTestParamsParser = new ITestSimpleJsonParamParserImpl();
 
@@ -0,0 +1,227 @@
+package org.itest.executor;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+import org.itest.ITestConfig;
+import org.itest.ITestConstants;
+import org.itest.definition.ITestDefinition;
+import org.itest.exception.ITestException;
+import org.itest.impl.ITestDefinitionFactoryImpl;
+import org.itest.impl.ITestParamLoaderFileImpl;
+
+/**
+ * Watch mode: polls definition files of {@link ITestParamLoaderFileImpl} roots and, when some change, re-runs only tests of the classes they belong
+ * to and tests depending on them through initRef. The watcher owns the config while running, definition factory is not thread safe.<br/>
+ * Files are compared by modification time and length, and also by content while the modification time is too recent to tell a following
+ * change in the same time stamp granularity.
+ */
+public class ITestDefinitionWatcher {
+
+    /**
+     * coarsest file time stamp granularity (FAT), a file modified within it may change again keeping its time stamp
+     */
+    private static final long TIMESTAMP_GRANULARITY_MILLIS = 2000;
+
+    public interface Listener {
+        void testsPerformed(Collection<File> changedFiles, Collection<ITestDefinition> definitions, String result);
+
+        void error(Collection<File> changedFiles, RuntimeException e);
+    }
+
+    private final ITestConfig iTestConfig;
+
+    private final ITestParamLoaderFileImpl loader;
+
+    private final ClassLoader classLoader;
+
+    private final Listener listener;
+
+    private Map<File, FileState> snapshot;
+
+    private volatile Thread thread;
+
+    public ITestDefinitionWatcher(ITestConfig iTestConfig, ClassLoader classLoader, Listener listener) {
+        if ( !(iTestConfig.getITestParamLoader() instanceof ITestParamLoaderFileImpl) ) {
+            throw new ITestException("Watch mode requires " + ITestParamLoaderFileImpl.class.getName());
+        }
+        if ( !(iTestConfig.getITestDefinitionFactory() instanceof ITestDefinitionFactoryImpl) ) {
+            throw new ITestException("Watch mode requires " + ITestDefinitionFactoryImpl.class.getName());
+        }
+        this.iTestConfig = iTestConfig;
+        this.loader = (ITestParamLoaderFileImpl) iTestConfig.getITestParamLoader();
+        this.classLoader = classLoader;
+        this.listener = listener;
+        this.snapshot = takeSnapshot(null);
+    }
+
+    /**
+     * Starts polling in a daemon thread.
+     */
+    public synchronized void start(final long intervalMillis) {
+        if ( null != thread ) {
+            return;
+        }
+        thread = new Thread("itest-watcher") {
+            @Override
+            public void run() {
+                while (this == thread) {
+                    try {
+                        Thread.sleep(intervalMillis);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    checkForChanges();
+                }
+            }
+        };
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public synchronized void stop() {
+        Thread t = thread;
+        thread = null;
+        if ( null != t ) {
+            t.interrupt();
+        }
+    }
+
+    /**
+     * Compares definition files with the previous check and re-runs affected tests.
+     *
+     * @return changed files, empty if nothing changed
+     */
+    public synchronized Collection<File> checkForChanges() {
+        Map<File, FileState> current = takeSnapshot(snapshot);
+        Collection<File> changedFiles = new ArrayList<File>();
+        for (Map.Entry<File, FileState> entry : current.entrySet()) {
+            if ( !entry.getValue().sameAs(snapshot.get(entry.getKey())) ) {
+                changedFiles.add(entry.getKey());
+            }
+        }
+        for (File file : snapshot.keySet()) {
+            if ( !current.containsKey(file) ) {
+                changedFiles.add(file);
+            }
+        }
+        snapshot = current;
+        if ( !changedFiles.isEmpty() ) {
+            Set<Class<?>> classes = new LinkedHashSet<Class<?>>();
+            for (File file : changedFiles) {
+                loader.invalidate(file);
+                Class<?> clazz = getITestClass(file);
+                if ( null != clazz ) {
+                    classes.add(clazz);
+                }
+            }
+            try {
+                Collection<ITestDefinition> definitions = ((ITestDefinitionFactoryImpl) iTestConfig.getITestDefinitionFactory())
+                        .rebuildTestFlowDefinitions(classes.toArray(new Class<?>[classes.size()]));
+                listener.testsPerformed(changedFiles, definitions, ITestExecutorUtil.performTests(iTestConfig, -1, definitions));
+            } catch (RuntimeException e) {
+                listener.error(changedFiles, e);
+            }
+        }
+        return changedFiles;
+    }
+
+    /**
+     * @return class the definition file belongs to (file name up to the first dot) or null if there is no such class
+     */
+    private Class<?> getITestClass(File file) {
+        for (File root : loader.getRoots()) {
+            String rootPath = root.getPath() + File.separatorChar;
+            String path = file.getPath();
+            if ( path.startsWith(rootPath)
+                    && (path.endsWith(ITestConstants.DEFINITION_SUFFIX) || path.endsWith(ITestConstants.BINARY_DEFINITION_SUFFIX)) ) {
+                path = path.substring(rootPath.length());
+                int dot = path.indexOf('.', path.lastIndexOf(File.separatorChar) + 1);
+                String className = path.substring(0, dot).replace(File.separatorChar, '.');
+                try {
+                    return Class.forName(className, false, classLoader);
+                } catch (ClassNotFoundException e) {
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Content is hashed if the file was modified recently now or at the previous check, so a change keeping the time stamp and length is seen.
+     */
+    private Map<File, FileState> takeSnapshot(Map<File, FileState> previous) {
+        long now = System.currentTimeMillis();
+        Map<File, FileState> res = new HashMap<File, FileState>();
+        for (File file : loader.findDefinitionFiles()) {
+            long lastModified = file.lastModified();
+            boolean recent = now - lastModified < TIMESTAMP_GRANULARITY_MILLIS;
+            FileState previousState = null == previous ? null : previous.get(file);
+            boolean hashed = recent || (null != previousState && previousState.recent);
+            res.put(file, new FileState(lastModified, file.length(), recent, hashed ? hash(file) : null));
+        }
+        return res;
+    }
+
+    /**
+     * @return CRC32 of the file content, null if it can't be read
+     */
+    private static Long hash(File file) {
+        CRC32 crc = new CRC32();
+        byte[] buf = new byte[8192];
+        try {
+            InputStream is = new FileInputStream(file);
+            try {
+                for (int read; (read = is.read(buf)) >= 0;) {
+                    crc.update(buf, 0, read);
+                }
+            } finally {
+                is.close();
+            }
+        } catch (IOException e) {
+            return null;
+        }
+        return crc.getValue();
+    }
+
+    static class FileState {
+        private final long lastModified;
+
+        private final long length;
+
+        /**
+         * modified within the time stamp granularity before the check
+         */
+        private final boolean recent;
+
+        /**
+         * content hash, null if not computed
+         */
+        private final Long hash;
+
+        FileState(long lastModified, long length, boolean recent, Long hash) {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.recent = recent;
+            this.hash = hash;
+        }
+
+        /**
+         * @return true if the file did not change since the previous state was taken, contents are compared if both are hashed
+         */
+        boolean sameAs(FileState previous) {
+            return null != previous && lastModified == previous.lastModified && length == previous.length
+                    && (null == hash || null == previous.hash || hash.equals(previous.hash));
+        }
+    }
+}
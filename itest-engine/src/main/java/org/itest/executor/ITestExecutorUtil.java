@@ -26,12 +26,17 @@
 package org.itest.executor;
 
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 import org.itest.ITestConfig;
 import org.itest.ITestExecutor;
 import org.itest.definition.ITestDefinition;
 import org.itest.execution.ITestMethodExecutionResult;
+import org.itest.impl.index.ITestIndexLoader;
+import org.itest.verify.ITestCountingExecutionVerifier;
+import org.itest.verify.ITestExecutionVerifier;
 import org.itest.verify.ITestFieldVerificationResult;
 
 public class ITestExecutorUtil {
@@ -40,6 +45,28 @@ public class ITestExecutorUtil {
         return new ITestExecutorImpl(iTestExecutorConfig);
     }
 
+    /**
+     * Performs tests of the classes listed in indexes generated at compile time by itest-processor, the classpath is not scanned.
+     *
+     * @param packageNames
+     *            only classes of these packages and their subpackages are tested, all indexed classes if none given
+     */
+    public static String performIndexedTests(ITestExecutor executor, int expectedNumberOfAssertions, ClassLoader classLoader, String... packageNames) {
+        List<Class<?>> classes = new ArrayList<Class<?>>();
+        for (Class<?> clazz : ITestIndexLoader.loadIndexedClasses(classLoader)) {
+            if ( 0 == packageNames.length ) {
+                classes.add(clazz);
+            }
+            for (String packageName : packageNames) {
+                if ( clazz.getName().startsWith(packageName + ".") ) {
+                    classes.add(clazz);
+                    break;
+                }
+            }
+        }
+        return executor.performTestsFor(expectedNumberOfAssertions, classes.toArray(new Class<?>[classes.size()]));
+    }
+
     private static class ITestExecutorImpl implements ITestExecutor {
 
         private final ITestConfig itestConfig;
@@ -51,17 +78,39 @@ public class ITestExecutorUtil {
         @Override
         public String performTestsFor(int expectedNumberOfAssertions, Class<?>... classes) {
             Collection<ITestDefinition> iTestFlowDefinitions = itestConfig.getITestDefinitionFactory().buildTestFlowDefinitions(classes);
-            StringBuilder sb = new StringBuilder();
-            int performedAsserts = 0;
-            for (ITestDefinition iTestPathDefinition : iTestFlowDefinitions) {
-                try {
-                    String name = iTestPathDefinition.getITestClass().getName() + "." + iTestPathDefinition.getITestName();
-                    // Do not execute tests without 'verify' specified. #4
-                    if ( null == iTestPathDefinition.getVeryficationParams() ) {
-                        continue;
+            return performTests(itestConfig, expectedNumberOfAssertions, iTestFlowDefinitions);
+        }
+    }
+
+    /**
+     * Executes and verifies given definitions.
+     *
+     * @param expectedNumberOfAssertions
+     *            negative value disables assertion count check
+     * @return failures report, empty if all assertions passed
+     */
+    public static String performTests(ITestConfig iTestConfig, int expectedNumberOfAssertions, Collection<ITestDefinition> iTestFlowDefinitions) {
+        StringBuilder sb = new StringBuilder();
+        int performedAsserts = 0;
+        for (ITestDefinition iTestPathDefinition : iTestFlowDefinitions) {
+            try {
+                String name = iTestPathDefinition.getITestClass().getName() + "." + iTestPathDefinition.getITestName();
+                // Do not execute tests without 'verify' specified. #4
+                if ( null == iTestPathDefinition.getVeryficationParams() ) {
+                    continue;
+                }
+                ITestMethodExecutionResult executionData = iTestConfig.getITestMethodExecutor().execute(iTestPathDefinition);
+                ITestExecutionVerifier verifier = iTestConfig.getITestExecutionVerifier();
+                if ( verifier instanceof ITestCountingExecutionVerifier ) {
+                    // only failures are created
+                    Collection<ITestFieldVerificationResult> failures = new ArrayList<ITestFieldVerificationResult>();
+                    performedAsserts += ((ITestCountingExecutionVerifier) verifier).verify(name, executionData, iTestPathDefinition.getVeryficationParams(),
+                            failures);
+                    for (ITestFieldVerificationResult res : failures) {
+                        sb.append(res).append('\n');
                     }
-                    ITestMethodExecutionResult executionData = itestConfig.getITestMethodExecutor().execute(iTestPathDefinition);
-                    Collection<ITestFieldVerificationResult> verificationResult = itestConfig.getITestExecutionVerifier().verify(name, executionData,
+                } else {
+                    Collection<ITestFieldVerificationResult> verificationResult = verifier.verify(name, executionData,
                             iTestPathDefinition.getVeryficationParams());
                     for (ITestFieldVerificationResult res : verificationResult) {
                         performedAsserts++;
@@ -69,38 +118,37 @@ public class ITestExecutorUtil {
                             sb.append(res).append('\n');
                         }
                     }
-                } catch (InvocationTargetException e) {
-                    String name = iTestPathDefinition.getITestClass().getName() + "." + iTestPathDefinition.getITestName();
-                    sb.append(name).append(' ').append(e.getTargetException()).append('\n');
-                    StackTraceElement[] trace = e.getTargetException().getStackTrace();
-                    for (int i = 0; i < trace.length; i++) {
-                        sb.append("\tat ").append(trace[i]).append('\n');
-                    }
-
                 }
+            } catch (InvocationTargetException e) {
+                String name = iTestPathDefinition.getITestClass().getName() + "." + iTestPathDefinition.getITestName();
+                sb.append(name).append(' ').append(e.getTargetException()).append('\n');
+                StackTraceElement[] trace = e.getTargetException().getStackTrace();
+                for (int i = 0; i < trace.length; i++) {
+                    sb.append("\tat ").append(trace[i]).append('\n');
+                }
+
             }
-            if ( expectedNumberOfAssertions >= 0 ) {
-                if ( expectedNumberOfAssertions > performedAsserts ) {
-                    sb.append(performedAsserts).append("/").append(expectedNumberOfAssertions);
-                    if ( 1 == expectedNumberOfAssertions - performedAsserts ) {
-                        sb.append(": There is 1 assertion missed.");
-                    } else {
-                        sb.append(": There are ").append(expectedNumberOfAssertions - performedAsserts).append(" assertions missed.");
-                    }
-                    sb.append(" It may be caused by refactoring of class name, package or method.").append(
-                            " Verify your changes with itest files and/or update expendedNumberOfAssertions in ITestExecutor.performTestsFor() if required.");
-                } else if ( expectedNumberOfAssertions < performedAsserts ) {
-                    sb.append(performedAsserts).append("/").append(expectedNumberOfAssertions);
-                    if ( 1 == performedAsserts - expectedNumberOfAssertions ) {
-                        sb.append(": It seems, there is 1 new assertion.");
-                    } else {
-                        sb.append(": It seems, there are ").append(performedAsserts - expectedNumberOfAssertions).append(" new assertions.");
-                    }
-                    sb.append(" Please update expectedNumberOfAssertions in ITestExecutor.performTestsFor() accordingly.");
+        }
+        if ( expectedNumberOfAssertions >= 0 ) {
+            if ( expectedNumberOfAssertions > performedAsserts ) {
+                sb.append(performedAsserts).append("/").append(expectedNumberOfAssertions);
+                if ( 1 == expectedNumberOfAssertions - performedAsserts ) {
+                    sb.append(": There is 1 assertion missed.");
+                } else {
+                    sb.append(": There are ").append(expectedNumberOfAssertions - performedAsserts).append(" assertions missed.");
                 }
+                sb.append(" It may be caused by refactoring of class name, package or method.").append(
+                        " Verify your changes with itest files and/or update expendedNumberOfAssertions in ITestExecutor.performTestsFor() if required.");
+            } else if ( expectedNumberOfAssertions < performedAsserts ) {
+                sb.append(performedAsserts).append("/").append(expectedNumberOfAssertions);
+                if ( 1 == performedAsserts - expectedNumberOfAssertions ) {
+                    sb.append(": It seems, there is 1 new assertion.");
+                } else {
+                    sb.append(": It seems, there are ").append(performedAsserts - expectedNumberOfAssertions).append(" new assertions.");
+                }
+                sb.append(" Please update expectedNumberOfAssertions in ITestExecutor.performTestsFor() accordingly.");
             }
-            return sb.toString();
         }
+        return sb.toString();
     }
-
 }
@@ -27,8 +27,10 @@ package org.itest.impl;
 
 import org.itest.ITestConstants;
 import org.itest.ITestContext;
+import org.itest.ITestIndexedContext;
 import org.itest.exception.ITestException;
 import org.itest.param.ITestParamState;
+import org.itest.param.ITestParamStates;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -36,7 +38,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.StringTokenizer;
 
-public class ITestContextImpl implements ITestContext {
+public class ITestContextImpl implements ITestIndexedContext {
     private final List<String> path = new ArrayList<String>();
 
     private final List<Object> owners = new ArrayList<Object>();
@@ -83,8 +85,28 @@ public class ITestContextImpl implements ITestContext {
 
     @Override
     public void enter(Object owner, String field) {
+        enter(owner, field, null == getCurrentParam() ? null : getCurrentParam().getElement(field));
+    }
+
+    @Override
+    public void enter(Object owner, int index) {
+        enter(owner, String.valueOf(index), null == getCurrentParam() ? null : ITestParamStates.getElement(getCurrentParam(), index));
+    }
+
+    /**
+     * Enters array/collection item, by index if the context supports it.
+     */
+    public static void enterItem(ITestContext iTestContext, Object owner, int index) {
+        if ( iTestContext instanceof ITestIndexedContext ) {
+            ((ITestIndexedContext) iTestContext).enter(owner, index);
+        } else {
+            iTestContext.enter(owner, String.valueOf(index));
+        }
+    }
+
+    private void enter(Object owner, String field, ITestParamState param) {
         getCurrentValueHolder().setValue(owner);
-        params.add(null == getCurrentParam() ? null : getCurrentParam().getElement(field));
+        params.add(param);
         ITestValueHolder vh = new ITestValueHolder(getCurrentParam());
         getCurrentValueHolder().addEelement(field, vh);
         valueHolders.add(vh);
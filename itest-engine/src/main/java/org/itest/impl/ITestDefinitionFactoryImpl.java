@@ -28,10 +28,13 @@ package org.itest.impl;
 import java.lang.reflect.Method;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 import org.itest.ITestConfig;
 import org.itest.declaration.ITest;
@@ -73,6 +76,65 @@ public class ITestDefinitionFactoryImpl implements ITestDefinitionFactory {
         return itestDefinitionMap.values();
     }
 
+    /**
+     * Drops declarations of given classes (e.g. after their itest files changed) and all definitions depending on them through initRef, then
+     * builds them again.
+     *
+     * @return rebuilt definitions
+     */
+    public Collection<ITestDefinition> rebuildTestFlowDefinitions(Class<?>... classes) {
+        Set<Class<?>> changedClasses = new HashSet<Class<?>>(Arrays.asList(classes));
+        Set<ITestIdentifier> affected = new HashSet<ITestIdentifier>();
+        for (Map.Entry<ITestIdentifier, Collection<ITestDependency>> entry : itestDependencyMap.entrySet()) {
+            if ( changedClasses.contains(entry.getKey().itestClass) ) {
+                affected.add(entry.getKey());
+            }
+            for (ITestDependency dependency : entry.getValue()) {
+                if ( changedClasses.contains(dependency.itestIdentifier.itestClass) ) {
+                    affected.add(dependency.itestIdentifier);
+                }
+            }
+        }
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (Map.Entry<ITestIdentifier, Collection<ITestDependency>> entry : itestDependencyMap.entrySet()) {
+                if ( !affected.contains(entry.getKey()) ) {
+                    for (ITestDependency dependency : entry.getValue()) {
+                        if ( affected.contains(dependency.itestIdentifier) ) {
+                            changed |= affected.add(entry.getKey());
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+        for (ITestIdentifier itestIdentifier : affected) {
+            itestDefinitionMap.remove(itestIdentifier);
+            if ( changedClasses.contains(itestIdentifier.itestClass) ) {
+                itestMap.remove(itestIdentifier);
+                itestDependencyMap.remove(itestIdentifier);
+            }
+        }
+        for (Class<?> clazz : classes) {
+            buildDependencies(clazz);
+            for (Map.Entry<ITestIdentifier, ITestDeclaration> entry : itestMap.entrySet()) {
+                if ( clazz == entry.getKey().itestClass ) {
+                    affected.add(entry.getKey());
+                }
+            }
+        }
+        Collection<ITestDefinition> res = new ArrayList<ITestDefinition>();
+        for (ITestIdentifier itestIdentifier : affected) {
+            buildDefinition(itestIdentifier);
+            ITestDefinition definition = itestDefinitionMap.get(itestIdentifier);
+            if ( null != definition ) {
+                res.add(definition);
+            }
+        }
+        return res;
+    }
+
     private void buildDefinition(ITestIdentifier itestIdentifier) {
         Collection<ITestDependency> children = itestDependencyMap.get(itestIdentifier);
         if ( null != children ) {
@@ -99,7 +161,7 @@ public class ITestDefinitionFactoryImpl implements ITestDefinitionFactory {
                     childParams = childPathDefintion.getInitParams();
                 }
                 // params.add(childParams);
-                iTestParamAssignments.add(new ITestParamAssignmentImpl(child.transformation, childParams));
+                iTestParamAssignments.add(new ITestParamAssignmentImpl(child.transformation, child.compiled, childParams));
             }
             if ( null != itestDefinition.path.init() ) {
                 iTestParamAssignments.add(new ITestParamAssignmentImpl(EMPTY_TRANSFORMATION,
@@ -170,10 +232,13 @@ public class ITestDefinitionFactoryImpl implements ITestDefinitionFactory {
     static class ITestDependency {
         private final String[] transformation;
 
+        private final ITestTransformation[] compiled;
+
         private final ITestIdentifier itestIdentifier;
 
         public ITestDependency(String[] transform, ITestIdentifier itestIdentifier) {
             this.transformation = transform;
+            this.compiled = ITestTransformation.compile(transform);
             this.itestIdentifier = itestIdentifier;
         }
     }
@@ -28,157 +28,511 @@ package org.itest.impl;
 import org.itest.ITestConfig;
 import org.itest.ITestConstants;
 import org.itest.exception.ITestMethodExecutionException;
+import org.itest.impl.util.ITestBulkComparison;
+import org.itest.impl.util.ITestDigestAppendable;
+import org.itest.impl.util.ITestPackedValues;
+import org.itest.impl.util.ITestSequences;
+import org.itest.impl.util.ITestVerificationPlans;
+import org.itest.json.simple.format.SimpleJsonFormatter;
 import org.itest.param.ITestParamState;
-import org.itest.verify.ITestExecutionVerifier;
+import org.itest.param.ITestParamStateCursor;
+import org.itest.param.ITestParamStates;
+import org.itest.verify.ITestCountingExecutionVerifier;
 import org.itest.verify.ITestFieldVerificationResult;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.lang.reflect.Array;
 import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.RandomAccess;
 
-public class ITestExecutionVerifierImpl implements ITestExecutionVerifier {
+public class ITestExecutionVerifierImpl implements ITestCountingExecutionVerifier {
 
     private final ITestConfig iTestConfig;
 
+    private final ITestVerificationPlans plans = new ITestVerificationPlans();
+
+    /**
+     * formatted results not matching their digest are written here if not null
+     */
+    private File digestDumpDirectory;
+
+    private boolean stopAtFirstFailure;
+
     public ITestExecutionVerifierImpl(ITestConfig iTestConfig) {
         this.iTestConfig = iTestConfig;
     }
 
+    public void setDigestDumpDirectory(File digestDumpDirectory) {
+        this.digestDumpDirectory = digestDumpDirectory;
+    }
+
+    /**
+     * @param stopAtFirstFailure
+     *            if true verification of a result ends at its first failed assertion
+     */
+    public void setStopAtFirstFailure(boolean stopAtFirstFailure) {
+        this.stopAtFirstFailure = stopAtFirstFailure;
+    }
+
     @Override
     public Collection<ITestFieldVerificationResult> verify(String name, Object itestObject, ITestParamState stateParam) {
         Collection<ITestFieldVerificationResult> res = new ArrayList<ITestFieldVerificationResult>();
         if ( null != stateParam ) {
-            verify(res, name, itestObject, stateParam);
+            verify(new Results(name, res, false, stopAtFirstFailure), itestObject, stateParam);
         }
         return res;
     }
 
-    private void verify(Collection<ITestFieldVerificationResult> res, String name, Object resultObject, ITestParamState stateParam) {
-        boolean testResult = false;
+    @Override
+    public int verify(String name, Object itestObject, ITestParamState stateParam, Collection<ITestFieldVerificationResult> failures) {
+        if ( null == stateParam ) {
+            return 0;
+        }
+        Results results = new Results(name, failures, true, stopAtFirstFailure);
+        verify(results, itestObject, stateParam);
+        return results.count;
+    }
+
+    private void verify(Results results, Object resultObject, ITestParamState stateParam) {
+        if ( results.isStopped() ) {
+            return;
+        }
+        int mark = results.path.length();
         try {
-            verifyClass(name,stateParam.getAttribute(ITestConstants.ATTRIBUTE_CLASS),resultObject,res);
+            verifyClass(results, stateParam.getAttribute(ITestConstants.ATTRIBUTE_CLASS), resultObject);
+            String digest = stateParam.getAttribute(ITestConstants.ATTRIBUTE_DIGEST);
+            if ( null != digest ) {
+                verifyDigest(results, resultObject, digest);
+                Collection<String> names = stateParam.getNames();
+                if ( (null == names || names.isEmpty()) && null == stateParam.getValue() ) {
+                    return;
+                }
+            }
 
             if ( null == stateParam.getNames() ) {
                 if (null == stateParam.getValue()) {
-                    testResult = (null == resultObject);
-                    res.add(new ITestFieldVerificationResultImpl(name, null, resultObject, testResult, null));
+                    results.add(null, null, resultObject, null == resultObject, null);
                 } else if (null == resultObject) {
-                    res.add(new ITestFieldVerificationResultImpl(name, stateParam.getValue(), null, false, null));
+                    results.add(null, stateParam.getValue(), null, false, null);
+                } else if ( resultObject instanceof CharSequence && !(resultObject instanceof String) ) {
+                    verifyChars(results, (CharSequence) resultObject, stateParam);
                 } else {
-                    Object expectedValue = iTestConfig.getITestValueConverter().convert(resultObject.getClass(), stateParam.getValue());
-                    testResult = expectedValue.equals(resultObject);
-                    res.add(new ITestFieldVerificationResultImpl(name, stateParam.getValue(), resultObject, testResult, null));
+                    Object expectedValue = plans.getExpected(stateParam, resultObject.getClass(), iTestConfig.getITestValueConverter());
+                    results.add(null, stateParam.getValue(), resultObject, expectedValue.equals(resultObject), null);
                 }
             } else if ( resultObject instanceof Collection ) {
-                List<Object> list = new ArrayList<Object>((Collection<Object>) resultObject);
-                String size = stateParam.getAttribute(ITestConstants.ATTRIBUTE_SIZE);
-                if (null != size) {
-                    res.add(new ITestFieldVerificationResultImpl(name + "@" + ITestConstants.ATTRIBUTE_SIZE, Integer.valueOf(size), list.size(), Integer.parseInt(size) == list.size(), null));
-                }
-                for (String fName : stateParam.getNames()) {
-                    int index = Integer.parseInt(fName);
-                    if ( index >= list.size() ) {
-                        res.add(new ITestFieldVerificationResultImpl(name + ".size()", Integer.valueOf(index + 1), Integer.valueOf(list.size()), false, null));
-                    } else {
-                        verify(res, name + "." + fName, list.get(index), stateParam.getElement(fName));
+                Collection<Object> collection = (Collection<Object>) resultObject;
+                // lists with fast random access are read by index, other collections in one pass up to the last verified index
+                List<Object> list = collection instanceof List && collection instanceof RandomAccess ? (List<Object>) collection : null;
+                int cSize = collection.size();
+                verifySize(results, stateParam, cSize);
+                if ( ITestParamStates.isIndexed(stateParam) ) {
+                    Object packed = ITestPackedValues.getPrimitiveArray(stateParam, iTestConfig.getITestValueConverter());
+                    Iterator<Object> iterator = null == list ? collection.iterator() : null;
+                    for (int index = 0, sSize = stateParam.getSizeParam(); index < sSize && !results.isStopped(); index++) {
+                        if ( index >= cSize ) {
+                            results.add(".size()", Integer.valueOf(index + 1), Integer.valueOf(cSize), false, null);
+                            continue;
+                        }
+                        Object item = null == list ? iterator.next() : list.get(index);
+                        int element = results.enter('.', index);
+                        if ( null == packed || !verifyPacked(results, item, packed, index) ) {
+                            verify(results, item, ITestParamStates.getElement(stateParam, index));
+                        }
+                        results.leave(element);
+                    }
+                } else {
+                    int[] indices = null;
+                    Object[] items = null;
+                    if ( null == list ) {
+                        indices = getIndices(stateParam, cSize);
+                        items = getItems(collection, indices);
+                    }
+                    for (ITestParamStateCursor cursor = ITestParamStates.elements(stateParam); cursor.next() && !results.isStopped();) {
+                        String fName = cursor.getName();
+                        int index = Integer.parseInt(fName);
+                        if ( index >= cSize ) {
+                            results.add(".size()", Integer.valueOf(index + 1), Integer.valueOf(cSize), false, null);
+                        } else {
+                            Object item = null == list ? items[Arrays.binarySearch(indices, index)] : list.get(index);
+                            int element = results.enter('.', fName);
+                            verify(results, item, cursor.getElement());
+                            results.leave(element);
+                        }
                     }
                 }
             } else if ( resultObject instanceof Map ) {
                 Map<Object, Object> map = (Map<Object, Object>) resultObject;
-                String size = stateParam.getAttribute(ITestConstants.ATTRIBUTE_SIZE);
-                if (null != size) {
-                    res.add(new ITestFieldVerificationResultImpl(name + "@" + ITestConstants.ATTRIBUTE_SIZE, Integer.valueOf(size), map.size(), Integer.parseInt(size) == map.size(), null));
-                }
-                for (String fName : stateParam.getNames()) {
-                    ITestParamState mState = stateParam.getElement(fName);
+                verifySize(results, stateParam, map.size());
+                for (ITestParamStateCursor cursor = ITestParamStates.elements(stateParam); cursor.next() && !results.isStopped();) {
+                    ITestParamState mState = cursor.getElement();
                     if ( null == mState || null == mState.getNames() ) {
-                        res.add(new ITestFieldVerificationResultImpl(name, "key,value for map", null, false, null));
+                        results.add(null, "key,value for map", null, false, null);
                     } else {
                         Object key = null;
                         ITestParamState vState = null;
-                        for (String mName : mState.getNames()) {
+                        for (ITestParamStateCursor mCursor = ITestParamStates.elements(mState); mCursor.next();) {
+                            String mName = mCursor.getName();
                             if ( "key".equals(mName) ) {
                                 // TODO: add support to keys other then String
-                                key = mState.getElement("key").getValue();
+                                key = mCursor.getElement().getValue();
                             } else if ( "value".equals(mName) ) {
-                                vState = mState.getElement("value");
+                                vState = mCursor.getElement();
                             } else {
-                                res.add(new ITestFieldVerificationResultImpl(name, "'key' or 'value' attributes allowed", mName, false, null));
+                                results.add(null, "'key' or 'value' attributes allowed", mName, false, null);
                                 break;
                             }
                         }
                         if ( null == key ) {
-                            res.add(new ITestFieldVerificationResultImpl(name, "key attribute", null, false, null));
+                            results.add(null, "key attribute", null, false, null);
                         } else if ( null == vState ) {
-                            testResult = map.containsKey(key);
-                            res.add(new ITestFieldVerificationResultImpl(name + "[" + key + "]", "containsKey", testResult ? "containts" : "not contain",
-                                    testResult, null));
+                            boolean testResult = map.containsKey(key);
+                            int element = results.enterKey(key);
+                            results.add(null, "containsKey", testResult ? "containts" : "not contain", testResult, null);
+                            results.leave(element);
                             break;
                         } else {
-                            verify(res, name + "[" + key + "]", map.get(key), vState);
+                            int element = results.enterKey(key);
+                            verify(results, map.get(key), vState);
+                            results.leave(element);
                         }
                     }
                 }
+            } else if ( ITestSequences.isSequence(resultObject) && isSequenceState(stateParam) ) {
+                verifySequence(results, resultObject, stateParam);
+            } else if ( resultObject instanceof ByteBuffer && ITestParamStates.isIndexed(stateParam) ) {
+                // remaining bytes are verified as byte[]
+                ByteBuffer buffer = ((ByteBuffer) resultObject).duplicate();
+                byte[] bytes = new byte[buffer.remaining()];
+                buffer.get(bytes);
+                verifyArray(results, bytes, stateParam);
             } else if ( resultObject.getClass().isArray() ) {
-                int aSize = Array.getLength(resultObject);
-                String size = stateParam.getAttribute(ITestConstants.ATTRIBUTE_SIZE);
-                if (null != size) {
-                    res.add(new ITestFieldVerificationResultImpl(name + "@" + ITestConstants.ATTRIBUTE_SIZE, Integer.valueOf(size), aSize, Integer.parseInt(size) == aSize, null));
-                }
-                for (String fName : stateParam.getNames()) {
-                    int index = Integer.parseInt(fName);
-                    if ( index >= aSize ) {
-                        res.add(new ITestFieldVerificationResultImpl(name + ".size()", Integer.valueOf(index + 1), Integer.valueOf(aSize), false, null));
-                    } else {
-                        verify(res, name + "." + fName, Array.get(resultObject, index), stateParam.getElement(fName));
-                    }
-                }
+                verifyArray(results, resultObject, stateParam);
             } else {
                 Collection<String> fNames = stateParam.getNames();
                 if (fNames.size() > 0) {
-                    for (String fName : stateParam.getNames()) {
+                    for (ITestParamStateCursor cursor = ITestParamStates.elements(stateParam); cursor.next() && !results.isStopped();) {
+                        String fName = cursor.getName();
+                        ITestParamState fState = cursor.getElement();
+                        int element = results.enter('.', fName);
+                        int entered = results.path.length();
                         try {
-                            verify(res, name + "." + fName, getField(resultObject, fName), stateParam.getElement(fName));
+                            verify(results, getField(resultObject, fName), fState);
                         } catch (Exception e) {
-                            res.add(new ITestFieldVerificationResultImpl(name + "." + fName, stateParam.getElement(fName), null, false, e.getMessage()));
+                            results.path.setLength(entered);
+                            results.add(null, fState, null, false, e.getMessage());
                         }
+                        results.leave(element);
                     }
                 } else {
-                    res.add(new ITestFieldVerificationResultImpl(name, "{}", resultObject, resultObject != null, null));
+                    results.add(null, "{}", resultObject, resultObject != null, null);
                 }
                 // throw new ITestVerificationException("Type (" + itestObject.getClass().getName() + ") not recognized (" + itestObject + ")", null);
             }
         } catch (ClassCastException e) {
-            res.add(new ITestFieldVerificationResultImpl(name, stateParam.getValue(), resultObject, false, e.getMessage()));
+            results.path.setLength(mark);
+            results.add(null, stateParam.getValue(), resultObject, false, e.getMessage());
         }
     }
 
-    private void verifyClass(String name,String classAttribute, Object resultObject, Collection<ITestFieldVerificationResult> res) {
-        if (null != classAttribute) {
-            String objectClass = null == resultObject ? null : resultObject.getClass().getName();
-            res.add(new ITestFieldVerificationResultImpl(name + ".class", classAttribute, objectClass, classAttribute.equals(objectClass), null));
+    private void verifySize(Results results, ITestParamState stateParam, int actualSize) {
+        String size = stateParam.getAttribute(ITestConstants.ATTRIBUTE_SIZE);
+        if (null != size) {
+            results.add("@" + ITestConstants.ATTRIBUTE_SIZE, Integer.valueOf(size), actualSize, Integer.parseInt(size) == actualSize, null);
         }
     }
 
-    private Object getField(Object itestObject, String name) {
-        Field field = null;
-        Class<?> clazz = itestObject.getClass();
-        do {
+    private void verifyArray(Results results, Object resultObject, ITestParamState stateParam) {
+        int aSize = Array.getLength(resultObject);
+        verifySize(results, stateParam, aSize);
+        int from = 0;
+        if ( ITestParamStates.isIndexed(stateParam) && aSize == stateParam.getSizeParam() ) {
+            from = verifyPrimitives(results, resultObject, stateParam);
+        }
+        if ( ITestParamStates.isIndexed(stateParam) ) {
+            Object packed = ITestPackedValues.getPrimitiveArray(stateParam, iTestConfig.getITestValueConverter());
+            for (int index = from, sSize = stateParam.getSizeParam(); index < sSize && !results.isStopped(); index++) {
+                if ( index >= aSize ) {
+                    results.add(".size()", Integer.valueOf(index + 1), Integer.valueOf(aSize), false, null);
+                    continue;
+                }
+                int element = results.enter('.', index);
+                if ( null == packed || !verifyPacked(results, Array.get(resultObject, index), packed, index) ) {
+                    verify(results, Array.get(resultObject, index), ITestParamStates.getElement(stateParam, index));
+                }
+                results.leave(element);
+            }
+        } else {
+            for (ITestParamStateCursor cursor = ITestParamStates.elements(stateParam); cursor.next() && !results.isStopped();) {
+                String fName = cursor.getName();
+                int index = Integer.parseInt(fName);
+                if ( index >= aSize ) {
+                    results.add(".size()", Integer.valueOf(index + 1), Integer.valueOf(aSize), false, null);
+                } else {
+                    int element = results.enter('.', fName);
+                    verify(results, Array.get(resultObject, index), cursor.getElement());
+                    results.leave(element);
+                }
+            }
+        }
+    }
+
+    /**
+     * Compares primitive array with fully specified plain values of the state at once. Every compared element is one assertion, as if verified
+     * one by one. The first mismatch is reported with elements around it, the rest of the array is compared at once too, up to each following
+     * mismatch.
+     *
+     * @return index of the element to continue the verification element by element with, array length if all elements are verified
+     */
+    private int verifyPrimitives(Results results, Object resultObject, ITestParamState stateParam) {
+        Class<?> componentType = resultObject.getClass().getComponentType();
+        if ( !componentType.isPrimitive() ) {
+            return 0;
+        }
+        Object expected = plans.getExpectedArray(stateParam, componentType, iTestConfig.getITestValueConverter());
+        if ( null == expected ) {
+            return 0;
+        }
+        int length = Array.getLength(resultObject);
+        int index = ITestBulkComparison.mismatch(expected, resultObject);
+        results.addElements(0, index < 0 ? length : index, expected, resultObject);
+        if ( index < 0 ) {
+            return length;
+        }
+        results.add("." + index, Array.get(expected, index), Array.get(resultObject, index), false,
+                ITestBulkComparison.describe(expected, resultObject, index));
+        for (int from = index + 1; from < length && !results.isStopped(); from = index + 1) {
+            index = ITestBulkComparison.mismatch(expected, resultObject, from);
+            results.addElements(from, index < 0 ? length : index, expected, resultObject);
+            if ( index < 0 ) {
+                break;
+            }
+            results.add("." + index, Array.get(expected, index), Array.get(resultObject, index), false, null);
+        }
+        return length;
+    }
+
+    private void verifyChars(Results results, CharSequence resultObject, ITestParamState stateParam) {
+        String expected = (String) plans.getExpected(stateParam, String.class, iTestConfig.getITestValueConverter());
+        int index = ITestBulkComparison.mismatch(expected, resultObject);
+        results.add(null, stateParam.getValue(), resultObject, index < 0, index < 0 ? null : "first mismatch at " + index + ", expected "
+                + ITestBulkComparison.window(expected, index) + " actual " + ITestBulkComparison.window(resultObject, index));
+    }
+
+    /**
+     * @return true if the state has only element indices or is empty with the size attribute
+     */
+    private static boolean isSequenceState(ITestParamState stateParam) {
+        if ( ITestParamStates.isIndexed(stateParam) ) {
+            return true;
+        }
+        Collection<String> names = stateParam.getNames();
+        if ( names.isEmpty() ) {
+            return null != stateParam.getAttribute(ITestConstants.ATTRIBUTE_SIZE);
+        }
+        for (String name : names) {
+            if ( name.isEmpty() ) {
+                return false;
+            }
+            for (int i = 0; i < name.length(); i++) {
+                if ( !Character.isDigit(name.charAt(i)) ) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Verifies iterator, iterable or stream pulling one element at a time, no element is kept. Pulling ends after the last verified index, or
+     * with the size attribute at the end of the sequence or once it is longer than the size.
+     */
+    private void verifySequence(Results results, Object resultObject, ITestParamState stateParam) {
+        String size = stateParam.getAttribute(ITestConstants.ATTRIBUTE_SIZE);
+        int expectedSize = null == size ? -1 : Integer.parseInt(size);
+        int[] indices;
+        ITestParamState[] states = null;
+        Object packed = null;
+        if ( ITestParamStates.isIndexed(stateParam) ) {
+            indices = new int[stateParam.getSizeParam()];
+            for (int i = 0; i < indices.length; i++) {
+                indices[i] = i;
+            }
+            packed = ITestPackedValues.getPrimitiveArray(stateParam, iTestConfig.getITestValueConverter());
+        } else {
+            // index in high bits, position of the element in low bits, sorted by index keeping the element order
+            long[] order = new long[stateParam.getSizeParam()];
+            List<ITestParamState> elements = new ArrayList<ITestParamState>(order.length);
+            for (ITestParamStateCursor cursor = ITestParamStates.elements(stateParam); cursor.next();) {
+                order[elements.size()] = ((long) Integer.parseInt(cursor.getName()) << 32) | elements.size();
+                elements.add(cursor.getElement());
+            }
+            Arrays.sort(order);
+            indices = new int[order.length];
+            states = new ITestParamState[order.length];
+            for (int i = 0; i < order.length; i++) {
+                indices[i] = (int) (order[i] >>> 32);
+                states[i] = elements.get((int) order[i]);
+            }
+        }
+        Iterator<?> iterator = ITestSequences.iterator(resultObject);
+        try {
+            int position = 0;
+            int next = 0;
+            boolean exhausted = false;
+            while ( !results.isStopped() && (next < indices.length || (expectedSize >= 0 && position <= expectedSize)) ) {
+                if ( !iterator.hasNext() ) {
+                    exhausted = true;
+                    break;
+                }
+                Object item = iterator.next();
+                for (; next < indices.length && indices[next] == position && !results.isStopped(); next++) {
+                    int element = results.enter('.', position);
+                    if ( null == packed || !verifyPacked(results, item, packed, position) ) {
+                        verify(results, item, null == states ? ITestParamStates.getElement(stateParam, position) : states[next]);
+                    }
+                    results.leave(element);
+                }
+                position++;
+            }
+            if ( exhausted ) {
+                verifySize(results, stateParam, position);
+                for (; next < indices.length; next++) {
+                    results.add(".size()", Integer.valueOf(indices[next] + 1), Integer.valueOf(position), false, null);
+                }
+            } else if ( expectedSize >= 0 && position > expectedSize ) {
+                results.add("@" + ITestConstants.ATTRIBUTE_SIZE, Integer.valueOf(expectedSize), "more than " + expectedSize, false, null);
+            }
+        } finally {
+            ITestSequences.close(resultObject);
+        }
+    }
+
+    /**
+     * @return distinct element indices of the state below size in ascending order
+     */
+    private static int[] getIndices(ITestParamState stateParam, int size) {
+        int[] res = new int[stateParam.getSizeParam()];
+        int count = 0;
+        for (ITestParamStateCursor cursor = ITestParamStates.elements(stateParam); cursor.next();) {
+            int index = Integer.parseInt(cursor.getName());
+            if ( index < 0 ) {
+                throw new IndexOutOfBoundsException("Index: " + index);
+            }
+            if ( index < size ) {
+                res[count++] = index;
+            }
+        }
+        Arrays.sort(res, 0, count);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if ( 0 == distinct || res[distinct - 1] != res[i] ) {
+                res[distinct++] = res[i];
+            }
+        }
+        return Arrays.copyOf(res, distinct);
+    }
+
+    /**
+     * @return items at the ascending indices, read in one pass of the iterator
+     */
+    private static Object[] getItems(Collection<Object> collection, int[] indices) {
+        Object[] res = new Object[indices.length];
+        Iterator<Object> iterator = collection.iterator();
+        int position = 0;
+        for (int i = 0; i < indices.length; i++) {
+            for (; position < indices[i]; position++) {
+                iterator.next();
+            }
+            res[i] = iterator.next();
+            position++;
+        }
+        return res;
+    }
+
+    /**
+     * Compares element of packed numeric param without creating its leaf state.
+     *
+     * @return false if the value has to be verified the regular way
+     */
+    private boolean verifyPacked(Results results, Object resultObject, Object packed, int index) {
+        Object expected = ITestPackedValues.getExpected(packed, index, resultObject);
+        if ( null != expected ) {
+            boolean success = expected.equals(resultObject);
+            results.add(null, success ? null : ITestPackedValues.toString(packed, index), resultObject, success, null);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Compares the digest with the one of the result formatted by {@link SimpleJsonFormatter}, computed while formatting.
+     */
+    private void verifyDigest(Results results, Object resultObject, String digest) {
+        String suffix = "@" + ITestConstants.ATTRIBUTE_DIGEST;
+        int separator = digest.indexOf(':');
+        if ( separator < 0 ) {
+            results.add(suffix, digest, null, false, "algorithm:hex expected");
+            return;
+        }
+        String algorithm = digest.substring(0, separator);
+        ITestDigestAppendable out;
+        try {
+            out = new ITestDigestAppendable(ITestDigestAppendable.getDigest(algorithm));
+        } catch (NoSuchAlgorithmException e) {
+            results.add(suffix, digest, null, false, "unknown digest algorithm " + algorithm);
+            return;
+        }
+        new SimpleJsonFormatter().format(resultObject, out);
+        String actual = algorithm + ":" + out.toHex();
+        boolean success = actual.equalsIgnoreCase(digest);
+        String message = null;
+        if ( !success && null != digestDumpDirectory ) {
+            message = dump(results.path.toString(), resultObject);
+        }
+        results.add(suffix, digest, actual, success, message);
+    }
+
+    /**
+     * @return message with the file the formatted result is written to
+     */
+    private String dump(String name, Object resultObject) {
+        File file = new File(digestDumpDirectory, name.replaceAll("[^A-Za-z0-9._-]", "_") + ".actual" + ITestConstants.DEFINITION_SUFFIX);
+        try {
+            digestDumpDirectory.mkdirs();
+            Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
             try {
-                field = clazz.getDeclaredField(name);
-            } catch (NoSuchFieldException e) {
-                // do nothing, search in superclass
-            } catch (SecurityException e) {
-                throw new ITestMethodExecutionException("Security Exception for " + itestObject.getClass().getName() + "." + name, e);
+                new SimpleJsonFormatter().format(resultObject, writer);
+            } finally {
+                writer.close();
             }
-        } while (null != (clazz = clazz.getSuperclass()));
-        if ( null == field ) {
-            throw new ITestMethodExecutionException("Field(" + name + ") not found in " + itestObject.getClass().getName(), null);
+            return "actual result written to " + file.getPath();
+        } catch (IOException e) {
+            return "writing actual result to " + file.getPath() + " failed: " + e.getMessage();
+        }
+    }
+
+    private void verifyClass(Results results, String classAttribute, Object resultObject) {
+        if (null != classAttribute) {
+            String objectClass = null == resultObject ? null : resultObject.getClass().getName();
+            results.add(".class", classAttribute, objectClass, classAttribute.equals(objectClass), null);
         }
-        field.setAccessible(true);
+    }
+
+    private Object getField(Object itestObject, String name) {
+        Field field = plans.getField(itestObject.getClass(), name);
         try {
             return field.get(itestObject);
         } catch (Exception e) {
@@ -186,6 +540,90 @@ public class ITestExecutionVerifierImpl implements ITestExecutionVerifier {
         }
     }
 
+    /**
+     * Assertions of one verification. Path of the verified element is kept in one buffer, names and results of successful assertions are created
+     * only if all results are collected.
+     */
+    private static class Results {
+        final StringBuilder path;
+
+        private final Collection<ITestFieldVerificationResult> res;
+
+        private final boolean failuresOnly;
+
+        private final boolean stopAtFirstFailure;
+
+        int count;
+
+        private boolean failed;
+
+        Results(String name, Collection<ITestFieldVerificationResult> res, boolean failuresOnly, boolean stopAtFirstFailure) {
+            this.path = new StringBuilder(128).append(name);
+            this.res = res;
+            this.failuresOnly = failuresOnly;
+            this.stopAtFirstFailure = stopAtFirstFailure;
+        }
+
+        /**
+         * @param suffix
+         *            appended to the path in the assertion name, may be null
+         */
+        void add(String suffix, Object expected, Object actual, boolean success, String message) {
+            if ( isStopped() ) {
+                return;
+            }
+            count++;
+            if ( !success ) {
+                failed = true;
+            } else if ( failuresOnly ) {
+                return;
+            }
+            String name = null == suffix ? path.toString() : new StringBuilder(path.length() + suffix.length()).append(path).append(suffix).toString();
+            res.add(new ITestFieldVerificationResultImpl(name, expected, actual, success, message));
+        }
+
+        /**
+         * Successful assertions of array elements from..to-1 compared at once, counted without creating results if only failures are collected.
+         */
+        void addElements(int from, int to, Object expected, Object actual) {
+            if ( isStopped() ) {
+                return;
+            }
+            if ( failuresOnly ) {
+                count += to - from;
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                int element = enter('.', i);
+                add(null, Array.get(expected, i), Array.get(actual, i), true, null);
+                leave(element);
+            }
+        }
+
+        boolean isStopped() {
+            return failed && stopAtFirstFailure;
+        }
+
+        /**
+         * @return path length to {@link #leave(int)} the element
+         */
+        int enter(char separator, Object element) {
+            int res = path.length();
+            path.append(separator).append(element);
+            return res;
+        }
+
+        int enterKey(Object key) {
+            int res = path.length();
+            path.append('[').append(key).append(']');
+            return res;
+        }
+
+        void leave(int mark) {
+            path.setLength(mark);
+        }
+    }
+
     static class ITestFieldVerificationResultImpl implements ITestFieldVerificationResult {
 
         private final String name;
@@ -0,0 +1,141 @@
+package org.itest.impl;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.itest.param.ITestParamAssignment;
+import org.itest.param.ITestParamMerger;
+import org.itest.param.ITestParamState;
+
+/**
+ * Keeps results of the delegate merger for the most recently merged assignments. Assignments are the same if they have equal transformations
+ * and the very same states: param states are not changed once parsed, so a merge of the same instances gives an equal result.
+ */
+public class ITestMemoizingParamMerger implements ITestParamMerger {
+
+    public static final int DEFAULT_MAX_SIZE = 4096;
+
+    private final ITestParamMerger delegate;
+
+    private final Map<Key, ITestParamState> results;
+
+    private long hits;
+
+    private long misses;
+
+    public ITestMemoizingParamMerger(ITestParamMerger delegate) {
+        this(delegate, DEFAULT_MAX_SIZE);
+    }
+
+    public ITestMemoizingParamMerger(ITestParamMerger delegate, final int maxSize) {
+        this.delegate = delegate;
+        this.results = new LinkedHashMap<Key, ITestParamState>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, ITestParamState> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    @Override
+    public ITestParamState merge(ITestParamAssignment... itestParamAssignments) {
+        Key key = new Key(itestParamAssignments);
+        synchronized (results) {
+            ITestParamState res = results.get(key);
+            if ( null != res ) {
+                hits++;
+                return res;
+            }
+            misses++;
+        }
+        ITestParamState res = delegate.merge(itestParamAssignments);
+        if ( null != res ) {
+            synchronized (results) {
+                results.put(key, res);
+            }
+        }
+        return res;
+    }
+
+    public long getHits() {
+        synchronized (results) {
+            return hits;
+        }
+    }
+
+    public long getMisses() {
+        synchronized (results) {
+            return misses;
+        }
+    }
+
+    /**
+     * @return hits to all merges, 0 before the first merge
+     */
+    public double getHitRate() {
+        synchronized (results) {
+            long total = hits + misses;
+            return 0 == total ? 0 : (double) hits / total;
+        }
+    }
+
+    public int size() {
+        synchronized (results) {
+            return results.size();
+        }
+    }
+
+    public void clear() {
+        synchronized (results) {
+            results.clear();
+            hits = 0;
+            misses = 0;
+        }
+    }
+
+    private static class Key {
+        private final String[][] transformations;
+
+        private final ITestParamState[] states;
+
+        private final int hash;
+
+        Key(ITestParamAssignment[] assignments) {
+            transformations = new String[assignments.length][];
+            states = new ITestParamState[assignments.length];
+            int h = 1;
+            for (int i = 0; i < assignments.length; i++) {
+                transformations[i] = assignments[i].getTransformation();
+                states[i] = assignments[i].getITestParamState();
+                h = 31 * h + Arrays.hashCode(transformations[i]);
+                h = 31 * h + System.identityHashCode(states[i]);
+            }
+            hash = h;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if ( !(obj instanceof Key) ) {
+                return false;
+            }
+            Key other = (Key) obj;
+            if ( hash != other.hash || states.length != other.states.length ) {
+                return false;
+            }
+            for (int i = 0; i < states.length; i++) {
+                if ( states[i] != other.states[i] || !Arrays.equals(transformations[i], other.transformations[i]) ) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
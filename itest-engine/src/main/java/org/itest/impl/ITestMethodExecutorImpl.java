@@ -34,6 +34,7 @@ import org.itest.exception.ITestMethodExecutionException;
 import org.itest.execution.ITestMethodExecutionResult;
 import org.itest.execution.ITestMethodExecutor;
 import org.itest.param.ITestParamState;
+import org.itest.param.ITestParamStates;
 import org.itest.verify.ITestFieldVerificationResult;
 
 import java.io.ByteArrayOutputStream;
@@ -74,9 +75,9 @@ public class ITestMethodExecutorImpl implements ITestMethodExecutor {
         for (int i = 0; i < parameterTypes.length; i++) {
             ITestParamState argState = paramState.getElement(ITestConstants.ARG);
             try {
-                iTestContext.enter(parameters, String.valueOf(i));
+                ITestContextImpl.enterItem(iTestContext, parameters, i);
                 parameters[i] = iTestConfig.getITestObjectGenerator().generate(parameterTypes[i],
-                        argState == null ? null : argState.getElement(String.valueOf(i)),  iTestContext);
+                        argState == null ? null : ITestParamStates.getElement(argState, i),  iTestContext);
                 iTestContext.leave(parameters[i]);
             } catch (ITestException e) {
                 e.addPrefix(method + " arg[" + i + "]: ");
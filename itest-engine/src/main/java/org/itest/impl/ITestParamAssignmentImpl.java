@@ -7,6 +7,8 @@ public class ITestParamAssignmentImpl implements ITestParamAssignment {
 
     private final String[] transformation;
 
+    private final ITestTransformation[] compiled;
+
     private final ITestParamState itestParamState;
 
     public ITestParamAssignmentImpl(String transformation, ITestParamState itestParamState) {
@@ -14,7 +16,16 @@ public class ITestParamAssignmentImpl implements ITestParamAssignment {
     }
 
     public ITestParamAssignmentImpl(String[] transformation, ITestParamState itestParamState) {
+        this(transformation, ITestTransformation.compile(transformation), itestParamState);
+    }
+
+    /**
+     * @param compiled
+     *            transformation compiled with {@link ITestTransformation#compile(String[])}
+     */
+    public ITestParamAssignmentImpl(String[] transformation, ITestTransformation[] compiled, ITestParamState itestParamState) {
         this.transformation = transformation;
+        this.compiled = compiled;
         this.itestParamState = itestParamState;
     }
 
@@ -23,6 +34,10 @@ public class ITestParamAssignmentImpl implements ITestParamAssignment {
         return transformation;
     }
 
+    public ITestTransformation[] getCompiledTransformation() {
+        return compiled;
+    }
+
     @Override
     public ITestParamState getITestParamState() {
         return itestParamState;
@@ -0,0 +1,258 @@
+package org.itest.impl;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.itest.ITestConfig;
+import org.itest.ITestConstants;
+import org.itest.exception.ITestDeclarationNotFoundException;
+import org.itest.exception.ITestException;
+import org.itest.param.ITestParamLoader;
+import org.itest.param.ITestParamParsers;
+import org.itest.param.ITestParamState;
+import org.itest.util.param.ITestParamStateCodec;
+
+/**
+ * Loads itest definitions from filesystem directories laid out like the classpath (org/itest/Xxx.itest.json) instead of class loader resources.
+ * Lookup order is the same as in {@link ITestParamLoaderImpl}, binary definitions first. Files are parsed as they are read (UTF-8), large json files
+ * are memory mapped for the time of parsing. Binary definitions are copied to heap, the decoded states would otherwise read a file which may be
+ * changed in place while watched. Tests of class-level files are parsed when used. Parsed files are cached, {@link #preload(int)} parses all
+ * files upfront.
+ */
+public class ITestParamLoaderFileImpl implements ITestParamLoader {
+
+    /**
+     * json files above this size are memory mapped instead of read
+     */
+    private static final long MAP_THRESHOLD = 64 * 1024;
+
+    private static final ITestParamState EMPTY_FILE = new ITestParamStateImpl();
+
+    private final ITestConfig iTestConfig;
+
+    private final File[] roots;
+
+    private final ConcurrentMap<File, ITestParamState> cache = new ConcurrentHashMap<File, ITestParamState>();
+
+    public ITestParamLoaderFileImpl(ITestConfig iTestConfig, File... roots) {
+        this.iTestConfig = iTestConfig;
+        this.roots = roots;
+    }
+
+    @Override
+    public ITestParamState loadITestParam(Class<?> iTestClass, String use) {
+        File file = findFile(ITestParamLoaderImpl.resourceName(iTestClass, use, ITestConstants.BINARY_DEFINITION_SUFFIX));
+        if ( null == file ) {
+            file = findFile(ITestParamLoaderImpl.resourceName(iTestClass, use));
+        }
+        boolean namedFileFound = true;
+        if ( null == file ) {
+            String className = iTestClass.getName().replace('.', '/');
+            String resourceName = className + ITestConstants.BINARY_DEFINITION_SUFFIX;
+            file = findFile(resourceName);
+            if ( null == file ) {
+                resourceName = className + ITestConstants.DEFINITION_SUFFIX;
+                file = findFile(resourceName);
+            }
+            if ( null == file ) {
+                throw new ITestDeclarationNotFoundException("File (" + resourceName + ") for use (" + use + ") not found.");
+            }
+            namedFileFound = false;
+        }
+        ITestParamState initParams = load(file);
+        if ( EMPTY_FILE == initParams ) {
+            initParams = null;
+        } else if ( !namedFileFound ) {
+            try {
+                initParams = initParams.getElement(use);
+            } catch (RuntimeException e) {
+                throw new ITestException("Error parsing " + file, e);
+            }
+        }
+        if ( null == initParams ) {
+            throw new ITestDeclarationNotFoundException("Data definition for test (" + use + ") not found in " + file);
+        }
+        ITestParamStateImpl res = new ITestParamStateImpl();
+        res.addElement(ITestConstants.THIS, initParams);
+        return res;
+    }
+
+    /**
+     * Parses all definition files under the roots using given number of threads.
+     *
+     * @return number of files loaded
+     */
+    public int preload(int threads) {
+        List<File> files = findDefinitionFiles();
+        ExecutorService executorService = Executors.newFixedThreadPool(Math.max(1, threads));
+        try {
+            List<Future<ITestParamState>> futures = new ArrayList<Future<ITestParamState>>(files.size());
+            for (final File file : files) {
+                futures.add(executorService.submit(new Callable<ITestParamState>() {
+                    @Override
+                    public ITestParamState call() {
+                        return load(file);
+                    }
+                }));
+            }
+            for (Future<ITestParamState> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ITestException("Preloading interrupted.", e);
+        } catch (ExecutionException e) {
+            if ( e.getCause() instanceof ITestException ) {
+                throw (ITestException) e.getCause();
+            }
+            throw new ITestException("Error preloading definitions.", e.getCause());
+        } finally {
+            executorService.shutdownNow();
+        }
+        return files.size();
+    }
+
+    /**
+     * Drops cached parsed state of the file, so it is read again on next access.
+     */
+    public void invalidate(File file) {
+        cache.remove(file);
+    }
+
+    public File[] getRoots() {
+        return roots.clone();
+    }
+
+    /**
+     * @return all definition files under the roots
+     */
+    public List<File> findDefinitionFiles() {
+        List<File> res = new ArrayList<File>();
+        for (File root : roots) {
+            collectFiles(root, res);
+        }
+        return res;
+    }
+
+    private File findFile(String resourceName) {
+        for (File root : roots) {
+            File file = new File(root, resourceName);
+            if ( file.isFile() ) {
+                return file;
+            }
+        }
+        return null;
+    }
+
+    private ITestParamState load(File file) {
+        ITestParamState res = cache.get(file);
+        if ( null == res ) {
+            try {
+                res = parse(file);
+            } catch (IOException e) {
+                throw new ITestException("Error reading " + file, e);
+            } catch (RuntimeException e) {
+                throw new ITestException("Error parsing " + file, e);
+            }
+            if ( null == res ) {
+                res = EMPTY_FILE;
+            }
+            ITestParamState cached = cache.putIfAbsent(file, res);
+            if ( null != cached ) {
+                res = cached;
+            }
+        }
+        return res;
+    }
+
+    private ITestParamState parse(File file) throws IOException {
+        FileInputStream is = new FileInputStream(file);
+        try {
+            if ( file.getName().endsWith(ITestConstants.BINARY_DEFINITION_SUFFIX) ) {
+                return ITestParamStateCodec.read(is);
+            }
+            FileChannel channel = is.getChannel();
+            long size = channel.size();
+            ReadableByteChannel source = channel;
+            if ( size > MAP_THRESHOLD ) {
+                source = new ByteBufferChannel(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+            }
+            if ( isClassLevel(file) ) {
+                return ITestParamParsers.parseLazy(iTestConfig.getITestParamParser(), Channels.newReader(source, "UTF-8"));
+            }
+            return ITestParamParsers.parse(iTestConfig.getITestParamParser(), Channels.newReader(source, "UTF-8"));
+        } finally {
+            is.close();
+        }
+    }
+
+    /**
+     * @return true for Xxx.itest.json holding definitions of all tests of the class, its tests are parsed when used
+     */
+    private static boolean isClassLevel(File file) {
+        String name = file.getName();
+        return name.lastIndexOf('.', name.length() - ITestConstants.DEFINITION_SUFFIX.length() - 1) < 0;
+    }
+
+    private static void collectFiles(File dir, List<File> res) {
+        File[] files = dir.listFiles();
+        if ( null == files ) {
+            return;
+        }
+        for (File file : files) {
+            if ( file.isDirectory() ) {
+                collectFiles(file, res);
+            } else if ( file.getName().endsWith(ITestConstants.DEFINITION_SUFFIX)
+                    || file.getName().endsWith(ITestConstants.BINARY_DEFINITION_SUFFIX) ) {
+                res.add(file);
+            }
+        }
+    }
+
+    /**
+     * Exposes memory mapped file to the decoding reader.
+     */
+    static class ByteBufferChannel implements ReadableByteChannel {
+        private final ByteBuffer buffer;
+
+        ByteBufferChannel(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) {
+            if ( !buffer.hasRemaining() ) {
+                return -1;
+            }
+            int n = Math.min(dst.remaining(), buffer.remaining());
+            ByteBuffer slice = buffer.slice();
+            slice.limit(n);
+            dst.put(slice);
+            buffer.position(buffer.position() + n);
+            return n;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -4,51 +4,99 @@ import org.itest.ITestConfig;
 import org.itest.ITestConstants;
 import org.itest.exception.ITestDeclarationNotFoundException;
 import org.itest.exception.ITestException;
-import org.itest.impl.util.IoUtils;
 import org.itest.param.ITestParamLoader;
+import org.itest.param.ITestParamParsers;
 import org.itest.param.ITestParamState;
+import org.itest.util.param.ITestParamStateCodec;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 public class ITestParamLoaderImpl implements ITestParamLoader {
 
     private final ITestConfig iTestConfig;
 
+    /**
+     * loaded definitions by class and use, classpath resources do not change so each one is parsed once and the same states are given to
+     * {@link ITestMemoizingParamMerger}
+     */
+    private final Map<Class<?>, Map<String, ITestParamState>> loaded = new WeakHashMap<Class<?>, Map<String, ITestParamState>>();
+
+    /**
+     * class-level definitions by class, each use takes its element from the same state so the file is read and scanned once
+     */
+    private final Map<Class<?>, ClassDefinitions> classLevel = new WeakHashMap<Class<?>, ClassDefinitions>();
+
     public ITestParamLoaderImpl(ITestConfig iTestConfig) {
         this.iTestConfig = iTestConfig;
     }
 
     @Override
     public ITestParamState loadITestParam(Class<?> iTestClass, String use) {
+        Map<String, ITestParamState> classDefinitions;
+        synchronized (loaded) {
+            classDefinitions = loaded.get(iTestClass);
+            if ( null == classDefinitions ) {
+                classDefinitions = new HashMap<String, ITestParamState>();
+                loaded.put(iTestClass, classDefinitions);
+            }
+        }
+        ITestParamState res;
+        synchronized (classDefinitions) {
+            res = classDefinitions.get(use);
+        }
+        if ( null == res ) {
+            res = load(iTestClass, use);
+            synchronized (classDefinitions) {
+                classDefinitions.put(use, res);
+            }
+        }
+        return res;
+    }
+
+    private ITestParamState load(Class<?> iTestClass, String use) {
 
-        String resourceName = resourceName(iTestClass, use);
-        boolean namedFileFound = true;
+        ClassLoader classLoader = iTestClass.getClassLoader();
+        String resourceName = resourceName(iTestClass, use, ITestConstants.BINARY_DEFINITION_SUFFIX);
 
-        InputStream is = iTestClass.getClassLoader().getResourceAsStream(resourceName);
+        InputStream is = classLoader.getResourceAsStream(resourceName);
         if ( null == is ) {
-            resourceName = new StringBuilder(128).append(iTestClass.getName().replace('.', '/')).append(".itest.json").toString();
-            is = iTestClass.getClassLoader().getResourceAsStream(resourceName);
-            if ( null == is ) {
-                throw new ITestDeclarationNotFoundException("File (" + resourceName + ") for use (" + use + ") not found.");
-            }
-            namedFileFound = false;
-        }
-        String init;
-        byte[] buffer = new byte[1024];
-        try {
-            init = new String(IoUtils.readBytes(is, buffer));
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+            resourceName = resourceName(iTestClass, use);
+            is = classLoader.getResourceAsStream(resourceName);
         }
         ITestParamState initParams;
-        try {
-            initParams = iTestConfig.getITestParamParser().parse(init);
-        } catch (RuntimeException e) {
-            throw new ITestException("Error parsing " + resourceName,e);
-        }
-        if ( !namedFileFound ) {
-            initParams = initParams.getElement(use);
+        if ( null == is ) {
+            ClassDefinitions classParams = loadClassDefinitions(iTestClass, use);
+            resourceName = classParams.resourceName;
+            try {
+                initParams = null == classParams.state ? null : classParams.state.getElement(use);
+            } catch (RuntimeException e) {
+                throw new ITestException("Error parsing " + resourceName, e);
+            }
+        } else {
+            try {
+                if ( resourceName.endsWith(ITestConstants.BINARY_DEFINITION_SUFFIX) ) {
+                    initParams = readBinary(classLoader, resourceName, is);
+                } else {
+                    initParams = ITestParamParsers.parse(iTestConfig.getITestParamParser(), new InputStreamReader(is, "UTF-8"));
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            } catch (RuntimeException e) {
+                throw new ITestException("Error parsing " + resourceName, e);
+            } finally {
+                try {
+                    is.close();
+                } catch (IOException e) {
+                }
+            }
         }
         if ( null == initParams ) {
             throw new ITestDeclarationNotFoundException("Data definition for test (" + use + ") not found in " + resourceName);
@@ -58,8 +106,86 @@ public class ITestParamLoaderImpl implements ITestParamLoader {
         return res;
     }
 
+    /**
+     * Class-level file has definitions of all tests of the class, it is read once and only the used definitions are parsed from it.
+     */
+    private ClassDefinitions loadClassDefinitions(Class<?> iTestClass, String use) {
+        ClassDefinitions res;
+        synchronized (classLevel) {
+            res = classLevel.get(iTestClass);
+        }
+        if ( null != res ) {
+            return res;
+        }
+        ClassLoader classLoader = iTestClass.getClassLoader();
+        String className = iTestClass.getName().replace('.', '/');
+        String resourceName = className + ITestConstants.BINARY_DEFINITION_SUFFIX;
+        InputStream is = classLoader.getResourceAsStream(resourceName);
+        if ( null == is ) {
+            resourceName = className + ITestConstants.DEFINITION_SUFFIX;
+            is = classLoader.getResourceAsStream(resourceName);
+        }
+        if ( null == is ) {
+            throw new ITestDeclarationNotFoundException("File (" + resourceName + ") for use (" + use + ") not found.");
+        }
+        try {
+            if ( resourceName.endsWith(ITestConstants.BINARY_DEFINITION_SUFFIX) ) {
+                res = new ClassDefinitions(resourceName, readBinary(classLoader, resourceName, is));
+            } else {
+                res = new ClassDefinitions(resourceName, ITestParamParsers.parseLazy(iTestConfig.getITestParamParser(), new InputStreamReader(is,
+                        "UTF-8")));
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } catch (RuntimeException e) {
+            throw new ITestException("Error parsing " + resourceName, e);
+        } finally {
+            try {
+                is.close();
+            } catch (IOException e) {
+            }
+        }
+        synchronized (classLevel) {
+            ClassDefinitions prev = classLevel.get(iTestClass);
+            if ( null != prev ) {
+                return prev;
+            }
+            classLevel.put(iTestClass, res);
+        }
+        return res;
+    }
+
+    /**
+     * Binary definitions in directories are memory mapped, navigable ones are then read in place.
+     */
+    private static ITestParamState readBinary(ClassLoader classLoader, String resourceName, InputStream is) throws IOException {
+        URL url = classLoader.getResource(resourceName);
+        if ( null != url && "file".equals(url.getProtocol()) ) {
+            try {
+                return ITestParamStateCodec.read(new File(url.toURI()));
+            } catch (URISyntaxException e) {
+            }
+        }
+        return ITestParamStateCodec.read(is);
+    }
+
     public static String resourceName(Class<?> iTestClass, String name) {
-        return new StringBuilder(128).append(iTestClass.getName().replace('.', '/')).append('.').append(name).append(".itest.json").toString();
+        return resourceName(iTestClass, name, ITestConstants.DEFINITION_SUFFIX);
+    }
 
+    static String resourceName(Class<?> iTestClass, String name, String suffix) {
+        return new StringBuilder(128).append(iTestClass.getName().replace('.', '/')).append('.').append(name).append(suffix).toString();
+
+    }
+
+    private static class ClassDefinitions {
+        private final String resourceName;
+
+        private final ITestParamState state;
+
+        ClassDefinitions(String resourceName, ITestParamState state) {
+            this.resourceName = resourceName;
+            this.state = state;
+        }
     }
 }
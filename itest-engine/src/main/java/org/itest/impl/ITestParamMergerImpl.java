@@ -25,16 +25,12 @@
  */
 package org.itest.impl;
 
-import org.itest.ITestConstants;
-import org.itest.json.simple.ITestSimpleJsonState;
 import org.itest.param.ITestParamAssignment;
 import org.itest.param.ITestParamMerger;
 import org.itest.param.ITestParamState;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.LinkedHashSet;
-import java.util.StringTokenizer;
 
 public class ITestParamMergerImpl implements ITestParamMerger {
 
@@ -49,112 +45,22 @@ public class ITestParamMergerImpl implements ITestParamMerger {
         Collection<ITestParamState> unifiedStates = new ArrayList<ITestParamState>();
         for (ITestParamAssignment iTestParamAssignment : iTestParamAssignments) {
             ITestParamState itestParam = iTestParamAssignment.getITestParamState();
-            for (String transformation : iTestParamAssignment.getTransformation()) {
-                //ITestParamStateImpl state = new ITestParamStateImpl();
-                ITestParamState state = getState(transformation, itestParam);
-                unifiedStates.add(state);
+            ITestTransformation[] transformations = iTestParamAssignment instanceof ITestParamAssignmentImpl ? ((ITestParamAssignmentImpl) iTestParamAssignment)
+                    .getCompiledTransformation() : ITestTransformation.compile(iTestParamAssignment.getTransformation());
+            for (ITestTransformation transformation : transformations) {
+                unifiedStates.add(transformation.apply(itestParam));
             }
         }
         return unifiedStates;
     }
 
+    /**
+     * Merged state is an overlay of the unified states resolved on access, see {@link ITestParamOverlayState}.
+     */
     private ITestParamState mergeUnified(Collection<ITestParamState> unifiedStates) {
         if ( 1 == unifiedStates.size() ) {
             return unifiedStates.iterator().next();
         }
-        Collection<String> collectedElements = collectAllNames(unifiedStates);
-        ITestParamStateImpl mergedState = new ITestParamStateImpl();
-        for (String element : collectedElements) {
-            merge(element, mergedState, unifiedStates);
-        }
-        return mergedState;
-    }
-
-    private void merge(String name, ITestParamStateImpl parentState, Collection<ITestParamState> unifiedStates) {
-        ITestParamStateImpl currentState = null;
-        Collection<ITestParamState> unifiedElements = new ArrayList<ITestParamState>(unifiedStates.size());
-        for (ITestParamState itestState : unifiedStates) {
-            unifiedElements.add(null == itestState ? null : itestState.getElement(name));
-        }
-        Iterable<String> allNamesIterable = collectAllNames(unifiedElements);
-        if ( null != allNamesIterable ) {
-            currentState = new ITestParamStateImpl();
-            currentState.elements = ITestSimpleJsonState.createElements();
-            copyAttributes(currentState, unifiedElements);
-            parentState.addElement(name, currentState);
-            for (String elementName : allNamesIterable) {
-                merge(elementName, currentState, unifiedElements);
-            }
-        } else {
-            for (ITestParamState itestState : unifiedElements) {
-                if ( null != itestState ) {
-                    if ( null == currentState ) {
-                        currentState = new ITestParamStateImpl();
-                        parentState.addElement(name, currentState);
-                        copyAttributes(currentState, unifiedElements);
-                    }
-                    if(null==itestState.getNames()) {
-                        currentState.value = itestState.getValue();
-                    }
-                }
-            }
-        }
-    }
-
-    private void copyAttributes(ITestParamStateImpl currentState, Collection<ITestParamState> unifiedElements) {
-        for (ITestParamState unified : unifiedElements) {
-            if ( null == unified ) {
-                continue;
-            }
-            Iterable<String> attributeNames = unified.getAttributeNames();
-            if ( null != attributeNames ) {
-                for (String attributeName : attributeNames) {
-                    currentState.addAttribute(attributeName, unified.getAttribute(attributeName));
-                }
-            }
-        }
-    }
-
-    private Collection<String> collectAllNames(Collection<ITestParamState> unifiedElements) {
-        Collection<String> res = null;
-        for (ITestParamState state : unifiedElements) {
-            if ( null != state ) {
-                Collection<String> names = state.getNames();
-                if ( names != null ) {
-                    if ( null == res ) {
-                        res = new LinkedHashSet<String>();
-                    }
-                    res.addAll(names);
-                }
-            }
-        }
-        return res;
-    }
-
-    private ITestParamState getState(String transformation, ITestParamState itestParam) {
-        if ( 0 == transformation.length() ) {
-            return itestParam;
-        }
-        String s = transformation.replaceAll(ITestConstants.ASSIGN, ITestConstants.ASSIGN_SEPARATOR + ITestConstants.ASSIGN + ITestConstants.ASSIGN_SEPARATOR);
-        StringTokenizer t = new StringTokenizer(s, ITestConstants.ASSIGN_SEPARATOR);
-        ITestParamStateImpl res = new ITestParamStateImpl();
-        ITestParamStateImpl prevState = null;
-        String token;
-        String prevToken = null;
-        while (!ITestConstants.ASSIGN.equals(token = t.nextToken())) {
-            ITestParamStateImpl p = new ITestParamStateImpl();
-            if (prevState != null) {
-                prevState.addElement(prevToken, p);
-            } else {
-                p = res;
-            }
-            prevState = p;
-            prevToken = token;
-        }
-        while (t.hasMoreElements()) {
-            itestParam = itestParam.getElement(t.nextToken());
-        }
-        prevState.addElement(prevToken, itestParam);
-        return res;
+        return ITestParamOverlayState.root(unifiedStates.toArray(new ITestParamState[unifiedStates.size()]));
     }
 }
@@ -0,0 +1,284 @@
+package org.itest.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.itest.json.simple.ITestSimpleJsonState;
+import org.itest.param.ITestParamState;
+import org.itest.param.ITestParamStateCursor;
+import org.itest.param.ITestParamStates;
+
+/**
+ * Result of {@link ITestParamMergerImpl}: names, values and attributes are resolved through the merged layers on access, later layers override
+ * earlier ones. Elements are overlays of the layers' elements created on first access. The node is copied into {@link ITestParamStateImpl} fields
+ * only when it is mutated. Resolution and materialization happen once under the lock, later reads only check the volatile flags.
+ */
+class ITestParamOverlayState extends ITestParamStateImpl {
+
+    /**
+     * merged states in order, may contain nulls
+     */
+    private final ITestParamState[] layers;
+
+    /**
+     * root of the merge keeps neither value nor attributes of the layers
+     */
+    private final boolean root;
+
+    private volatile boolean resolved;
+
+    private volatile boolean materialized;
+
+    private List<String> names;
+
+    private String resolvedValue;
+
+    private Map<String, String> resolvedAttributes;
+
+    /**
+     * children of the names, complete and not changed once resolved
+     */
+    private Map<String, ITestParamState> resolvedChildren;
+
+    /**
+     * children created under the lock, also for names not listed by the layers
+     */
+    private final Map<String, ITestParamState> children = new HashMap<String, ITestParamState>();
+
+    private ITestParamOverlayState(ITestParamState[] layers, boolean root) {
+        this.layers = layers;
+        this.root = root;
+    }
+
+    static ITestParamOverlayState root(ITestParamState[] layers) {
+        return new ITestParamOverlayState(layers, true);
+    }
+
+    private void resolve() {
+        if ( !resolved ) {
+            synchronized (this) {
+                if ( !resolved ) {
+                    doResolve();
+                    resolved = true;
+                }
+            }
+        }
+    }
+
+    private void doResolve() {
+        Collection<String> allNames = null;
+        for (ITestParamState layer : layers) {
+            if ( null != layer ) {
+                Collection<String> layerNames = layer.getNames();
+                if ( null != layerNames ) {
+                    if ( null == allNames ) {
+                        allNames = new LinkedHashSet<String>();
+                    }
+                    allNames.addAll(layerNames);
+                } else if ( !root ) {
+                    resolvedValue = layer.getValue();
+                }
+                if ( !root ) {
+                    for (ITestParamStateCursor cursor = ITestParamStates.attributes(layer); cursor.next();) {
+                        if ( null == resolvedAttributes ) {
+                            resolvedAttributes = new HashMap<String, String>();
+                        }
+                        resolvedAttributes.put(cursor.getName(), cursor.getValue());
+                    }
+                }
+            }
+        }
+        resolvedChildren = new HashMap<String, ITestParamState>();
+        if ( null != allNames ) {
+            resolvedValue = null;
+            names = new ArrayList<String>(allNames.size());
+            for (String name : allNames) {
+                // names all layers keep null for are dropped
+                ITestParamState child = createChild(name);
+                if ( null != child ) {
+                    names.add(name);
+                    resolvedChildren.put(name, child);
+                }
+            }
+            if ( root && names.isEmpty() ) {
+                names = null;
+            } else {
+                names = Collections.unmodifiableList(names);
+            }
+        }
+    }
+
+    private ITestParamState child(String name) {
+        ITestParamState res = resolvedChildren.get(name);
+        return null == res ? createChild(name) : res;
+    }
+
+    private synchronized ITestParamState createChild(String name) {
+        ITestParamState res = children.get(name);
+        if ( null == res && !children.containsKey(name) ) {
+            ITestParamState[] childLayers = null;
+            for (int i = 0; i < layers.length; i++) {
+                ITestParamState element = null == layers[i] ? null : layers[i].getElement(name);
+                if ( null != element ) {
+                    if ( null == childLayers ) {
+                        childLayers = new ITestParamState[layers.length];
+                    }
+                    childLayers[i] = element;
+                }
+            }
+            res = null == childLayers ? null : new ITestParamOverlayState(childLayers, false);
+            children.put(name, res);
+        }
+        return res;
+    }
+
+    /**
+     * Copies the resolved node into {@link ITestParamStateImpl} fields before the first mutation, elements stay overlays.
+     */
+    private void materialize() {
+        if ( !materialized ) {
+            synchronized (this) {
+                if ( !materialized ) {
+                    doMaterialize();
+                    materialized = true;
+                }
+            }
+        }
+    }
+
+    private void doMaterialize() {
+        resolve();
+        if ( null != names ) {
+            elements = ITestSimpleJsonState.createElements();
+            for (String name : names) {
+                elements.put(name, child(name));
+            }
+        }
+        value = resolvedValue;
+        if ( null != resolvedAttributes ) {
+            for (Map.Entry<String, String> entry : resolvedAttributes.entrySet()) {
+                super.addAttribute(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private boolean isMaterialized() {
+        return materialized;
+    }
+
+    @Override
+    public Integer getSizeParam() {
+        if ( isMaterialized() ) {
+            return super.getSizeParam();
+        }
+        resolve();
+        return null == names ? null : names.size();
+    }
+
+    @Override
+    public Collection<String> getNames() {
+        if ( isMaterialized() ) {
+            return super.getNames();
+        }
+        resolve();
+        return names;
+    }
+
+    @Override
+    public ITestParamState getElement(String name) {
+        if ( isMaterialized() ) {
+            return super.getElement(name);
+        }
+        resolve();
+        return null == names ? null : child(name);
+    }
+
+    @Override
+    public String getValue() {
+        if ( isMaterialized() ) {
+            return super.getValue();
+        }
+        resolve();
+        return resolvedValue;
+    }
+
+    @Override
+    public String getAttribute(String name) {
+        if ( isMaterialized() ) {
+            return super.getAttribute(name);
+        }
+        resolve();
+        return null == resolvedAttributes ? null : resolvedAttributes.get(name);
+    }
+
+    @Override
+    public Iterable<String> getAttributeNames() {
+        if ( isMaterialized() ) {
+            return super.getAttributeNames();
+        }
+        resolve();
+        return null == resolvedAttributes ? null : resolvedAttributes.keySet();
+    }
+
+    @Override
+    public ITestParamStateCursor elements() {
+        return isMaterialized() ? super.elements() : ITestParamStates.byNames(this);
+    }
+
+    @Override
+    public ITestParamStateCursor attributes() {
+        if ( isMaterialized() ) {
+            return super.attributes();
+        }
+        resolve();
+        return ITestParamStates.attributes(resolvedAttributes);
+    }
+
+    @Override
+    public void addAttribute(String key, String value) {
+        materialize();
+        super.addAttribute(key, value);
+    }
+
+    @Override
+    public void addElement(String token, ITestParamState iTestParamsImpl) {
+        materialize();
+        super.addElement(token, iTestParamsImpl);
+    }
+
+    @Override
+    public void setValue(String value) {
+        materialize();
+        super.setValue(value);
+    }
+
+    @Override
+    public void initElements() {
+        materialize();
+        super.initElements();
+    }
+
+    @Override
+    public String toString() {
+        if ( isMaterialized() ) {
+            return super.toString();
+        }
+        resolve();
+        if ( null == names ) {
+            return ":" + resolvedValue;
+        }
+        StringBuilder sb = new StringBuilder().append('{');
+        for (String name : names) {
+            if ( sb.length() > 1 ) {
+                sb.append(", ");
+            }
+            sb.append(name).append('=').append(child(name));
+        }
+        return sb.append('}').toString();
+    }
+}
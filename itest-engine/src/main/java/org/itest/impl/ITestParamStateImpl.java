@@ -1,14 +1,18 @@
 package org.itest.impl;
 
 import org.itest.json.simple.ITestSimpleJsonState;
+import org.itest.param.ITestIndexedState;
 import org.itest.param.ITestParamState;
+import org.itest.param.ITestParamStateCursor;
+import org.itest.param.ITestParamStates;
+import org.itest.param.ITestTraversableState;
+import org.itest.util.param.ITestCompactMap;
 
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Map;
 
-public class ITestParamStateImpl implements ITestParamState {
+public class ITestParamStateImpl implements ITestTraversableState, ITestIndexedState {
     protected Map<String, ITestParamState> elements;
 
     String value;
@@ -18,23 +22,17 @@ public class ITestParamStateImpl implements ITestParamState {
     public ITestParamStateImpl(){}
     public ITestParamStateImpl(ITestParamState paramState) {
         this.value = paramState.getValue();
-        Iterable<String> paramNames = paramState.getNames();
-        if (null != paramNames) {
-            for (String paramName : paramNames) {
-                addElement(paramName, paramState.getElement(paramName));
-            }
+        for (ITestParamStateCursor cursor = ITestParamStates.elements(paramState); cursor.next();) {
+            addElement(cursor.getName(), cursor.getElement());
         }
-        Iterable<String> attributeNames = paramState.getAttributeNames();
-        if ( null != attributeNames ) {
-            for (String attributeName : attributeNames) {
-                addAttribute(attributeName, paramState.getAttribute(attributeName));
-            }
+        for (ITestParamStateCursor cursor = ITestParamStates.attributes(paramState); cursor.next();) {
+            addAttribute(cursor.getName(), cursor.getValue());
         }
     }
 
     public void addAttribute(String key, String value) {
         if(null==attributes){
-            attributes=new HashMap<String, String>();
+            attributes=new ITestCompactMap<String>();
         }
         attributes.put(key,value);
     }
@@ -61,6 +59,16 @@ public class ITestParamStateImpl implements ITestParamState {
         return elements == null ? null : elements.get(name);
     }
 
+    @Override
+    public boolean isIndexed() {
+        return false;
+    }
+
+    @Override
+    public ITestParamState getElement(int index) {
+        return getElement(String.valueOf(index));
+    }
+
     @Override
     public String getValue() {
         return value;
@@ -75,6 +83,16 @@ public class ITestParamStateImpl implements ITestParamState {
         return null == attributes ? null : attributes.keySet();
     }
 
+    @Override
+    public ITestParamStateCursor elements() {
+        return ITestCompactMap.elements(elements);
+    }
+
+    @Override
+    public ITestParamStateCursor attributes() {
+        return ITestCompactMap.attributes(attributes);
+    }
+
     public void setValue(String value){
         this.value=value;
     }
@@ -40,6 +40,7 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
@@ -57,8 +58,11 @@ import org.itest.exception.ITestInitializationException;
 import org.itest.exception.ITestMethodExecutionException;
 import org.itest.exception.ITestPossibleCycleException;
 import org.itest.generator.ITestObjectGenerator;
+import org.itest.impl.util.ITestPackedValues;
 import org.itest.impl.util.ITestUtils;
 import org.itest.param.ITestParamState;
+import org.itest.param.ITestParamStateCursor;
+import org.itest.param.ITestParamStates;
 import org.itest.util.reflection.ITestFieldProvider;
 import org.itest.util.reflection.ITestFieldProvider.FieldHolder;
 import org.itest.util.reflection.ITestTypeTokenProvider;
@@ -133,16 +137,23 @@ public class ITestRandomObjectGeneratorImpl implements ITestObjectGenerator {
         } else if ( clazz.isEnum() ) {
             res = clazz.getEnumConstants()[random.nextInt(clazz.getEnumConstants().length)];
         } else if ( clazz.isArray() ) {
-            int size = random.nextInt(RANDOM_MAX - RANDOM_MIN) + RANDOM_MIN;
-            if ( null != iTestState && iTestState.getSizeParam() != null ) {
-                size = iTestState.getSizeParam();
-            }
-            Object array = Array.newInstance(clazz.getComponentType(), size);
-            for (int i = 0; i < size; i++) {
-                iTestContext.enter(array, String.valueOf(i));
-                Object value = generateRandom((Type) clazz.getComponentType(), iTestContext);
-                Array.set(array, i, value);
-                iTestContext.leave(value);
+            Object array = toPackedArray(iTestState, clazz.getComponentType());
+            if ( null != array ) {
+                for (int i = 0, size = Array.getLength(array); i < size; i++) {
+                    registerElement(array, i, Array.get(array, i), iTestContext);
+                }
+            } else {
+                int size = random.nextInt(RANDOM_MAX - RANDOM_MIN) + RANDOM_MIN;
+                if ( null != iTestState && iTestState.getSizeParam() != null ) {
+                    size = iTestState.getSizeParam();
+                }
+                array = Array.newInstance(clazz.getComponentType(), size);
+                for (int i = 0; i < size; i++) {
+                    ITestContextImpl.enterItem(iTestContext, array, i);
+                    Object value = generateRandom((Type) clazz.getComponentType(), iTestContext);
+                    Array.set(array, i, value);
+                    iTestContext.leave(value);
+                }
             }
             res = array;
         } else {
@@ -218,7 +229,7 @@ public class ITestRandomObjectGeneratorImpl implements ITestObjectGenerator {
             TypeToken componentType = typeToken.getComponentType();
             Object array = Array.newInstance(componentType.getRawType(), size);
             for (int i = 0; i < size; i++) {
-                iTestContext.enter(array, String.valueOf(i));
+                ITestContextImpl.enterItem(iTestContext, array, i);
                 Object value = generateRandom((Type) clazz.getComponentType(), iTestContext);
                 Array.set(array, i, value);
                 iTestContext.leave(value);
@@ -262,11 +273,8 @@ public class ITestRandomObjectGeneratorImpl implements ITestObjectGenerator {
                     iTestContext.replaceCurrentState(state);
                 }
             }
-            Iterable<String> attributes = state.getAttributeNames();
-            if ( null != attributes ) {
-                for (String attribute : attributes) {
-                    res.addAttribute(attribute, state.getAttribute(attribute));
-                }
+            for (ITestParamStateCursor cursor = ITestParamStates.attributes(state); cursor.next();) {
+                res.addAttribute(cursor.getName(), cursor.getValue());
             }
             Collection<String> names = state.getNames();
             if ( null != names ) {
@@ -451,9 +459,9 @@ public class ITestRandomObjectGeneratorImpl implements ITestObjectGenerator {
         TypeToken keyType = resolveParametrizedType(typeToken, Map.class, 0);
         TypeToken valueType = resolveParametrizedType(typeToken, Map.class, 1);
         for (int i = 0; i < size; i++) {
-            iTestContext.enter(m, String.valueOf(i));
+            ITestContextImpl.enterItem(iTestContext, m, i);
             iTestContext.enter("Map.Entry", "key");
-            ITestParamState eITestState = iTestState == null ? null : iTestState.getElement(String.valueOf(i));
+            ITestParamState eITestState = iTestState == null ? null : ITestParamStates.getElement(iTestState, i);
             Object key = generateRandom(keyType.getType(), iTestContext);
             iTestContext.leave(key);
             iTestContext.enter("Map.Entry", "value");
@@ -499,8 +507,17 @@ public class ITestRandomObjectGeneratorImpl implements ITestObjectGenerator {
         }
 
         TypeToken elementType = resolveParametrizedType(typeToken, Collection.class, 0);
+        Object packed = ITestPackedValues.getPrimitiveArray(iTestState, iTestConfig.getITestValueConverter());
+        List<Object> values = null == packed ? null : ITestPackedValues.toList(packed, elementType.getRawType());
+        if ( null != values ) {
+            col.addAll(values);
+            for (int i = 0; i < values.size(); i++) {
+                registerElement(col, i, values.get(i), iTestContext);
+            }
+            return col;
+        }
         for (int i = 0; i < size; i++) {
-            iTestContext.enter(col, String.valueOf(i));
+            ITestContextImpl.enterItem(iTestContext, col, i);
             Object value;
             value = generateRandom(elementType.getType(), iTestContext);
             col.add(value);
@@ -509,6 +526,22 @@ public class ITestRandomObjectGeneratorImpl implements ITestObjectGenerator {
         return col;
     }
 
+    /**
+     * @return array filled in bulk from packed numeric param or null if the param is not packed or its values need element by element conversion
+     */
+    private Object toPackedArray(ITestParamState iTestState, Class<?> componentType) {
+        Object packed = ITestPackedValues.getPrimitiveArray(iTestState, iTestConfig.getITestValueConverter());
+        return null == packed ? null : ITestPackedValues.toArray(packed, componentType);
+    }
+
+    /**
+     * Registers element filled in bulk, so it can be referenced by @ref.
+     */
+    private static void registerElement(Object owner, int index, Object value, ITestContext iTestContext) {
+        ITestContextImpl.enterItem(iTestContext, owner, index);
+        iTestContext.leave(value);
+    }
+
     private static Constructor<?> getConstructor(Class<?> clazz) {
         Constructor<?> res;
         Constructor<?>[] constructors = clazz.getDeclaredConstructors();
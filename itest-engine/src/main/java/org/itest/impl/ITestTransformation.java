@@ -0,0 +1,122 @@
+package org.itest.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.itest.ITestConstants;
+import org.itest.exception.ITestException;
+import org.itest.param.ITestParamState;
+
+/**
+ * Compiled initRef transformation "target:path=source:path": the state found under the source path is placed under the target path. Empty
+ * transformation gives the state itself. Transformations are compiled once and shared.
+ */
+public class ITestTransformation {
+
+    public static final ITestTransformation EMPTY = new ITestTransformation(new String[0], new String[0]);
+
+    private static final ConcurrentMap<String, ITestTransformation> COMPILED = new ConcurrentHashMap<String, ITestTransformation>();
+
+    private final String[] target;
+
+    private final String[] source;
+
+    private ITestTransformation(String[] target, String[] source) {
+        this.target = target;
+        this.source = source;
+    }
+
+    public static ITestTransformation compile(String transformation) {
+        if ( 0 == transformation.length() ) {
+            return EMPTY;
+        }
+        ITestTransformation res = COMPILED.get(transformation);
+        if ( null == res ) {
+            res = parse(transformation);
+            ITestTransformation prev = COMPILED.putIfAbsent(transformation, res);
+            if ( null != prev ) {
+                res = prev;
+            }
+        }
+        return res;
+    }
+
+    public static ITestTransformation[] compile(String[] transformations) {
+        ITestTransformation[] res = new ITestTransformation[transformations.length];
+        for (int i = 0; i < transformations.length; i++) {
+            res[i] = compile(transformations[i]);
+        }
+        return res;
+    }
+
+    /**
+     * Path elements are separated with {@link ITestConstants#ASSIGN_SEPARATOR}, empty ones are skipped. {@link ITestConstants#ASSIGN} splits
+     * target from source, further ones are source path elements.
+     */
+    private static ITestTransformation parse(String transformation) {
+        List<String> target = null;
+        List<String> tokens = new ArrayList<String>();
+        char separator = ITestConstants.ASSIGN_SEPARATOR.charAt(0);
+        char assign = ITestConstants.ASSIGN.charAt(0);
+        int start = 0;
+        for (int i = 0, length = transformation.length(); i <= length; i++) {
+            char c = i == length ? separator : transformation.charAt(i);
+            if ( c == separator || c == assign ) {
+                if ( i > start ) {
+                    tokens.add(transformation.substring(start, i));
+                }
+                if ( c == assign ) {
+                    if ( null == target ) {
+                        target = tokens;
+                        tokens = new ArrayList<String>();
+                    } else {
+                        tokens.add(ITestConstants.ASSIGN);
+                    }
+                }
+                start = i + 1;
+            }
+        }
+        if ( null == target || target.isEmpty() ) {
+            throw new ITestException("Missing target path in transformation: " + transformation);
+        }
+        return new ITestTransformation(target.toArray(new String[target.size()]), tokens.toArray(new String[tokens.size()]));
+    }
+
+    /**
+     * @return state with the source element of itestParam under the target path
+     */
+    public ITestParamState apply(ITestParamState itestParam) {
+        if ( 0 == target.length ) {
+            return itestParam;
+        }
+        for (String token : source) {
+            itestParam = itestParam.getElement(token);
+        }
+        ITestParamStateImpl res = new ITestParamStateImpl();
+        ITestParamStateImpl state = res;
+        for (int i = 0; i < target.length - 1; i++) {
+            ITestParamStateImpl element = new ITestParamStateImpl();
+            state.addElement(target[i], element);
+            state = element;
+        }
+        state.addElement(target[target.length - 1], itestParam);
+        return res;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (String token : target) {
+            sb.append(sb.length() > 0 ? ITestConstants.ASSIGN_SEPARATOR : "").append(token);
+        }
+        if ( target.length > 0 ) {
+            sb.append(ITestConstants.ASSIGN);
+        }
+        for (int i = 0; i < source.length; i++) {
+            sb.append(i > 0 ? ITestConstants.ASSIGN_SEPARATOR : "").append(source[i]);
+        }
+        return sb.toString();
+    }
+}
@@ -1,39 +1,101 @@
 package org.itest.impl.declaration;
 
 import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.itest.ITestConfig;
 import org.itest.declaration.ITest;
 import org.itest.declaration.ITestDeclarationProvider;
 import org.itest.declaration.ITestRef;
 import org.itest.declaration.ITests;
+import org.itest.exception.ITestParamDefinitionException;
+import org.itest.impl.index.ITestIndexLoader;
+import org.itest.impl.util.ITestUtils;
+import org.itest.json.simple.ITestSimpleJsonParamParserImpl;
 import org.itest.param.ITestParamState;
+import org.itest.util.index.ITestIndexDeclarations;
+
+import com.google.common.cache.CacheBuilder;
 
 public class ITestDeclarationProviderAnnotationImpl implements ITestDeclarationProvider {
 
+    private static final ITests NO_DECLARATION = new ITests() {
+        @Override
+        public ITest[] value() {
+            return new ITest[0];
+        }
+    };
+
     private final ITestConfig iTestConfig;
 
+    /**
+     * Declarations are cached per declaring class, read without a global lock. The class is weakly referenced and the declarations are softly
+     * referenced: they point back to the class through methods and initRef classes, so a class loader stays reachable until its declarations
+     * are cleared when memory runs short.
+     */
+    private final ConcurrentMap<Class<?>, ClassDeclarations> declarationCache = CacheBuilder.newBuilder().weakKeys().softValues()
+            .<Class<?>, ClassDeclarations> build().asMap();
+
     public ITestDeclarationProviderAnnotationImpl(ITestConfig iTestConfig) {
         this.iTestConfig = iTestConfig;
     }
 
     @Override
     public ITests getITestDeclaration(Method m) {
-        ITests res = null;
-        if ( m.isAnnotationPresent(org.itest.annotation.ITests.class) ) {
-            res = new ITestsImpl(m.getAnnotation(org.itest.annotation.ITests.class));
+        ClassDeclarations classDeclarations = getClassDeclarations(m.getDeclaringClass());
+        ITests res = classDeclarations.methods.get(m);
+        if ( null == res ) {
+            res = NO_DECLARATION;
+            if ( m.isAnnotationPresent(org.itest.annotation.ITests.class) ) {
+                res = new ITestsImpl(m, m.getAnnotation(org.itest.annotation.ITests.class), classDeclarations.index);
+            }
+            ITests cached = classDeclarations.methods.putIfAbsent(m, res);
+            if ( null != cached ) {
+                res = cached;
+            }
+        }
+        return NO_DECLARATION == res ? null : res;
+    }
+
+    private ClassDeclarations getClassDeclarations(Class<?> clazz) {
+        ClassDeclarations res = declarationCache.get(clazz);
+        if ( null == res ) {
+            // index is decoded to the states the simple json parser gives, other parsers parse the annotation
+            res = new ClassDeclarations(iTestConfig.getITestParamParser() instanceof ITestSimpleJsonParamParserImpl ? ITestIndexLoader
+                    .loadDeclarations(clazz) : null);
+            ClassDeclarations cached = declarationCache.putIfAbsent(clazz, res);
+            if ( null != cached ) {
+                res = cached;
+            }
         }
         return res;
     }
 
+    static class ClassDeclarations {
+        private final ConcurrentMap<Method, ITests> methods = new ConcurrentHashMap<Method, ITests>();
+
+        /**
+         * declarations pre-parsed by itest-processor, null if the class was not indexed
+         */
+        private final ITestIndexDeclarations index;
+
+        ClassDeclarations(ITestIndexDeclarations index) {
+            this.index = index;
+        }
+    }
+
     class ITestsImpl implements ITests {
 
         private final ITest[] value;
 
-        public ITestsImpl(org.itest.annotation.ITests annotation) {
+        public ITestsImpl(Method method, org.itest.annotation.ITests annotation, ITestIndexDeclarations index) {
             value = new ITest[annotation.value().length];
+            String signature = null == index ? null : ITestUtils.getMethodSingnature(method, true);
             for (int i = 0; i < value.length; i++) {
-                value[i] = new ITestImpl(annotation.value()[i]);
+                org.itest.annotation.ITest iTest = annotation.value()[i];
+                boolean indexed = null != index && index.isCurrent(signature, i, iTest.init(), iTest.verify());
+                value[i] = new ITestImpl(method, iTest, indexed ? index : null, signature, i);
             }
         }
 
@@ -44,24 +106,57 @@ public class ITestDeclarationProviderAnnotationImpl implements ITestDeclarationP
 
     }
 
+    /**
+     * init and verify are parsed (or decoded from the index) on first access only, so declarations which are merely referenced (or never verified) do
+     * not pay for parsing.
+     */
     class ITestImpl implements ITest {
 
+        private final Method method;
+
+        private final org.itest.annotation.ITest iTest;
+
+        private final ITestIndexDeclarations index;
+
+        private final String signature;
+
+        private final int position;
+
         private final String name;
 
         private final ITestRef[] initRef;
 
-        private final ITestParamState init;
+        private volatile boolean initParsed;
 
-        private final ITestParamState verify;
+        private ITestParamState init;
 
-        public ITestImpl(org.itest.annotation.ITest iTest) {
+        private volatile boolean verifyParsed;
+
+        private ITestParamState verify;
+
+        /**
+         * @param index
+         *            current index of the itest at the position of the method with the signature, null to parse the annotation
+         */
+        public ITestImpl(Method method, org.itest.annotation.ITest iTest, ITestIndexDeclarations index, String signature, int position) {
+            this.method = method;
+            this.iTest = iTest;
+            this.index = index;
+            this.signature = signature;
+            this.position = position;
             name = iTest.name();
             initRef = new ITestRef[iTest.initRef().length];
             for (int i = 0; i < initRef.length; i++) {
                 initRef[i] = new ITestRefImpl(iTest.initRef()[i]);
             }
-            init = iTestConfig.getITestParamParser().parse(iTest.init());
-            verify = iTestConfig.getITestParamParser().parse(iTest.verify());
+        }
+
+        private ITestParamState parse(String params) {
+            try {
+                return iTestConfig.getITestParamParser().parse(params);
+            } catch (RuntimeException e) {
+                throw new ITestParamDefinitionException(method, iTest, params, e);
+            }
         }
 
         @Override
@@ -76,11 +171,27 @@ public class ITestDeclarationProviderAnnotationImpl implements ITestDeclarationP
 
         @Override
         public ITestParamState init() {
+            if ( !initParsed ) {
+                synchronized (this) {
+                    if ( !initParsed ) {
+                        init = null == index ? parse(iTest.init()) : index.getInit(signature, position);
+                        initParsed = true;
+                    }
+                }
+            }
             return init;
         }
 
         @Override
         public ITestParamState verify() {
+            if ( !verifyParsed ) {
+                synchronized (this) {
+                    if ( !verifyParsed ) {
+                        verify = null == index ? parse(iTest.verify()) : index.getVerify(signature, position);
+                        verifyParsed = true;
+                    }
+                }
+            }
             return verify;
         }
     }
@@ -14,6 +14,7 @@ import org.itest.exception.ITestDeclarationNotFoundException;
 import org.itest.exception.ITestInitializationException;
 import org.itest.impl.util.ITestUtils;
 import org.itest.param.ITestParamState;
+import org.itest.param.ITestParamStates;
 
 public class ITestDeclarationProviderExternalFileImpl implements ITestDeclarationProvider {
 
@@ -101,12 +102,12 @@ public class ITestDeclarationProviderExternalFileImpl implements ITestDeclaratio
             ITestParamState initRef = element.getElement(INIT_REF);
             if ( null != initRef ) {
                 Collection<ITestRef> iTestRefCol = new ArrayList<ITestRef>();
-                if ( null == initRef.getElement("0") ) {
+                if ( null == ITestParamStates.getElement(initRef, 0) ) {
                     this.initRef = new ITestRef[] { new ITestRefImpl(initRef) };
                 } else {
                     // order matters
                     for (int i = 0;; i++) {
-                        ITestParamState initRefParam = initRef.getElement(String.valueOf(i));
+                        ITestParamState initRefParam = ITestParamStates.getElement(initRef, i);
                         if ( null == initRefParam ) {
                             break;
                         }
@@ -169,12 +170,12 @@ public class ITestDeclarationProviderExternalFileImpl implements ITestDeclaratio
             }
             ITestParamState assignParam = initRefParam.getElement(ASSIGN);
             if ( null != assignParam ) {
-                if ( null == assignParam.getElement("0") ) {
+                if ( null == ITestParamStates.getElement(assignParam, 0) ) {
                     assign = new String[] { assignParam.getValue() };
                 } else {
                     Collection<String> assignCol = new ArrayList<String>();
                     for (int i = 0;; i++) {
-                        ITestParamState assignP = assignParam.getElement(String.valueOf(i));
+                        ITestParamState assignP = ITestParamStates.getElement(assignParam, i);
                         if ( null == assignP ) {
                             break;
                         }
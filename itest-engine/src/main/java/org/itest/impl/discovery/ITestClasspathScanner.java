@@ -0,0 +1,327 @@
+package org.itest.impl.discovery;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import org.itest.ITestConstants;
+import org.itest.exception.ITestException;
+
+/**
+ * Finds itest classes under given packages without loading them. Class files are checked for {@link org.itest.annotation.ITests} usage by reading
+ * their constant pool, *.itest.json resources are collected and mapped to the classes they belong to (file name up to the first dot). Directories
+ * and jars are scanned in parallel.
+ */
+public class ITestClasspathScanner {
+
+    private static final String CLASS_SUFFIX = ".class";
+
+    private static final byte[] ITESTS_DESCRIPTOR = ascii("Lorg/itest/annotation/ITests;");
+
+    private final ClassLoader classLoader;
+
+    private final int threads;
+
+    public ITestClasspathScanner(ClassLoader classLoader) {
+        this(classLoader, Runtime.getRuntime().availableProcessors());
+    }
+
+    public ITestClasspathScanner(ClassLoader classLoader, int threads) {
+        this.classLoader = classLoader;
+        this.threads = threads;
+    }
+
+    /**
+     * @return classes declaring itests or having itest definition files, ready for {@link org.itest.ITestExecutor#performTestsFor(int, Class...)}
+     */
+    public Class<?>[] findITestClasses(String... packageNames) {
+        Collection<String> classNames = scan(packageNames).getCandidateClassNames();
+        List<Class<?>> res = new ArrayList<Class<?>>(classNames.size());
+        for (String className : classNames) {
+            try {
+                res.add(Class.forName(className, false, classLoader));
+            } catch (ClassNotFoundException e) {
+                throw new ITestException("Class " + className + " found but can't be loaded.", e);
+            } catch (LinkageError e) {
+                throw new ITestException("Class " + className + " found but can't be loaded.", e);
+            }
+        }
+        return res.toArray(new Class<?>[res.size()]);
+    }
+
+    public ScanResult scan(String... packageNames) {
+        final ScanResult res = new ScanResult();
+        Map<File, Set<String>> jars = new LinkedHashMap<File, Set<String>>();
+        List<File> dirs = new ArrayList<File>();
+        List<String> dirPaths = new ArrayList<String>();
+        try {
+            for (String packageName : packageNames) {
+                String path = packageName.replace('.', '/');
+                Enumeration<URL> urls = classLoader.getResources(path);
+                while (urls.hasMoreElements()) {
+                    URL url = urls.nextElement();
+                    if ( "file".equals(url.getProtocol()) ) {
+                        dirs.add(new File(url.toURI()));
+                        dirPaths.add(path);
+                    } else if ( "jar".equals(url.getProtocol()) ) {
+                        File jar = jarFile(url);
+                        Set<String> prefixes = jars.get(jar);
+                        if ( null == prefixes ) {
+                            prefixes = new TreeSet<String>();
+                            jars.put(jar, prefixes);
+                        }
+                        prefixes.add(path.length() == 0 ? path : path + '/');
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new ITestException("Error scanning classpath.", e);
+        } catch (URISyntaxException e) {
+            throw new ITestException("Error scanning classpath.", e);
+        }
+        ExecutorService executorService = Executors.newFixedThreadPool(Math.max(1, threads));
+        try {
+            List<Future<?>> futures = new ArrayList<Future<?>>();
+            for (int i = 0; i < dirs.size(); i++) {
+                submitDirectory(executorService, dirs.get(i), dirPaths.get(i), res, futures);
+            }
+            for (final Map.Entry<File, Set<String>> jar : jars.entrySet()) {
+                futures.add(executorService.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws IOException {
+                        scanJar(jar.getKey(), jar.getValue(), res);
+                        return null;
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ITestException("Classpath scanning interrupted.", e);
+        } catch (ExecutionException e) {
+            throw new ITestException("Error scanning classpath.", e.getCause());
+        } finally {
+            executorService.shutdownNow();
+        }
+        return res;
+    }
+
+    private void submitDirectory(ExecutorService executorService, final File dir, final String path, final ScanResult res, List<Future<?>> futures) {
+        final File[] files = dir.listFiles();
+        if ( null == files ) {
+            return;
+        }
+        futures.add(executorService.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws IOException {
+                for (File file : files) {
+                    if ( file.isFile() ) {
+                        String name = file.getName();
+                        if ( name.endsWith(CLASS_SUFFIX) ) {
+                            InputStream is = new FileInputStream(file);
+                            try {
+                                checkClass(child(path, name), is, res);
+                            } finally {
+                                is.close();
+                            }
+                        } else if ( name.endsWith(ITestConstants.DEFINITION_SUFFIX) || name.endsWith(ITestConstants.BINARY_DEFINITION_SUFFIX) ) {
+                            res.definitionResources.add(child(path, name));
+                        }
+                    }
+                }
+                return null;
+            }
+        }));
+        for (File file : files) {
+            if ( file.isDirectory() ) {
+                submitDirectory(executorService, file, child(path, file.getName()), res, futures);
+            }
+        }
+    }
+
+    private void scanJar(File file, Set<String> prefixes, ScanResult res) throws IOException {
+        JarFile jar = new JarFile(file);
+        try {
+            Enumeration<JarEntry> entries = jar.entries();
+            while (entries.hasMoreElements()) {
+                JarEntry entry = entries.nextElement();
+                String name = entry.getName();
+                if ( entry.isDirectory() || !startsWithAny(name, prefixes) ) {
+                    continue;
+                }
+                if ( name.endsWith(CLASS_SUFFIX) ) {
+                    InputStream is = jar.getInputStream(entry);
+                    try {
+                        checkClass(name, is, res);
+                    } finally {
+                        is.close();
+                    }
+                } else if ( name.endsWith(ITestConstants.DEFINITION_SUFFIX) || name.endsWith(ITestConstants.BINARY_DEFINITION_SUFFIX) ) {
+                    res.definitionResources.add(name);
+                }
+            }
+        } finally {
+            jar.close();
+        }
+    }
+
+    private static void checkClass(String resourceName, InputStream is, ScanResult res) throws IOException {
+        if ( resourceName.endsWith("package-info.class") || resourceName.endsWith("module-info.class") ) {
+            return;
+        }
+        if ( usesITests(new DataInputStream(new BufferedInputStream(is, 4096))) ) {
+            res.iTestClassNames.add(resourceName.substring(0, resourceName.length() - CLASS_SUFFIX.length()).replace('/', '.'));
+        }
+    }
+
+    /**
+     * Walks the constant pool looking for ITests annotation descriptor. Unknown constant pool entries make the class a candidate.
+     */
+    static boolean usesITests(DataInputStream in) throws IOException {
+        if ( 0xCAFEBABE != in.readInt() ) {
+            return false;
+        }
+        in.skipBytes(4);
+        int count = in.readUnsignedShort();
+        byte[] buffer = new byte[ITESTS_DESCRIPTOR.length];
+        for (int i = 1; i < count; i++) {
+            int tag = in.readUnsignedByte();
+            switch (tag) {
+                case 1:
+                    int length = in.readUnsignedShort();
+                    if ( length == buffer.length ) {
+                        in.readFully(buffer);
+                        if ( Arrays.equals(buffer, ITESTS_DESCRIPTOR) ) {
+                            return true;
+                        }
+                    } else {
+                        in.skipBytes(length);
+                    }
+                    break;
+                case 7:
+                case 8:
+                case 16:
+                case 19:
+                case 20:
+                    in.skipBytes(2);
+                    break;
+                case 15:
+                    in.skipBytes(3);
+                    break;
+                case 3:
+                case 4:
+                case 9:
+                case 10:
+                case 11:
+                case 12:
+                case 17:
+                case 18:
+                    in.skipBytes(4);
+                    break;
+                case 5:
+                case 6:
+                    in.skipBytes(8);
+                    i++;
+                    break;
+                default:
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    private static String child(String path, String name) {
+        return path.length() == 0 ? name : path + '/' + name;
+    }
+
+    private static boolean startsWithAny(String name, Set<String> prefixes) {
+        for (String prefix : prefixes) {
+            if ( name.startsWith(prefix) ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static File jarFile(URL url) throws IOException, URISyntaxException {
+        URLConnection connection = url.openConnection();
+        if ( connection instanceof JarURLConnection ) {
+            connection.setUseCaches(false);
+            // URI decodes %XX escapes only, URLDecoder would turn '+' of the path into space
+            return new File(((JarURLConnection) connection).getJarFileURL().toURI());
+        }
+        throw new ITestException("Unsupported classpath entry: " + url);
+    }
+
+    private static byte[] ascii(String s) {
+        try {
+            return s.getBytes("US-ASCII");
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public class ScanResult {
+        private final Set<String> iTestClassNames = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+        private final Set<String> definitionResources = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+        /**
+         * @return names of classes with @ITests annotated methods
+         */
+        public SortedSet<String> getITestClassNames() {
+            return new TreeSet<String>(iTestClassNames);
+        }
+
+        /**
+         * @return *.itest.json and *.itest.bin resource names
+         */
+        public SortedSet<String> getDefinitionResources() {
+            return new TreeSet<String>(definitionResources);
+        }
+
+        /**
+         * @return classes with @ITests annotated methods and existing classes itest definition files belong to
+         */
+        public SortedSet<String> getCandidateClassNames() {
+            SortedSet<String> res = getITestClassNames();
+            for (String resource : definitionResources) {
+                int slash = resource.lastIndexOf('/');
+                String classResource = resource.substring(0, resource.indexOf('.', slash)) + CLASS_SUFFIX;
+                if ( null != classLoader.getResource(classResource) ) {
+                    res.add(classResource.substring(0, classResource.length() - CLASS_SUFFIX.length()).replace('/', '.'));
+                }
+            }
+            return res;
+        }
+    }
+}
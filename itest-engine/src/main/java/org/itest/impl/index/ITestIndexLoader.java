@@ -0,0 +1,96 @@
+package org.itest.impl.index;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.itest.ITestConstants;
+import org.itest.exception.ITestException;
+import org.itest.util.index.ITestIndexDeclarations;
+
+/**
+ * Reads indexes generated at compile time by itest-processor. Lets tests be run for all indexed classes without scanning the classpath and
+ * declarations be taken pre-parsed from the index.
+ */
+public class ITestIndexLoader {
+
+    /**
+     * @return all classes with itests listed in {@value org.itest.ITestConstants#INDEX_RESOURCE} resources visible to the class loader (classes are
+     *         not initialized)
+     */
+    public static Class<?>[] loadIndexedClasses(ClassLoader classLoader) {
+        Set<String> classNames = new LinkedHashSet<String>();
+        try {
+            Enumeration<URL> resources = classLoader.getResources(ITestConstants.INDEX_RESOURCE);
+            while (resources.hasMoreElements()) {
+                for (String indexClassName : readLines(resources.nextElement())) {
+                    Class<?> indexClass = Class.forName(indexClassName, true, classLoader);
+                    for (String className : (String[]) indexClass.getField("CLASSES").get(null)) {
+                        classNames.add(className);
+                    }
+                }
+            }
+            List<Class<?>> res = new ArrayList<Class<?>>(classNames.size());
+            for (String className : classNames) {
+                try {
+                    res.add(Class.forName(className, false, classLoader));
+                } catch (ClassNotFoundException e) {
+                    // removed after it was indexed, its sources were not compiled again
+                }
+            }
+            return res.toArray(new Class<?>[res.size()]);
+        } catch (ITestException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ITestException("Error loading itest index.", e);
+        }
+    }
+
+    /**
+     * @return declarations indexed for the class or null if the class was compiled without itest-processor
+     */
+    public static ITestIndexDeclarations loadDeclarations(Class<?> clazz) {
+        ClassLoader classLoader = clazz.getClassLoader();
+        if ( null == classLoader ) {
+            return null;
+        }
+        String resourceName = clazz.getName().replace('.', '/') + ITestConstants.INDEX_DECLARATION_SUFFIX;
+        InputStream is = classLoader.getResourceAsStream(resourceName);
+        if ( null == is ) {
+            return null;
+        }
+        try {
+            try {
+                return ITestIndexDeclarations.readFrom(is);
+            } finally {
+                is.close();
+            }
+        } catch (IOException e) {
+            throw new ITestException("Error reading " + resourceName, e);
+        }
+    }
+
+    private static List<String> readLines(URL url) throws IOException {
+        List<String> res = new ArrayList<String>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(url.openStream(), "UTF-8"));
+        try {
+            String line;
+            while (null != (line = reader.readLine())) {
+                line = line.trim();
+                if ( line.length() > 0 ) {
+                    res.add(line);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return res;
+    }
+}
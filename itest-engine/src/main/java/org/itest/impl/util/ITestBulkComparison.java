@@ -0,0 +1,156 @@
+package org.itest.impl.util;
+
+import java.lang.reflect.Array;
+import java.util.Arrays;
+
+/**
+ * Whole primitive arrays and char sequences compared at once, with the first mismatching index and a few elements around it for the report.
+ * Floating point elements are equal as their boxed values are (Arrays.equals).
+ */
+public class ITestBulkComparison {
+
+    /**
+     * elements shown before and after the mismatch
+     */
+    static final int WINDOW = 4;
+
+    /**
+     * @return index of the first mismatch of two primitive arrays of the same type and length, -1 if they are equal
+     */
+    public static int mismatch(Object expected, Object actual) {
+        return mismatch(expected, actual, 0);
+    }
+
+    /**
+     * @return index of the first mismatch at or after from of two primitive arrays of the same type and length, -1 if there is none
+     */
+    public static int mismatch(Object expected, Object actual, int from) {
+        if ( expected instanceof int[] ) {
+            int[] e = (int[]) expected, a = (int[]) actual;
+            if ( 0 != from || !Arrays.equals(e, a) ) {
+                for (int i = from; i < e.length; i++) {
+                    if ( e[i] != a[i] ) {
+                        return i;
+                    }
+                }
+            }
+        } else if ( expected instanceof long[] ) {
+            long[] e = (long[]) expected, a = (long[]) actual;
+            if ( 0 != from || !Arrays.equals(e, a) ) {
+                for (int i = from; i < e.length; i++) {
+                    if ( e[i] != a[i] ) {
+                        return i;
+                    }
+                }
+            }
+        } else if ( expected instanceof double[] ) {
+            double[] e = (double[]) expected, a = (double[]) actual;
+            if ( 0 != from || !Arrays.equals(e, a) ) {
+                for (int i = from; i < e.length; i++) {
+                    if ( Double.doubleToLongBits(e[i]) != Double.doubleToLongBits(a[i]) ) {
+                        return i;
+                    }
+                }
+            }
+        } else if ( expected instanceof float[] ) {
+            float[] e = (float[]) expected, a = (float[]) actual;
+            if ( 0 != from || !Arrays.equals(e, a) ) {
+                for (int i = from; i < e.length; i++) {
+                    if ( Float.floatToIntBits(e[i]) != Float.floatToIntBits(a[i]) ) {
+                        return i;
+                    }
+                }
+            }
+        } else if ( expected instanceof byte[] ) {
+            byte[] e = (byte[]) expected, a = (byte[]) actual;
+            if ( 0 != from || !Arrays.equals(e, a) ) {
+                for (int i = from; i < e.length; i++) {
+                    if ( e[i] != a[i] ) {
+                        return i;
+                    }
+                }
+            }
+        } else if ( expected instanceof short[] ) {
+            short[] e = (short[]) expected, a = (short[]) actual;
+            if ( 0 != from || !Arrays.equals(e, a) ) {
+                for (int i = from; i < e.length; i++) {
+                    if ( e[i] != a[i] ) {
+                        return i;
+                    }
+                }
+            }
+        } else if ( expected instanceof char[] ) {
+            char[] e = (char[]) expected, a = (char[]) actual;
+            if ( 0 != from || !Arrays.equals(e, a) ) {
+                for (int i = from; i < e.length; i++) {
+                    if ( e[i] != a[i] ) {
+                        return i;
+                    }
+                }
+            }
+        } else if ( expected instanceof boolean[] ) {
+            boolean[] e = (boolean[]) expected, a = (boolean[]) actual;
+            if ( 0 != from || !Arrays.equals(e, a) ) {
+                for (int i = from; i < e.length; i++) {
+                    if ( e[i] != a[i] ) {
+                        return i;
+                    }
+                }
+            }
+        } else {
+            throw new IllegalArgumentException("Primitive array expected: " + expected);
+        }
+        return -1;
+    }
+
+    /**
+     * @return index of the first mismatch, length of the shorter one if it is a prefix of the other, -1 if they are equal
+     */
+    public static int mismatch(CharSequence expected, CharSequence actual) {
+        int length = Math.min(expected.length(), actual.length());
+        for (int i = 0; i < length; i++) {
+            if ( expected.charAt(i) != actual.charAt(i) ) {
+                return i;
+            }
+        }
+        return expected.length() == actual.length() ? -1 : length;
+    }
+
+    /**
+     * @return elements of the array around the index, like [.., 3, 4, 5, ..]
+     */
+    public static String window(Object array, int index) {
+        int length = Array.getLength(array);
+        int from = Math.max(0, index - WINDOW);
+        int to = Math.min(length, index + WINDOW + 1);
+        StringBuilder sb = new StringBuilder().append('[');
+        if ( from > 0 ) {
+            sb.append(".., ");
+        }
+        for (int i = from; i < to; i++) {
+            sb.append(i > from ? ", " : "").append(Array.get(array, i));
+        }
+        if ( to < length ) {
+            sb.append(", ..");
+        }
+        return sb.append(']').toString();
+    }
+
+    /**
+     * @return chars around the index, like "..abc.."
+     */
+    public static String window(CharSequence sequence, int index) {
+        int from = Math.max(0, index - WINDOW);
+        int to = Math.min(sequence.length(), index + WINDOW + 1);
+        return new StringBuilder().append('"').append(from > 0 ? ".." : "").append(sequence.subSequence(from, to))
+                .append(to < sequence.length() ? ".." : "").append('"').toString();
+    }
+
+    /**
+     * @return message for mismatch at the index of compared arrays
+     */
+    public static String describe(Object expected, Object actual, int index) {
+        return "first mismatch at " + index + " of " + Array.getLength(actual) + ", expected " + window(expected, index) + " actual "
+                + window(actual, index);
+    }
+}
@@ -0,0 +1,118 @@
+package org.itest.impl.util;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Hashes UTF-8 bytes of the appended text as it comes, the text itself is not kept.
+ */
+public class ITestDigestAppendable implements Appendable {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final MessageDigest digest;
+
+    private final byte[] buf = new byte[4096];
+
+    private int length;
+
+    /**
+     * high surrogate waiting for its pair
+     */
+    private char high;
+
+    public ITestDigestAppendable(MessageDigest digest) {
+        this.digest = digest;
+    }
+
+    /**
+     * @param algorithm
+     *            MessageDigest algorithm, also in short form like sha256 or md5
+     */
+    public static MessageDigest getDigest(String algorithm) throws NoSuchAlgorithmException {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            String name = algorithm.toUpperCase();
+            if ( name.startsWith("SHA") && name.length() > 3 && '-' != name.charAt(3) ) {
+                name = "SHA-" + name.substring(3);
+            }
+            return MessageDigest.getInstance(name);
+        }
+    }
+
+    @Override
+    public Appendable append(CharSequence csq) {
+        return append(csq, 0, csq.length());
+    }
+
+    @Override
+    public Appendable append(CharSequence csq, int start, int end) {
+        if ( null == csq ) {
+            csq = "null";
+        }
+        for (int i = start; i < end; i++) {
+            append(csq.charAt(i));
+        }
+        return this;
+    }
+
+    @Override
+    public Appendable append(char c) {
+        if ( length > buf.length - 4 ) {
+            flush();
+        }
+        if ( 0 != high ) {
+            if ( Character.isLowSurrogate(c) ) {
+                int cp = Character.toCodePoint(high, c);
+                high = 0;
+                buf[length++] = (byte) (0xf0 | (cp >> 18));
+                buf[length++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+                buf[length++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+                buf[length++] = (byte) (0x80 | (cp & 0x3f));
+                return this;
+            }
+            high = 0;
+            buf[length++] = '?';
+        }
+        if ( c < 0x80 ) {
+            buf[length++] = (byte) c;
+        } else if ( c < 0x800 ) {
+            buf[length++] = (byte) (0xc0 | (c >> 6));
+            buf[length++] = (byte) (0x80 | (c & 0x3f));
+        } else if ( Character.isHighSurrogate(c) ) {
+            high = c;
+        } else if ( Character.isLowSurrogate(c) ) {
+            // unpaired, as String.getBytes("UTF-8") writes it
+            buf[length++] = '?';
+        } else {
+            buf[length++] = (byte) (0xe0 | (c >> 12));
+            buf[length++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+            buf[length++] = (byte) (0x80 | (c & 0x3f));
+        }
+        return this;
+    }
+
+    private void flush() {
+        digest.update(buf, 0, length);
+        length = 0;
+    }
+
+    /**
+     * @return hex of the digest of all appended text
+     */
+    public String toHex() {
+        if ( 0 != high ) {
+            high = 0;
+            append('?');
+        }
+        flush();
+        byte[] hash = digest.digest();
+        char[] res = new char[hash.length * 2];
+        for (int i = 0; i < hash.length; i++) {
+            res[2 * i] = HEX[(hash[i] >> 4) & 0xf];
+            res[2 * i + 1] = HEX[hash[i] & 0xf];
+        }
+        return new String(res);
+    }
+}
@@ -0,0 +1,122 @@
+package org.itest.impl.util;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.itest.impl.ITestValueConverterImpl;
+import org.itest.param.ITestParamState;
+import org.itest.param.ITestPrimitiveArrayState;
+import org.itest.param.ITestValueConverter;
+
+/**
+ * Bulk conversion of {@link ITestPrimitiveArrayState} values, giving the same values {@link ITestValueConverterImpl} gives for their strings.
+ * Conversions the converter does differently or fails on (out of range, fractions to integers) are not supported here, callers fall back to element
+ * by element processing.
+ */
+public class ITestPackedValues {
+
+    private static final Object UNSUPPORTED = new Object();
+
+    /**
+     * @return long[] or double[] of the state if it is packed and values are converted by the default converter, null otherwise
+     */
+    public static Object getPrimitiveArray(ITestParamState state, ITestValueConverter converter) {
+        if ( state instanceof ITestPrimitiveArrayState && ITestValueConverterImpl.class == converter.getClass() ) {
+            return ((ITestPrimitiveArrayState) state).getPrimitiveArray();
+        }
+        return null;
+    }
+
+    /**
+     * @return array of the component type or null if some value can't be converted in bulk
+     */
+    public static Object toArray(Object packed, Class<?> componentType) {
+        int size = Array.getLength(packed);
+        if ( long.class == componentType && packed instanceof long[] ) {
+            return ((long[]) packed).clone();
+        } else if ( double.class == componentType && packed instanceof double[] ) {
+            return ((double[]) packed).clone();
+        } else if ( int.class == componentType && packed instanceof long[] ) {
+            long[] longs = (long[]) packed;
+            int[] res = new int[size];
+            for (int i = 0; i < size; i++) {
+                if ( longs[i] != (int) longs[i] ) {
+                    return null;
+                }
+                res[i] = (int) longs[i];
+            }
+            return res;
+        }
+        Object res = Array.newInstance(componentType, size);
+        for (int i = 0; i < size; i++) {
+            Object value = convert(packed, i, componentType);
+            if ( UNSUPPORTED == value ) {
+                return null;
+            }
+            Array.set(res, i, value);
+        }
+        return res;
+    }
+
+    /**
+     * @return boxed values of the element type or null if some value can't be converted in bulk
+     */
+    public static List<Object> toList(Object packed, Class<?> elementType) {
+        int size = Array.getLength(packed);
+        List<Object> res = new ArrayList<Object>(size);
+        for (int i = 0; i < size; i++) {
+            Object value = convert(packed, i, elementType);
+            if ( UNSUPPORTED == value ) {
+                return null;
+            }
+            res.add(value);
+        }
+        return res;
+    }
+
+    /**
+     * @return expected value converted to the class of actual value, or null if actual value is null or the conversion is not supported
+     */
+    public static Object getExpected(Object packed, int index, Object actual) {
+        if ( null == actual ) {
+            return null;
+        }
+        Object res = convert(packed, index, actual.getClass());
+        return UNSUPPORTED == res ? null : res;
+    }
+
+    /**
+     * @return value as it was in the definition
+     */
+    public static String toString(Object packed, int index) {
+        return packed instanceof long[] ? Long.toString(((long[]) packed)[index]) : Double.toString(((double[]) packed)[index]);
+    }
+
+    private static Object convert(Object packed, int index, Class<?> type) {
+        if ( packed instanceof long[] ) {
+            long value = ((long[]) packed)[index];
+            if ( Long.class == type || long.class == type ) {
+                return Long.valueOf(value);
+            } else if ( Integer.class == type || int.class == type ) {
+                return value == (int) value ? Integer.valueOf((int) value) : UNSUPPORTED;
+            } else if ( Double.class == type || double.class == type ) {
+                return Double.valueOf(value);
+            } else if ( Float.class == type || float.class == type ) {
+                return Float.valueOf(value);
+            } else if ( Byte.class == type || byte.class == type ) {
+                return value == (byte) value ? Byte.valueOf((byte) value) : UNSUPPORTED;
+            } else if ( String.class == type || Object.class == type ) {
+                return Long.toString(value);
+            }
+        } else {
+            double value = ((double[]) packed)[index];
+            if ( Double.class == type || double.class == type ) {
+                return Double.valueOf(value);
+            } else if ( String.class == type || Object.class == type ) {
+                return Double.toString(value);
+            }
+        }
+        return UNSUPPORTED;
+    }
+}
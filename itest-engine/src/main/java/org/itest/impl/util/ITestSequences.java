@@ -0,0 +1,75 @@
+package org.itest.impl.util;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Iterator;
+
+import org.itest.exception.ITestMethodExecutionException;
+
+/**
+ * Results read element by element: iterators, iterables other than collections and java.util.stream streams. Streams are used by reflection,
+ * the sources stay compatible with Java 6.
+ */
+public class ITestSequences {
+
+    private static final Method STREAM_ITERATOR;
+
+    private static final Method STREAM_CLOSE;
+
+    static {
+        Method iterator = null, close = null;
+        try {
+            Class<?> baseStream = Class.forName("java.util.stream.BaseStream");
+            iterator = baseStream.getMethod("iterator");
+            close = baseStream.getMethod("close");
+        } catch (Exception e) {
+            // no streams before Java 8
+        }
+        STREAM_ITERATOR = iterator;
+        STREAM_CLOSE = close;
+    }
+
+    public static boolean isSequence(Object object) {
+        return object instanceof Iterator || (object instanceof Iterable && !(object instanceof Collection)) || isStream(object);
+    }
+
+    public static boolean isStream(Object object) {
+        return null != STREAM_ITERATOR && STREAM_ITERATOR.getDeclaringClass().isInstance(object);
+    }
+
+    /**
+     * @return the iterator itself, a new iterator of the iterable or of the stream
+     */
+    public static Iterator<?> iterator(Object sequence) {
+        if ( sequence instanceof Iterator ) {
+            return (Iterator<?>) sequence;
+        }
+        if ( sequence instanceof Iterable ) {
+            return ((Iterable<?>) sequence).iterator();
+        }
+        return (Iterator<?>) invoke(STREAM_ITERATOR, sequence);
+    }
+
+    /**
+     * Closes the sequence if it is a stream.
+     */
+    public static void close(Object sequence) {
+        if ( isStream(sequence) ) {
+            invoke(STREAM_CLOSE, sequence);
+        }
+    }
+
+    private static Object invoke(Method method, Object stream) {
+        try {
+            return method.invoke(stream);
+        } catch (InvocationTargetException e) {
+            if ( e.getCause() instanceof RuntimeException ) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new ITestMethodExecutionException("Stream." + method.getName() + "() error.", e);
+        } catch (IllegalAccessException e) {
+            throw new ITestMethodExecutionException("Stream." + method.getName() + "() not accessible.", e);
+        }
+    }
+}
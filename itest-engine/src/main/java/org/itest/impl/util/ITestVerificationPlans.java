@@ -0,0 +1,168 @@
+package org.itest.impl.util;
+
+import java.lang.ref.Reference;
+import java.lang.ref.SoftReference;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.itest.exception.ITestMethodExecutionException;
+import org.itest.param.ITestParamState;
+import org.itest.param.ITestParamStates;
+import org.itest.param.ITestValueConverter;
+
+/**
+ * What verification of a result against a verify state needs, computed once: accessible fields by class and name, and expected leaf values
+ * or whole primitive arrays converted to the class of the result. Fields refer to their classes, so fields of a class are held softly: they
+ * survive between verifications, are looked up again only under memory pressure and do not keep classes loaded. Expected values are kept by
+ * state instance (states do not change once parsed) while the state is referenced, and are dropped if the converter changes.
+ */
+public class ITestVerificationPlans {
+
+    private static final Object NOT_FOUND = new Object();
+
+    /**
+     * expected values kept per state, one for each class of results it was verified against
+     */
+    private static final int MAX_CLASSES = 4;
+
+    private final Map<Class<?>, Reference<Map<String, Object>>> fields = new WeakHashMap<Class<?>, Reference<Map<String, Object>>>();
+
+    private final Map<ITestParamState, Object[]> expected = new WeakHashMap<ITestParamState, Object[]>();
+
+    private ITestValueConverter converter;
+
+    /**
+     * @return accessible field of the class or its nearest superclass declaring it
+     */
+    public Field getField(Class<?> clazz, String name) {
+        Map<String, Object> classFields;
+        Object res;
+        synchronized (fields) {
+            Reference<Map<String, Object>> ref = fields.get(clazz);
+            classFields = null == ref ? null : ref.get();
+            if ( null == classFields ) {
+                classFields = new HashMap<String, Object>();
+                fields.put(clazz, new SoftReference<Map<String, Object>>(classFields));
+            }
+            res = classFields.get(name);
+        }
+        if ( null == res ) {
+            res = findField(clazz, name);
+            synchronized (fields) {
+                classFields.put(name, res);
+            }
+        }
+        if ( NOT_FOUND == res ) {
+            throw new ITestMethodExecutionException("Field(" + name + ") not found in " + clazz.getName(), null);
+        }
+        return (Field) res;
+    }
+
+    private static Object findField(Class<?> clazz, String name) {
+        for (Class<?> c = clazz; null != c; c = c.getSuperclass()) {
+            try {
+                Field field = c.getDeclaredField(name);
+                field.setAccessible(true);
+                return field;
+            } catch (NoSuchFieldException e) {
+                // do nothing, search in superclass
+            } catch (SecurityException e) {
+                throw new ITestMethodExecutionException("Security Exception for " + clazz.getName() + "." + name, e);
+            }
+        }
+        return NOT_FOUND;
+    }
+
+    /**
+     * @return value of the leaf state converted to the type
+     */
+    public Object getExpected(ITestParamState state, Class<?> type, ITestValueConverter converter) {
+        Object res = lookup(state, type, converter);
+        if ( null == res ) {
+            res = converter.convert(type, state.getValue());
+            store(state, type, res, converter);
+        }
+        return res;
+    }
+
+    /**
+     * Expected values of an indexed state as one primitive array, elements converted the way {@link #getExpected} converts them for boxed
+     * results.
+     *
+     * @return array of the primitive component type or null if some element is not a plain value
+     */
+    public Object getExpectedArray(ITestParamState state, Class<?> componentType, ITestValueConverter converter) {
+        Class<?> type = Array.newInstance(componentType, 0).getClass();
+        Object res = lookup(state, type, converter);
+        if ( null == res ) {
+            res = toArray(state, componentType, converter);
+            store(state, type, null == res ? NOT_FOUND : res, converter);
+        }
+        return NOT_FOUND == res ? null : res;
+    }
+
+    private static Object toArray(ITestParamState state, Class<?> componentType, ITestValueConverter converter) {
+        Object packed = ITestPackedValues.getPrimitiveArray(state, converter);
+        if ( null != packed ) {
+            return ITestPackedValues.toArray(packed, componentType);
+        }
+        Class<?> boxed = Array.get(Array.newInstance(componentType, 1), 0).getClass();
+        int size = state.getSizeParam();
+        Object res = Array.newInstance(componentType, size);
+        for (int i = 0; i < size; i++) {
+            ITestParamState element = ITestParamStates.getElement(state, i);
+            if ( null == element || null != element.getNames() || null == element.getValue() || hasAttributes(element) ) {
+                return null;
+            }
+            Object value = converter.convert(boxed, element.getValue());
+            if ( null == value ) {
+                return null;
+            }
+            Array.set(res, i, value);
+        }
+        return res;
+    }
+
+    private static boolean hasAttributes(ITestParamState state) {
+        Iterable<String> names = state.getAttributeNames();
+        return null != names && names.iterator().hasNext();
+    }
+
+    private Object lookup(ITestParamState state, Class<?> type, ITestValueConverter converter) {
+        Object[] entries;
+        synchronized (expected) {
+            if ( converter != this.converter ) {
+                expected.clear();
+                this.converter = converter;
+            }
+            entries = expected.get(state);
+        }
+        if ( null != entries ) {
+            for (int i = 0; i < entries.length; i += 2) {
+                if ( type == entries[i] ) {
+                    return entries[i + 1];
+                }
+            }
+        }
+        return null;
+    }
+
+    private void store(ITestParamState state, Class<?> type, Object value, ITestValueConverter converter) {
+        synchronized (expected) {
+            Object[] entries = expected.get(state);
+            if ( converter != this.converter || (null != entries && entries.length >= 2 * MAX_CLASSES) ) {
+                return;
+            }
+            Object[] added = new Object[null == entries ? 2 : entries.length + 2];
+            if ( null != entries ) {
+                System.arraycopy(entries, 0, added, 0, entries.length);
+            }
+            added[added.length - 2] = type;
+            added[added.length - 1] = value;
+            expected.put(state, added);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package org.itest.test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import org.itest.impl.discovery.ITestClasspathScanner;
+import org.itest.impl.discovery.ITestClasspathScanner.ScanResult;
+import org.itest.test.example1.SimpleExample;
+import org.itest.test.example5.MyEntity;
+import org.itest.test.example7.ExternalTestDefinition;
+import org.itest.test.issue.ITestMethodExecutionTest;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ITestClasspathScannerTest {
+
+    @Test
+    public void scan() {
+        ScanResult res = new ITestClasspathScanner(getClass().getClassLoader()).scan("org.itest.test");
+        Assert.assertTrue(res.getITestClassNames().contains(SimpleExample.class.getName()));
+        Assert.assertTrue(res.getITestClassNames().contains(ITestMethodExecutionTest.class.getName() + "$Issue4Class"));
+        Assert.assertFalse(res.getITestClassNames().contains(ExternalTestDefinition.class.getName()));
+        Assert.assertFalse(res.getITestClassNames().contains(getClass().getName()));
+        Assert.assertTrue(res.getDefinitionResources().contains("org/itest/test/example5/MyEntity.itest.json"));
+        Assert.assertTrue(res.getCandidateClassNames().contains(ExternalTestDefinition.class.getName()));
+        Assert.assertTrue(res.getCandidateClassNames().contains(MyEntity.class.getName()));
+    }
+
+    @Test
+    public void findITestClasses() {
+        List<Class<?>> classes = Arrays.<Class<?>> asList(new ITestClasspathScanner(getClass().getClassLoader(), 2).findITestClasses("org.itest.test.example1",
+                "org.itest.test.example7"));
+        Assert.assertEquals(Arrays.<Class<?>> asList(SimpleExample.class, ExternalTestDefinition.class), classes);
+    }
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void scanJar() throws IOException {
+        ScanResult res = new ITestClasspathScanner(getClass().getClassLoader()).scan("org.junit");
+        Assert.assertTrue(res.getITestClassNames().isEmpty());
+
+        // '+' and space in the path of the jar
+        File jar = new File(folder.newFolder("lib+ext dir"), "itests.jar");
+        JarOutputStream out = new JarOutputStream(new FileOutputStream(jar));
+        try {
+            // directory entries, as in jars built by maven, packages are found by them
+            for (String dir : new String[] { "org/", "org/itest/", "org/itest/test/", "org/itest/test/example1/", "org/itest/test/example5/" }) {
+                out.putNextEntry(new JarEntry(dir));
+                out.closeEntry();
+            }
+            copy(SimpleExample.class.getName().replace('.', '/') + ".class", out);
+            copy("org/itest/test/example5/MyEntity.itest.json", out);
+        } finally {
+            out.close();
+        }
+        URLClassLoader classLoader = new URLClassLoader(new URL[] { jar.toURI().toURL() }, null);
+        res = new ITestClasspathScanner(classLoader).scan("org.itest.test");
+        Assert.assertEquals(new TreeSet<String>(Arrays.asList(SimpleExample.class.getName())), res.getITestClassNames());
+        Assert.assertTrue(res.getDefinitionResources().contains("org/itest/test/example5/MyEntity.itest.json"));
+    }
+
+    private void copy(String resource, JarOutputStream out) throws IOException {
+        out.putNextEntry(new JarEntry(resource));
+        InputStream is = getClass().getClassLoader().getResourceAsStream(resource);
+        try {
+            byte[] buf = new byte[8192];
+            for (int read; (read = is.read(buf)) >= 0;) {
+                out.write(buf, 0, read);
+            }
+        } finally {
+            is.close();
+        }
+        out.closeEntry();
+    }
+}
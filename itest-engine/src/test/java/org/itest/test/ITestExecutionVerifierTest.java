@@ -0,0 +1,429 @@
+package org.itest.test;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.itest.config.ITestConfigImpl;
+import org.itest.impl.ITestExecutionVerifierImpl;
+import org.itest.impl.util.ITestDigestAppendable;
+import org.itest.json.simple.format.SimpleJsonFormatter;
+import org.itest.json.simple.ITestSimpleJsonParamParserImpl;
+import org.itest.param.ITestParamState;
+import org.itest.verify.ITestFieldVerificationResult;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ITestExecutionVerifierTest {
+
+    private final ITestConfigImpl iTestConfig = new ITestConfigImpl();
+
+    private final ITestExecutionVerifierImpl verifier = new ITestExecutionVerifierImpl(iTestConfig);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void names() {
+        Assert.assertEquals(Arrays.asList("Success R.x.", "Failure R.s.", "Failure R.nope.", "Failure R.b.x.", "Success R.b.l.0.", "Success R.b.l.1.",
+                "Success R.l.2.", "Success R.l.0.", "Failure R.m[k].", "Failure R.m[z]."),
+                names(verifier.verify("R", createB(), state("{x:1,s:s2,nope:1,b:{x:3,l:[1,2]},l:{'2':6,'0':4},m:[{key:k,value:2},{key:z}]}"))));
+        // exceptions are reported at the field, following assertions have their own paths
+        Assert.assertEquals(Arrays.asList("Success R.b.l.0.", "Failure R.b.l.", "Success R.b.x.", "Success R.x."),
+                names(verifier.verify("R", createB(), state("{b:{l:[1,abc],x:2},x:1}"))));
+        Assert.assertEquals(Arrays.asList("Failure R.b.l.", "Success R.b.x.", "Failure R.m[k].y.", "Success R.s."),
+                names(verifier.verify("R", createB(), state("{b:{l:{q:1},x:2},m:[{key:k,value:{y:1}}],s:s1}"))));
+        Assert.assertEquals(Arrays.asList("Success R.class.", "Success R@size.", "Success R.0.", "Failure R.size()."),
+                names(verifier.verify("R", new ArrayList<Object>(Arrays.asList(1)), state("{@class:java.util.ArrayList,@size:1,_:[1,2]}"))));
+    }
+
+    @Test
+    public void counting() {
+        for (String state : Arrays.asList("{x:1,s:s2,nope:1,b:{x:3,l:[1,2]},l:{'2':6,'0':4},m:[{key:k,value:2},{key:z}]}", "{b:{l:[1,abc],x:2},x:1}",
+                "{x:1,s:s1}")) {
+            Collection<ITestFieldVerificationResult> all = verifier.verify("R", createB(), state(state));
+            List<ITestFieldVerificationResult> failures = new ArrayList<ITestFieldVerificationResult>();
+            Assert.assertEquals(all.size(), verifier.verify("R", createB(), state(state), failures));
+            List<String> expected = new ArrayList<String>();
+            for (ITestFieldVerificationResult result : all) {
+                if ( !result.isSuccess() ) {
+                    expected.add(result.toString());
+                }
+            }
+            Assert.assertEquals(expected, toStrings(failures));
+        }
+        Assert.assertEquals(0, verifier.verify("R", createB(), null, new ArrayList<ITestFieldVerificationResult>()));
+    }
+
+    @Test
+    public void stopAtFirstFailure() {
+        verifier.setStopAtFirstFailure(true);
+        ITestParamState state = state("{x:1,b:{x:3,l:[0,0]},s:s2}");
+        Assert.assertEquals(Arrays.asList("Success R.x.", "Failure R.b.x."), names(verifier.verify("R", createB(), state)));
+        List<ITestFieldVerificationResult> failures = new ArrayList<ITestFieldVerificationResult>();
+        Assert.assertEquals(2, verifier.verify("R", createB(), state, failures));
+        Assert.assertEquals(Arrays.asList("Failure R.b.x."), names(failures));
+        Assert.assertEquals(Arrays.asList("Success R.x.", "Success R.s."), names(verifier.verify("R", createB(), state("{x:1,s:s1}"))));
+
+        verifier.setStopAtFirstFailure(false);
+        Assert.assertEquals(Arrays.asList("Success R.x.", "Failure R.b.x.", "Failure R.b.l.0.", "Failure R.b.l.1.", "Failure R.s."),
+                names(verifier.verify("R", createB(), state)));
+    }
+
+    @Test
+    public void sequences() {
+        Assert.assertEquals(Arrays.asList("Success R.0.", "Success R.1.", "Failure R.2."),
+                names(verifier.verify("R", Arrays.asList(1, 2, 3).iterator(), state("[1,2,4]"))));
+        Assert.assertEquals(Arrays.asList("Success R.1.", "Success R@size."), names(verifier.verify("R", new Numbers(3), state("{@size:3,'1':1}"))));
+        Assert.assertEquals(Arrays.asList("Failure R@size. Expected: 2 actual: more than 2"), toStrings(verifier.verify("R", new Numbers(3), state("{@size:2}"))));
+        Assert.assertEquals(Arrays.asList("Failure R@size. Expected: 4 actual: 3"), toStrings(verifier.verify("R", new Numbers(3), state("{@size:4}"))));
+        // named indices are verified in the order of elements, an index past the end fails on the size
+        Assert.assertEquals(Arrays.asList("Success R.0.", "Success R.2.", "Failure R.size(). Expected: 6 actual: 3"),
+                toStrings(verifier.verify("R", new Numbers(3), state("{'5':5,'2':2,'0':0}"))));
+        Assert.assertEquals(Arrays.asList("Success R.name."), names(verifier.verify("R", new Numbers(3), state("{name:numbers}"))));
+    }
+
+    @Test
+    public void infiniteSequence() {
+        Numbers numbers = new Numbers(Integer.MAX_VALUE);
+        Assert.assertEquals(Arrays.asList("Success R.2.", "Success R.5."), names(verifier.verify("R", numbers, state("{'5':5,'2':2}"))));
+        Assert.assertEquals(6, numbers.pulled);
+        numbers.pulled = 0;
+        Assert.assertEquals(Arrays.asList("Failure R@size. Expected: 3 actual: more than 3"), toStrings(verifier.verify("R", numbers, state("{@size:3}"))));
+        Assert.assertEquals(4, numbers.pulled);
+    }
+
+    @Test
+    public void stream() throws Exception {
+        Method stream;
+        try {
+            stream = Collection.class.getMethod("stream");
+        } catch (NoSuchMethodException e) {
+            Assume.assumeNoException(e);
+            return;
+        }
+        final boolean[] closed = { false };
+        Object result = stream.invoke(Arrays.asList(1, 2, 3));
+        Class.forName("java.util.stream.BaseStream").getMethod("onClose", Runnable.class).invoke(result, new Runnable() {
+            @Override
+            public void run() {
+                closed[0] = true;
+            }
+        });
+        Assert.assertEquals(Arrays.asList("Success R.0.", "Failure R.2.", "Success R@size."),
+                names(verifier.verify("R", result, state("{@size:3,'2':4,'0':1}"))));
+        Assert.assertTrue(closed[0]);
+    }
+
+    @Test
+    public void collections() {
+        for (Collection<Object> collection : Arrays.<Collection<Object>> asList(new LinkedList<Object>(Arrays.asList("a", "b", "c")),
+                new LinkedHashSet<Object>(Arrays.asList("a", "b", "c")), new ArrayList<Object>(Arrays.asList("a", "b", "c")))) {
+            // named indices out of order and repeated ("01" and "1"), the index past size() is reported as a size failure
+            Assert.assertEquals(Arrays.asList("Success R@size.", "Success R.2.", "Success R.0.", "Success R.01.", "Failure R.1. Expected: x actual: b",
+                    "Failure R.size(). Expected: 6 actual: 3"), toStrings(verifier.verify("R", collection, state("{'2':c,'0':a,'01':b,'1':x,'5':z,@size:3}"))));
+            Assert.assertEquals(Arrays.asList("Failure R@size. Expected: 4 actual: 3", "Success R.0.", "Success R.1.", "Success R.2.",
+                    "Failure R.size(). Expected: 4 actual: 3"), toStrings(verifier.verify("R", collection, state("{@size:4,_:[a,b,c,d]}"))));
+            Assert.assertEquals(Arrays.asList("Failure R.size(). Expected: 4 actual: 3"), toStrings(verifier.verify("R", collection, state("{'3':d}"))));
+            Assert.assertEquals(Arrays.asList("Success R@size."), toStrings(verifier.verify("R", collection, state("{@size:3}"))));
+        }
+    }
+
+    @Test
+    public void primitiveArrays() {
+        int[] array = new int[1000];
+        StringBuilder state = new StringBuilder("[");
+        for (int i = 0; i < array.length; i++) {
+            array[i] = i;
+            state.append(i > 0 ? "," : "").append(i);
+        }
+        state.append(']');
+        List<ITestFieldVerificationResult> failures = new ArrayList<ITestFieldVerificationResult>();
+        Assert.assertEquals(1000, verifier.verify("R", array, state(state.toString()), failures));
+        Assert.assertTrue(failures.isEmpty());
+        Collection<ITestFieldVerificationResult> all = verifier.verify("R", array, state(state.toString()));
+        Assert.assertEquals(1000, all.size());
+        Assert.assertEquals("Success R.999.", toStrings(all).get(999));
+
+        // first mismatch is described, following elements are compared at once too and each mismatch is an assertion
+        Assert.assertEquals(Arrays.asList("Success R.0.", "Success R.1.", "Success R.2.", "Success R.3.", "Success R.4.", "Success R.5.",
+                "Failure R.6. Expected: 60 actual: 6 (first mismatch at 6 of 12, expected [.., 2, 3, 4, 5, 60, 7, 8, 9, 100, ..] actual [.., 2, 3, 4, 5, 6, 7, 8, 9, 10, ..])",
+                "Success R.7.", "Success R.8.", "Success R.9.", "Failure R.10. Expected: 100 actual: 10", "Success R.11."),
+                toStrings(verifier.verify("R", new int[] { 0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11 }, state("[0,1,2,3,4,5,60,7,8,9,100,11]"))));
+        failures.clear();
+        array[6] = 60;
+        array[500] = 5000;
+        array[999] = 9990;
+        Assert.assertEquals(1000, verifier.verify("R", array, state(state.toString()), failures));
+        Assert.assertEquals(Arrays.asList("Failure R.6.", "Failure R.500. Expected: 500 actual: 5000", "Failure R.999. Expected: 999 actual: 9990"),
+                Arrays.asList(names(failures).get(0), toStrings(failures).get(1), toStrings(failures).get(2)));
+        verifier.setStopAtFirstFailure(true);
+        failures.clear();
+        Assert.assertEquals(7, verifier.verify("R", array, state(state.toString()), failures));
+        Assert.assertEquals(Arrays.asList("Failure R.6."), names(failures));
+        verifier.setStopAtFirstFailure(false);
+        failures.clear();
+        Assert.assertEquals(2, verifier.verify("R", new long[] { 1, 2 }, state("[1,3]"), failures));
+        Assert.assertEquals(Arrays.asList("Failure R.1. Expected: 3 actual: 2 (first mismatch at 1 of 2, expected [1, 3] actual [1, 2])"),
+                toStrings(failures));
+        Assert.assertEquals(Arrays.asList("Success R.0.", "Success R.1."), names(verifier.verify("R", new double[] { 1.5, Double.NaN }, state("[1.5,NaN]"))));
+        Assert.assertEquals(Arrays.asList("Success R.0.", "Failure R.1."), names(verifier.verify("R", new char[] { 'a', 'b' }, state("[a,c]"))));
+    }
+
+    @Test
+    public void plainStates() {
+        // states implementing only ITestParamState are verified through lookups by name
+        Assert.assertEquals(Arrays.asList("Success R.0.", "Failure R.1. Expected: 3 actual: 2"),
+                toStrings(verifier.verify("R", new int[] { 1, 2 }, plain(state("[1,3]")))));
+        Assert.assertEquals(Arrays.asList("Success R.0.", "Failure R.1."),
+                names(verifier.verify("R", Arrays.asList("a", "b"), plain(state("[a,c]")))));
+        Assert.assertEquals(Arrays.asList("Success R.x.", "Success R.b.x.", "Success R.b.l.0.", "Failure R.b.l.1."),
+                names(verifier.verify("R", createB(), plain(state("{x:1,b:{x:2,l:[1,3]}}")))));
+    }
+
+    @Test
+    public void byteBuffer() {
+        ByteBuffer buffer = ByteBuffer.wrap(new byte[] { 1, 2, 3 });
+        buffer.get();
+        Assert.assertEquals(Arrays.asList("Success R.0.", "Success R.1."), names(verifier.verify("R", buffer, state("[2,3]"))));
+        Assert.assertEquals(Arrays.asList("Success R@size.", "Success R.0.", "Failure R.1."), names(verifier.verify("R", buffer, state("{@size:2,_:[2,4]}"))));
+        Assert.assertEquals(1, buffer.position());
+    }
+
+    @Test
+    public void charSequence() {
+        Assert.assertEquals(Arrays.asList("Success R."), toStrings(verifier.verify("R", new StringBuilder("abc"), state("abc"))));
+        Assert.assertEquals(Arrays.asList("Failure R. Expected: abcdefghijXlmnop actual: abcdefghijklmnop (first mismatch at 10, expected \"..ghijXlmno..\""
+                + " actual \"..ghijklmno..\")"), toStrings(verifier.verify("R", new StringBuilder("abcdefghijklmnop"), state("abcdefghijXlmnop"))));
+        Assert.assertEquals(Arrays.asList("Failure R. Expected: abcd actual: abc (first mismatch at 3, expected \"abcd\" actual \"abc\")"),
+                toStrings(verifier.verify("R", new StringBuilder("abc"), state("abcd"))));
+    }
+
+    @Test
+    public void digest() throws Exception {
+        B b = createB();
+        String formatted = format(b);
+        String sha256 = toHex(MessageDigest.getInstance("SHA-256").digest(formatted.getBytes("UTF-8")));
+        Assert.assertEquals(Arrays.asList("Success R@digest."), names(verifier.verify("R", b, state("{@digest:'sha256:" + sha256 + "'}"))));
+        Assert.assertEquals(Arrays.asList("Success R@digest."), names(verifier.verify("R", b, state("{@digest:'SHA-256:" + sha256.toUpperCase() + "'}"))));
+        String md5 = toHex(MessageDigest.getInstance("MD5").digest(formatted.getBytes("UTF-8")));
+        Assert.assertEquals(Arrays.asList("Success R@digest."), names(verifier.verify("R", b, state("{@digest:'md5:" + md5 + "'}"))));
+        String sha1 = toHex(MessageDigest.getInstance("SHA-1").digest(formatted.getBytes("UTF-8")));
+        Assert.assertEquals(Arrays.asList("Success R@digest."), names(verifier.verify("R", b, state("{@digest:'sha1:" + sha1 + "'}"))));
+
+        Assert.assertEquals(Arrays.asList("Failure R@digest. Expected: sha256:00 actual: sha256:" + sha256),
+                toStrings(verifier.verify("R", b, state("{@digest:'sha256:00'}"))));
+        Assert.assertEquals(Arrays.asList("Failure R@digest. Expected: foo:00 actual: null (unknown digest algorithm foo)"),
+                toStrings(verifier.verify("R", b, state("{@digest:'foo:00'}"))));
+        Assert.assertEquals(Arrays.asList("Failure R@digest. Expected: 00 actual: null (algorithm:hex expected)"),
+                toStrings(verifier.verify("R", b, state("{@digest:'00'}"))));
+        // other expectations are verified too
+        Assert.assertEquals(Arrays.asList("Success R@digest.", "Success R.x.", "Failure R.s."),
+                names(verifier.verify("R", b, state("{@digest:'sha256:" + sha256 + "',x:1,s:s2}"))));
+    }
+
+    @Test
+    public void digestDump() throws Exception {
+        File directory = folder.newFolder();
+        verifier.setDigestDumpDirectory(directory);
+        B b = createB();
+        File dump = new File(directory, "R_t_.actual.itest.json");
+        Assert.assertEquals(Arrays.asList("Failure R/t/@digest. Expected: sha256:00 actual: sha256:"
+                + toHex(MessageDigest.getInstance("SHA-256").digest(format(b).getBytes("UTF-8"))) + " (actual result written to " + dump.getPath() + ")"),
+                toStrings(verifier.verify("R/t/", b, state("{@digest:'sha256:00'}"))));
+        InputStream is = new FileInputStream(dump);
+        try {
+            byte[] bytes = new byte[(int) dump.length()];
+            new DataInputStream(is).readFully(bytes);
+            Assert.assertEquals(format(b), new String(bytes, "UTF-8"));
+        } finally {
+            is.close();
+        }
+    }
+
+    @Test
+    public void digestAppendable() throws Exception {
+        ITestDigestAppendable out = new ITestDigestAppendable(ITestDigestAppendable.getDigest("sha256"));
+        out.append("a");
+        out.append("bc");
+        Assert.assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad", out.toHex());
+        StringBuilder text = new StringBuilder("x\u00fc\u20ac\ud83d\ude00");
+        for (int i = 0; i < 5000; i++) {
+            text.append((char) ('a' + i % 26)).append("\ud834\udd1e");
+        }
+        // unpaired surrogates are written as '?', the way String.getBytes does
+        text.append("\udc00z\ud800");
+        for (String algorithm : Arrays.asList("SHA-256", "sha256", "md5", "SHA1", "sha512")) {
+            out = new ITestDigestAppendable(ITestDigestAppendable.getDigest(algorithm));
+            for (int i = 0; i < text.length(); i++) {
+                out.append(text.charAt(i));
+            }
+            Assert.assertEquals(algorithm, toHex(ITestDigestAppendable.getDigest(algorithm).digest(text.toString().getBytes("UTF-8"))), out.toHex());
+        }
+        try {
+            ITestDigestAppendable.getDigest("foo");
+            Assert.fail();
+        } catch (NoSuchAlgorithmException e) {
+            // expected
+        }
+    }
+
+    private static String format(Object o) {
+        StringBuilder sb = new StringBuilder();
+        new SimpleJsonFormatter().format(o, sb);
+        return sb.toString();
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder();
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return sb.toString();
+    }
+
+    private static ITestParamState state(String verify) {
+        return new ITestSimpleJsonParamParserImpl().parse("v:" + verify).getElement("v");
+    }
+
+    /**
+     * @return the state and its elements seen only through ITestParamState
+     */
+    private static ITestParamState plain(final ITestParamState state) {
+        return null == state ? null : new ITestParamState() {
+            @Override
+            public Integer getSizeParam() {
+                return state.getSizeParam();
+            }
+
+            @Override
+            public Collection<String> getNames() {
+                return state.getNames();
+            }
+
+            @Override
+            public ITestParamState getElement(String name) {
+                return plain(state.getElement(name));
+            }
+
+            @Override
+            public String getValue() {
+                return state.getValue();
+            }
+
+            @Override
+            public String getAttribute(String name) {
+                return state.getAttribute(name);
+            }
+
+            @Override
+            public Iterable<String> getAttributeNames() {
+                return state.getAttributeNames();
+            }
+        };
+    }
+
+    /**
+     * @return assertions without expected and actual values
+     */
+    private static List<String> names(Collection<ITestFieldVerificationResult> results) {
+        List<String> res = new ArrayList<String>();
+        for (String result : toStrings(results)) {
+            int end = result.indexOf(" Expected: ");
+            res.add(end < 0 ? result : result.substring(0, end));
+        }
+        return res;
+    }
+
+    private static List<String> toStrings(Collection<ITestFieldVerificationResult> results) {
+        List<String> res = new ArrayList<String>();
+        for (ITestFieldVerificationResult result : results) {
+            res.add(result.toString());
+        }
+        return res;
+    }
+
+    private static B createB() {
+        B b = new B();
+        b.x = 1;
+        b.s = "s1";
+        b.l = new ArrayList<Object>(Arrays.<Object> asList(4, 5, 6));
+        b.m = new HashMap<String, Object>();
+        b.m.put("k", 1);
+        b.b = new B();
+        b.b.x = 2;
+        b.b.l = new LinkedList<Object>(Arrays.<Object> asList(1, 2));
+        return b;
+    }
+
+    /**
+     * Iterable of 0..size-1, not a collection.
+     */
+    static class Numbers implements Iterable<Integer> {
+        private final int size;
+
+        private final String name = "numbers";
+
+        int pulled;
+
+        Numbers(int size) {
+            this.size = size;
+        }
+
+        @Override
+        public Iterator<Integer> iterator() {
+            return new Iterator<Integer>() {
+                private int next;
+
+                @Override
+                public boolean hasNext() {
+                    return next < size;
+                }
+
+                @Override
+                public Integer next() {
+                    if ( next >= size ) {
+                        throw new NoSuchElementException();
+                    }
+                    pulled++;
+                    return next++;
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+    }
+
+    static class B {
+        int x;
+
+        String s;
+
+        List<Object> l;
+
+        Map<String, Object> m;
+
+        B b;
+    }
+}
@@ -39,6 +39,7 @@ import org.itest.test.example3.ReuseTestDataExample;
 import org.itest.test.example4.CollectionsExample;
 import org.itest.test.example5.DataProviderExample;
 import org.itest.test.example7.ExternalTestDefinition;
+import org.itest.test.example8.PackedReferenceExample;
 import org.itest.test.example8.ReferenceExample;
 import org.itest.test.example9.ValueClassExample;
 import org.itest.test.issue.ITestJsonEscapeTest;
@@ -63,6 +64,22 @@ public class ITestExecutorTest {
         Assert.assertEquals("", executor.performTestsFor(5, ITestParamStateExample.class));
     }
 
+    @Test
+    public void packedReferences() {
+        ITestConfigImpl iTestConfigImpl = new ITestConfigImpl();
+        iTestConfigImpl.setITestObjectGenerator(new ITestRandomObjectGeneratorImpl(iTestConfigImpl));
+        ITestExecutor executor = ITestExecutorUtil.buildExecutor(iTestConfigImpl);
+        Assert.assertEquals("", executor.performTestsFor(2, PackedReferenceExample.class));
+    }
+
+    @Test
+    public void indexedTests() {
+        ITestConfigImpl iTestConfigImpl = new ITestConfigImpl();
+        iTestConfigImpl.setITestObjectGenerator(new ITestRandomObjectGeneratorImpl(iTestConfigImpl));
+        ITestExecutor executor = ITestExecutorUtil.buildExecutor(iTestConfigImpl);
+        Assert.assertEquals("", ITestExecutorUtil.performIndexedTests(executor, 3, getClass().getClassLoader(), "org.itest.test.example8"));
+    }
+
     @Test
     public void declarativeObjectGeneratorTest() {
         ITestConfigImpl iTestConfigImpl = new ITestConfigImpl();
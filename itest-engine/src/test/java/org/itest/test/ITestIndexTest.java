@@ -0,0 +1,72 @@
+package org.itest.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.itest.config.ITestConfigImpl;
+import org.itest.declaration.ITestDeclarationProvider;
+import org.itest.declaration.ITests;
+import org.itest.impl.declaration.ITestDeclarationProviderAnnotationImpl;
+import org.itest.impl.index.ITestIndexLoader;
+import org.itest.json.simple.ITestSimpleJsonParamParserImpl;
+import org.itest.json.simple.format.SimpleJsonStateFormatter;
+import org.itest.param.ITestPrimitiveArrayState;
+import org.itest.test.example1.SimpleExample;
+import org.itest.util.index.ITestIndexDeclarations;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test classes are indexed by itest-processor on test compilation.
+ */
+public class ITestIndexTest {
+
+    private final SimpleJsonStateFormatter formatter = new SimpleJsonStateFormatter();
+
+    @Test
+    public void indexedClasses() {
+        List<Class<?>> classes = Arrays.asList(ITestIndexLoader.loadIndexedClasses(getClass().getClassLoader()));
+        Assert.assertTrue(classes.contains(SimpleExample.class));
+        Assert.assertFalse(classes.contains(getClass()));
+    }
+
+    @Test
+    public void indexedDeclarations() throws Exception {
+        ITestIndexDeclarations index = ITestIndexLoader.loadDeclarations(SimpleExample.class);
+        Assert.assertTrue(index.isCurrent("sum(int,int)", 0, "A:[3,16]", "R:19"));
+        Assert.assertArrayEquals(new long[] { 3, 16 }, (long[]) ((ITestPrimitiveArrayState) index.getInit("sum(int,int)", 0).getElement("A"))
+                .getPrimitiveArray());
+        Assert.assertTrue(index.isCurrent("max(org.itest.test.example1.SimpleExample$Entity)", 1, "A:[{x:[1,22,333,4444]}]", "R:4"));
+        Assert.assertNull(ITestIndexLoader.loadDeclarations(getClass()));
+
+        ITestDeclarationProvider provider = new ITestDeclarationProviderAnnotationImpl(new ITestConfigImpl());
+        ITests declaration = provider.getITestDeclaration(SimpleExample.class.getMethod("size"));
+        Assert.assertSame(declaration, provider.getITestDeclaration(SimpleExample.class.getMethod("size")));
+        Assert.assertEquals(formatter.format(new ITestSimpleJsonParamParserImpl().parse("R:3,T:{e:{x:[1,{},333]}}")),
+                formatter.format(declaration.value()[0].verify()));
+        Assert.assertNull(declaration.value()[0].init());
+    }
+
+    @Test
+    public void staleIndex() throws IOException {
+        ITestIndexDeclarations index = new ITestIndexDeclarations();
+        index.add("m()", new ITestSimpleJsonParamParserImpl().parse("A:[1]"), "A:[1]", null, "");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        index.writeTo(out);
+        index = ITestIndexDeclarations.readFrom(new ByteArrayInputStream(out.toByteArray()));
+        Assert.assertTrue(index.isCurrent("m()", 0, "A:[1]", ""));
+        Assert.assertNull(index.getVerify("m()", 0));
+        Assert.assertFalse(index.isCurrent("m()", 0, "A:[2]", ""));
+        Assert.assertFalse(index.isCurrent("m()", 0, "A:[1]", "R:1"));
+        Assert.assertFalse(index.isCurrent("m()", 1, "A:[1]", ""));
+        Assert.assertFalse(index.isCurrent("n()", 0, "A:[1]", ""));
+
+        out.reset();
+        new DataOutputStream(out).writeInt(1);
+        Assert.assertNull(ITestIndexDeclarations.readFrom(new ByteArrayInputStream(out.toByteArray())));
+    }
+}
@@ -0,0 +1,122 @@
+package org.itest.test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collection;
+
+import org.itest.ITestExecutor;
+import org.itest.config.ITestConfigImpl;
+import org.itest.definition.ITestDefinition;
+import org.itest.executor.ITestDefinitionWatcher;
+import org.itest.executor.ITestExecutorUtil;
+import org.itest.impl.ITestParamLoaderFileImpl;
+import org.itest.json.simple.ITestSimpleJsonParamParserImpl;
+import org.itest.param.ITestParamParser;
+import org.itest.param.ITestParamState;
+import org.itest.test.example10.LazyLoadedDefinitionExample;
+import org.itest.test.example5.DataProviderExample;
+import org.itest.test.example7.ExternalTestDefinition;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ITestParamLoaderFileImplTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void loadFromFilesystem() {
+        ITestConfigImpl iTestConfigImpl = new ITestConfigImpl();
+        ITestParamLoaderFileImpl loader = new ITestParamLoaderFileImpl(iTestConfigImpl, new File("src/test/resources"));
+        iTestConfigImpl.setITestParamLoader(loader);
+        Assert.assertEquals(6, loader.preload(2));
+        ITestExecutor executor = ITestExecutorUtil.buildExecutor(iTestConfigImpl);
+        Assert.assertEquals("", executor.performTestsFor(-1, DataProviderExample.class, ExternalTestDefinition.class, LazyLoadedDefinitionExample.class));
+    }
+
+    @Test
+    public void largeFile() throws IOException {
+        // above the threshold the file is memory mapped while parsed
+        File file = new File(folder.getRoot(), "org/itest/test/example7/ExternalTestDefinition.itest.json");
+        file.getParentFile().mkdirs();
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; content.length() < 100000; i++) {
+            content.append("// padding line ").append(i).append('\n');
+        }
+        write(file, content.append("sum(*):{s1:{init:{A:[[0,1,2,3]]},verify:{R:6}},s2:{initRef:{use:s1},init:{A:{0:{4:4}}},verify:{R:10}}}")
+                .toString());
+        ITestConfigImpl iTestConfigImpl = new ITestConfigImpl();
+        iTestConfigImpl.setITestParamLoader(new ITestParamLoaderFileImpl(iTestConfigImpl, folder.getRoot()));
+        Assert.assertEquals("", ITestExecutorUtil.buildExecutor(iTestConfigImpl).performTestsFor(2, ExternalTestDefinition.class));
+    }
+
+    @Test
+    public void stringParser() {
+        // parsers without reader support get the whole file
+        ITestConfigImpl iTestConfigImpl = new ITestConfigImpl();
+        iTestConfigImpl.setITestParamParser(new ITestParamParser() {
+            private final ITestParamParser parser = new ITestSimpleJsonParamParserImpl();
+
+            @Override
+            public ITestParamState parse(String params) {
+                return parser.parse(params);
+            }
+        });
+        Assert.assertEquals("", ITestExecutorUtil.buildExecutor(iTestConfigImpl).performTestsFor(-1, DataProviderExample.class,
+                ExternalTestDefinition.class, LazyLoadedDefinitionExample.class));
+        iTestConfigImpl.setITestParamLoader(new ITestParamLoaderFileImpl(iTestConfigImpl, new File("src/test/resources")));
+        Assert.assertEquals("", ITestExecutorUtil.buildExecutor(iTestConfigImpl).performTestsFor(-1, DataProviderExample.class,
+                ExternalTestDefinition.class, LazyLoadedDefinitionExample.class));
+    }
+
+    @Test
+    public void watch() throws IOException {
+        File file = new File(folder.getRoot(), "org/itest/test/example7/ExternalTestDefinition.itest.json");
+        file.getParentFile().mkdirs();
+        write(file, "sum(*):{s1:{init:{A:[[0,1,2,3]]},verify:{R:6}},s2:{initRef:{use:s1},init:{A:{0:{4:4}}},verify:{R:10}}}");
+        ITestConfigImpl iTestConfigImpl = new ITestConfigImpl();
+        iTestConfigImpl.setITestParamLoader(new ITestParamLoaderFileImpl(iTestConfigImpl, folder.getRoot()));
+        Assert.assertEquals("", ITestExecutorUtil.buildExecutor(iTestConfigImpl).performTestsFor(2, ExternalTestDefinition.class));
+
+        final StringBuilder result = new StringBuilder();
+        ITestDefinitionWatcher watcher = new ITestDefinitionWatcher(iTestConfigImpl, getClass().getClassLoader(), new ITestDefinitionWatcher.Listener() {
+            @Override
+            public void testsPerformed(Collection<File> changedFiles, Collection<ITestDefinition> definitions, String res) {
+                result.append(definitions.size()).append(':').append(res);
+            }
+
+            @Override
+            public void error(Collection<File> changedFiles, RuntimeException e) {
+                throw e;
+            }
+        });
+        Assert.assertTrue(watcher.checkForChanges().isEmpty());
+
+        // s2 inherits s1 init through initRef
+        write(file, "sum(*):{s1:{init:{A:[[10,1,2,3]]},verify:{R:16}},s2:{initRef:{use:s1},init:{A:{0:{4:4}}},verify:{R:20}}}");
+        Assert.assertEquals(1, watcher.checkForChanges().size());
+        Assert.assertEquals("2:", result.toString());
+        Assert.assertTrue(watcher.checkForChanges().isEmpty());
+
+        // same length and time stamp, recent changes are found by content
+        long lastModified = file.lastModified();
+        write(file, "sum(*):{s1:{init:{A:[[11,1,2,3]]},verify:{R:17}},s2:{initRef:{use:s1},init:{A:{0:{4:4}}},verify:{R:21}}}");
+        Assert.assertTrue(file.setLastModified(lastModified));
+        Assert.assertEquals(1, watcher.checkForChanges().size());
+        Assert.assertEquals("2:2:", result.toString());
+        Assert.assertTrue(watcher.checkForChanges().isEmpty());
+    }
+
+    private static void write(File file, String content) throws IOException {
+        OutputStream os = new FileOutputStream(file);
+        try {
+            os.write(content.getBytes("UTF-8"));
+        } finally {
+            os.close();
+        }
+    }
+}
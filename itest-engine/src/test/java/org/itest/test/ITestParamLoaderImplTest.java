@@ -0,0 +1,51 @@
+package org.itest.test;
+
+import java.io.Reader;
+
+import org.itest.ITestConstants;
+import org.itest.config.ITestConfigImpl;
+import org.itest.exception.ITestDeclarationNotFoundException;
+import org.itest.impl.ITestParamLoaderImpl;
+import org.itest.json.simple.ITestSimpleJsonParamParserImpl;
+import org.itest.param.ITestParamState;
+import org.itest.param.ITestStreamingParamParser;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ITestParamLoaderImplTest {
+
+    @Test
+    public void classLevelFileReadOnce() {
+        final int[] lazyParsed = new int[1];
+        ITestConfigImpl iTestConfigImpl = new ITestConfigImpl();
+        iTestConfigImpl.setITestParamParser(new ITestStreamingParamParser() {
+            private final ITestSimpleJsonParamParserImpl parser = new ITestSimpleJsonParamParserImpl();
+
+            @Override
+            public ITestParamState parse(String params) {
+                return parser.parse(params);
+            }
+
+            @Override
+            public ITestParamState parse(Reader params) {
+                return parser.parse(params);
+            }
+
+            @Override
+            public ITestParamState parseLazy(Reader params) {
+                lazyParsed[0]++;
+                return parser.parseLazy(params);
+            }
+        });
+        ITestParamLoaderImpl loader = new ITestParamLoaderImpl(iTestConfigImpl);
+        Assert.assertEquals("1", loader.loadITestParam(getClass(), "a").getElement(ITestConstants.THIS).getElement("x").getValue());
+        Assert.assertEquals("2", loader.loadITestParam(getClass(), "b").getElement(ITestConstants.THIS).getElement("x").getValue());
+        try {
+            loader.loadITestParam(getClass(), "c");
+            Assert.fail();
+        } catch (ITestDeclarationNotFoundException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("ITestParamLoaderImplTest.itest.json"));
+        }
+        Assert.assertEquals(1, lazyParsed[0]);
+    }
+}
@@ -0,0 +1,134 @@
+package org.itest.test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.itest.impl.ITestParamAssignmentImpl;
+import org.itest.impl.ITestParamMergerImpl;
+import org.itest.impl.ITestParamStateImpl;
+import org.itest.json.simple.ITestSimpleJsonParamParserImpl;
+import org.itest.param.ITestParamState;
+import org.itest.param.ITestParamStates;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ITestParamOverlayStateTest {
+
+    @Test
+    public void names() {
+        ITestParamState merged = merge("x:1,y:2", "z:3,x:4");
+        Assert.assertEquals(Arrays.asList("x", "y", "z"), new ArrayList<String>(merged.getNames()));
+        Assert.assertEquals(Integer.valueOf(3), merged.getSizeParam());
+        Assert.assertEquals("4", merged.getElement("x").getValue());
+        Assert.assertEquals("2", merged.getElement("y").getValue());
+        Assert.assertNull(merged.getElement("q"));
+        // names all layers keep null for are dropped
+        ITestParamStateImpl a = new ITestParamStateImpl();
+        a.addElement("x", null);
+        a.addElement("y", parse("y:1").getElement("y"));
+        ITestParamStateImpl b = new ITestParamStateImpl();
+        b.addElement("x", null);
+        merged = merge(a, b);
+        Assert.assertEquals(Arrays.asList("y"), new ArrayList<String>(merged.getNames()));
+        Assert.assertNull(merged.getElement("x"));
+        Assert.assertNull(merge(b, b).getNames());
+        // json null is a value
+        Assert.assertEquals(Arrays.asList("x"), new ArrayList<String>(merge("x:null", "x:null").getNames()));
+    }
+
+    @Test
+    public void valuesAndAttributes() {
+        ITestParamState merged = merge("v:{@class:A,@size:1,_:1},w:{a:1}", "v:{@class:B,_:2},w:2").getElement("v");
+        Assert.assertEquals("2", merged.getValue());
+        Assert.assertEquals("B", merged.getAttribute("class"));
+        Assert.assertEquals("1", merged.getAttribute("size"));
+        Assert.assertNull(merged.getNames());
+        // elements of any layer override values
+        ITestParamState w = merge("v:{@class:A,@size:1,_:1},w:{a:1}", "v:{@class:B,_:2},w:2").getElement("w");
+        Assert.assertNull(w.getValue());
+        Assert.assertEquals("1", w.getElement("a").getValue());
+    }
+
+    @Test
+    public void root() {
+        ITestParamState merged = merge("@class:A,x:1", "@class:B,x:2");
+        Assert.assertNull(merged.getValue());
+        Assert.assertNull(merged.getAttribute("class"));
+        Assert.assertFalse(ITestParamStates.attributes(merged).next());
+        Assert.assertEquals("2", merged.getElement("x").getValue());
+    }
+
+    @Test
+    public void materializeOnMutate() {
+        ITestParamState a = parse("x:1,y:{@class:A,_:2}");
+        ITestParamState b = parse("x:3");
+        ITestParamState merged = merge(a, b);
+        ITestParamState y = merged.getElement("y");
+        ((ITestParamStateImpl) merged).addElement("n", parse("q:1"));
+        Assert.assertEquals(Arrays.asList("x", "y", "n"), new ArrayList<String>(merged.getNames()));
+        Assert.assertSame(y, merged.getElement("y"));
+        Assert.assertEquals("3", merged.getElement("x").getValue());
+
+        ((ITestParamStateImpl) y).setValue("5");
+        ((ITestParamStateImpl) y).addAttribute("size", "1");
+        Assert.assertEquals("5", y.getValue());
+        Assert.assertEquals("A", y.getAttribute("class"));
+        Assert.assertEquals("1", y.getAttribute("size"));
+        // layers are not changed
+        Assert.assertEquals(Arrays.asList("x", "y"), new ArrayList<String>(a.getNames()));
+        Assert.assertEquals("2", a.getElement("y").getValue());
+        Assert.assertNull(a.getElement("y").getAttribute("size"));
+    }
+
+    @Test
+    public void concurrentAccess() throws Exception {
+        for (int round = 0; round < 20; round++) {
+            final ITestParamState merged = merge("a:{x:1,y:2},b:{z:1}", "a:{x:3},c:4");
+            ExecutorService executorService = Executors.newFixedThreadPool(4);
+            try {
+                List<Future<ITestParamState>> futures = new ArrayList<Future<ITestParamState>>();
+                for (int i = 0; i < 8; i++) {
+                    futures.add(executorService.submit(new Callable<ITestParamState>() {
+                        @Override
+                        public ITestParamState call() {
+                            Assert.assertEquals(3, merged.getNames().size());
+                            ITestParamState a = merged.getElement("a");
+                            Assert.assertEquals("3", a.getElement("x").getValue());
+                            return a;
+                        }
+                    }));
+                }
+                for (Future<ITestParamState> future : futures) {
+                    Assert.assertSame(merged.getElement("a"), future.get());
+                }
+            } finally {
+                executorService.shutdownNow();
+            }
+        }
+    }
+
+    private static ITestParamState merge(String... states) {
+        ITestParamState[] parsed = new ITestParamState[states.length];
+        for (int i = 0; i < states.length; i++) {
+            parsed[i] = parse(states[i]);
+        }
+        return merge(parsed);
+    }
+
+    private static ITestParamState merge(ITestParamState... states) {
+        ITestParamAssignmentImpl[] assignments = new ITestParamAssignmentImpl[states.length];
+        for (int i = 0; i < states.length; i++) {
+            assignments[i] = new ITestParamAssignmentImpl("", states[i]);
+        }
+        return new ITestParamMergerImpl().merge(assignments);
+    }
+
+    private static ITestParamState parse(String state) {
+        return new ITestSimpleJsonParamParserImpl().parse(state);
+    }
+}
@@ -25,6 +25,7 @@
  */
 package org.itest.test;
 
+import org.itest.impl.ITestMemoizingParamMerger;
 import org.itest.impl.ITestParamAssignmentImpl;
 import org.itest.impl.ITestParamMergerImpl;
 import org.itest.json.simple.ITestSimpleJsonParamParserImpl;
@@ -51,4 +52,18 @@ public class ITestParamsMergeProviderTest {
         Assert.assertEquals("vvv", unified.getElement("T").getElement("a").getElement("0").getElement("field").getValue());
         Assert.assertEquals("vvv2", unified.getElement("T").getElement("a").getElement("0").getElement("field2").getValue());
     }
+
+    @Test
+    public void testMemoized() {
+        ITestMemoizingParamMerger p = new ITestMemoizingParamMerger(new ITestParamMergerImpl(), 1);
+        ITestParamState a = new ITestSimpleJsonParamParserImpl().parse("'T':{'a':'1','b':'2'}");
+        ITestParamState b = new ITestSimpleJsonParamParserImpl().parse("'T':{'b':'3'}");
+        ITestParamState merged = p.merge(new ITestParamAssignmentImpl("", a), new ITestParamAssignmentImpl("", b));
+        Assert.assertEquals("3", merged.getElement("T").getElement("b").getValue());
+        Assert.assertSame(merged, p.merge(new ITestParamAssignmentImpl("", a), new ITestParamAssignmentImpl("", b)));
+        Assert.assertNotSame(merged, p.merge(new ITestParamAssignmentImpl("", b), new ITestParamAssignmentImpl("", a)));
+        Assert.assertNotSame(merged, p.merge(new ITestParamAssignmentImpl("", a), new ITestParamAssignmentImpl("", b)));
+        Assert.assertEquals(1, p.getHits());
+        Assert.assertEquals(1, p.size());
+    }
 }
@@ -0,0 +1,81 @@
+package org.itest.test;
+
+import java.util.StringTokenizer;
+
+import org.itest.ITestConstants;
+import org.itest.exception.ITestException;
+import org.itest.impl.ITestParamStateImpl;
+import org.itest.impl.ITestTransformation;
+import org.itest.json.simple.ITestSimpleJsonParamParserImpl;
+import org.itest.json.simple.format.SimpleJsonStateFormatter;
+import org.itest.param.ITestParamState;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ITestTransformationTest {
+
+    private final ITestParamState state = new ITestSimpleJsonParamParserImpl().parse("A:[{a:{b:1}},{a:{b:2}}],B:{'=':{c:3}},C:4");
+
+    private final SimpleJsonStateFormatter formatter = new SimpleJsonStateFormatter();
+
+    @Test
+    public void sameAsTokenized() {
+        for (String transformation : new String[] { "T=A", "T=A:1", "T:u=A:1:a", "T:u:v=A:0:a:b", "T=", "T::u=A::1:", ":T:=:A:1:", "T=B:=",
+                "T=B:=:c", "T=B=c", "T:u=B=:c" }) {
+            ITestParamState expected = tokenized(transformation, state);
+            ITestParamState actual = ITestTransformation.compile(transformation).apply(state);
+            Assert.assertEquals(transformation, formatter.format(expected), formatter.format(actual));
+        }
+        Assert.assertEquals("{T:{u:{b:2}}}", formatter.format(ITestTransformation.compile("T::u=A::1:a").apply(state)));
+        Assert.assertEquals("{T:{c:3}}", formatter.format(ITestTransformation.compile("T=B=").apply(state)));
+        Assert.assertSame(state, ITestTransformation.compile("").apply(state));
+    }
+
+    @Test
+    public void compiledOnce() {
+        Assert.assertSame(ITestTransformation.compile("T:u=A:1"), ITestTransformation.compile("T:u=A:1"));
+        Assert.assertSame(ITestTransformation.EMPTY, ITestTransformation.compile(""));
+        Assert.assertEquals("T:u=A:1", ITestTransformation.compile("T::u=A:1:").toString());
+        Assert.assertEquals("T=B:=:c", ITestTransformation.compile("T=B=c").toString());
+    }
+
+    @Test
+    public void missingTarget() {
+        for (String transformation : new String[] { "=A", ":=A:1", "A:1" }) {
+            try {
+                ITestTransformation.compile(transformation);
+                Assert.fail(transformation);
+            } catch (ITestException e) {
+                Assert.assertTrue(e.getMessage(), e.getMessage().endsWith("Missing target path in transformation: " + transformation));
+            }
+        }
+    }
+
+    /**
+     * Transformation applied as it was before compiling: '=' surrounded by separators and split by StringTokenizer.
+     */
+    private static ITestParamState tokenized(String transformation, ITestParamState itestParam) {
+        String s = transformation.replaceAll(ITestConstants.ASSIGN, ITestConstants.ASSIGN_SEPARATOR + ITestConstants.ASSIGN
+                + ITestConstants.ASSIGN_SEPARATOR);
+        StringTokenizer t = new StringTokenizer(s, ITestConstants.ASSIGN_SEPARATOR);
+        ITestParamStateImpl res = new ITestParamStateImpl();
+        ITestParamStateImpl prevState = null;
+        String token;
+        String prevToken = null;
+        while (!ITestConstants.ASSIGN.equals(token = t.nextToken())) {
+            ITestParamStateImpl p = new ITestParamStateImpl();
+            if ( prevState != null ) {
+                prevState.addElement(prevToken, p);
+            } else {
+                p = res;
+            }
+            prevState = p;
+            prevToken = token;
+        }
+        while (t.hasMoreElements()) {
+            itestParam = itestParam.getElement(t.nextToken());
+        }
+        prevState.addElement(prevToken, itestParam);
+        return res;
+    }
+}
@@ -0,0 +1,72 @@
+package org.itest.test;
+
+import java.util.Arrays;
+
+import org.itest.config.ITestConfigImpl;
+import org.itest.exception.ITestMethodExecutionException;
+import org.itest.impl.ITestExecutionVerifierImpl;
+import org.itest.impl.ITestValueConverterImpl;
+import org.itest.impl.util.ITestVerificationPlans;
+import org.itest.json.simple.ITestSimpleJsonParamParserImpl;
+import org.itest.param.ITestParamState;
+import org.itest.param.ITestValueConverter;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ITestVerificationPlansTest {
+
+    private final ITestVerificationPlans plans = new ITestVerificationPlans();
+
+    @Test
+    public void shadowedField() throws Exception {
+        // the nearest declaration is used, as in field access from the class; it used to be the topmost one
+        Assert.assertEquals(Child.class, plans.getField(Child.class, "x").getDeclaringClass());
+        Assert.assertEquals(Parent.class, plans.getField(Child.class, "y").getDeclaringClass());
+        Assert.assertEquals(Parent.class, plans.getField(Parent.class, "x").getDeclaringClass());
+        Assert.assertEquals(2, plans.getField(Child.class, "x").get(new Child()));
+        Assert.assertSame(plans.getField(Child.class, "x"), plans.getField(Child.class, "x"));
+        try {
+            plans.getField(Child.class, "z");
+            Assert.fail();
+        } catch (ITestMethodExecutionException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("Field(z) not found in " + Child.class.getName()));
+        }
+
+        ITestExecutionVerifierImpl verifier = new ITestExecutionVerifierImpl(new ITestConfigImpl());
+        Assert.assertEquals("[Success R.x., Success R.y.]", verifier.verify("R", new Child(), parse("{x:2,y:3}")).toString());
+    }
+
+    @Test
+    public void converterChange() {
+        ITestParamState state = parse("5");
+        ITestValueConverter converter = new ITestValueConverterImpl();
+        ITestValueConverter doubling = new ITestValueConverter() {
+            @Override
+            public <T> T convert(Class<T> clazz, String value) {
+                return clazz.cast(2 * Integer.parseInt(value));
+            }
+        };
+        Assert.assertEquals(5, plans.getExpected(state, Integer.class, converter));
+        Assert.assertEquals(10, plans.getExpected(state, Integer.class, doubling));
+        Assert.assertEquals(5, plans.getExpected(state, Integer.class, converter));
+
+        ITestParamState array = parse("[1,2]");
+        Assert.assertArrayEquals(new int[] { 1, 2 }, (int[]) plans.getExpectedArray(array, int.class, converter));
+        Assert.assertArrayEquals(new int[] { 2, 4 }, (int[]) plans.getExpectedArray(array, int.class, doubling));
+        Assert.assertTrue(Arrays.equals(new long[] { 1, 2 }, (long[]) plans.getExpectedArray(array, long.class, converter)));
+    }
+
+    private static ITestParamState parse(String state) {
+        return new ITestSimpleJsonParamParserImpl().parse("v:" + state).getElement("v");
+    }
+
+    static class Parent {
+        int x = 1;
+
+        int y = 3;
+    }
+
+    static class Child extends Parent {
+        int x = 2;
+    }
+}
@@ -0,0 +1,28 @@
+package org.itest.test.example8;
+
+import java.util.List;
+
+import org.itest.annotation.ITest;
+import org.itest.annotation.ITests;
+
+public class PackedReferenceExample {
+    @ITests(@ITest(init = "A:[{b:[0,10,20],x:{@ref:../b/2}}]", verify = "R:20"))
+    int arrayElement(A a) {
+        return a.x;
+    }
+
+    @ITests(@ITest(init = "A:[{l:[5,6,7],y:{@ref:../l/1}}]", verify = "R:6"))
+    long listElement(A a) {
+        return a.y;
+    }
+
+    static class A {
+        int[] b;
+
+        int x;
+
+        List<Long> l;
+
+        long y;
+    }
+}
@@ -49,4 +49,16 @@ public interface ITestConstants {
     String ATTRIBUTE_CLASS = "class";
     String ATTRIBUTE_DEFINITION = "def";
     String ATTRIBUTE_SIZE = "size";
+    /**
+     * verify attribute "algorithm:hex" with digest of the result formatted by SimpleJsonFormatter (UTF-8), e.g. "sha256:..."
+     */
+    String ATTRIBUTE_DIGEST = "digest";
+
+    String INDEX_RESOURCE = "META-INF/itest/index";
+
+    String INDEX_DECLARATION_SUFFIX = ".itest.idx";
+
+    String DEFINITION_SUFFIX = ".itest.json";
+
+    String BINARY_DEFINITION_SUFFIX = ".itest.bin";
 }
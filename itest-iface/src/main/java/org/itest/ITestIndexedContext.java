@@ -0,0 +1,12 @@
+package org.itest;
+
+/**
+ * Context entering array/collection items by index, other contexts enter them by name.
+ */
+public interface ITestIndexedContext extends ITestContext {
+
+    /**
+     * Enters array/collection item, param of the item is looked up by {@link org.itest.param.ITestParamStates#getElement(org.itest.param.ITestParamState, int)}.
+     */
+    void enter(Object owner, int index);
+}
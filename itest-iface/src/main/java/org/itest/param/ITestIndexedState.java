@@ -0,0 +1,20 @@
+package org.itest.param;
+
+/**
+ * State giving array items by index, used by {@link ITestParamStates#isIndexed(ITestParamState)} and
+ * {@link ITestParamStates#getElement(ITestParamState, int)} instead of lookups by name.
+ */
+public interface ITestIndexedState extends ITestParamState {
+
+    /**
+     * @return true if elements are array items named "0".."size-1", {@link #getElement(int)} is then a direct lookup
+     */
+    boolean isIndexed();
+
+    /**
+     * Same as getElement(String.valueOf(index)).
+     *
+     * @return element at the index, null if there is no such element
+     */
+    ITestParamState getElement(int index);
+}
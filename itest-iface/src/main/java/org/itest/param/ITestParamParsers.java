@@ -0,0 +1,33 @@
+package org.itest.param;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Parsing of params read from a reader with any {@link ITestParamParser}.
+ */
+public class ITestParamParsers {
+
+    /**
+     * @return params parsed by the streaming parser, or by parse(String) of the whole input
+     */
+    public static ITestParamState parse(ITestParamParser parser, Reader params) throws IOException {
+        return parser instanceof ITestStreamingParamParser ? ((ITestStreamingParamParser) parser).parse(params) : parser.parse(read(params));
+    }
+
+    /**
+     * @return params parsed lazily by the streaming parser, or by parse(String) of the whole input
+     */
+    public static ITestParamState parseLazy(ITestParamParser parser, Reader params) throws IOException {
+        return parser instanceof ITestStreamingParamParser ? ((ITestStreamingParamParser) parser).parseLazy(params) : parser.parse(read(params));
+    }
+
+    private static String read(Reader reader) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        char[] chars = new char[8192];
+        for (int read; (read = reader.read(chars)) >= 0;) {
+            sb.append(chars, 0, read);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,32 @@
+package org.itest.param;
+
+/**
+ * Walks elements or attributes of a state in order, without looking each of them up by name:
+ * 
+ * <pre>
+ * for (ITestParamStateCursor cursor = ITestParamStates.elements(state); cursor.next();) {
+ *     process(cursor.getName(), cursor.getElement());
+ * }
+ * </pre>
+ */
+public interface ITestParamStateCursor {
+
+    /**
+     * Moves to the next element, cursor starts before the first one.
+     *
+     * @return false if there are no more elements
+     */
+    boolean next();
+
+    String getName();
+
+    /**
+     * @return element at the cursor, null when walking attributes
+     */
+    ITestParamState getElement();
+
+    /**
+     * @return attribute value at the cursor, null when walking elements
+     */
+    String getValue();
+}
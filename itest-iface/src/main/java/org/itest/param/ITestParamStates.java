@@ -0,0 +1,222 @@
+package org.itest.param;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Cursors and indexed access over any {@link ITestParamState}: {@link ITestTraversableState} walks itself, {@link ITestIndexedState} gives items by
+ * index, other states are walked and looked up by names.
+ */
+public class ITestParamStates {
+
+    private static final ITestParamStateCursor EMPTY = new ITestParamStateCursor() {
+        @Override
+        public boolean next() {
+            return false;
+        }
+
+        @Override
+        public String getName() {
+            throw new IllegalStateException();
+        }
+
+        @Override
+        public ITestParamState getElement() {
+            throw new IllegalStateException();
+        }
+
+        @Override
+        public String getValue() {
+            throw new IllegalStateException();
+        }
+    };
+
+    /**
+     * @return cursor over elements of the state, empty if it has none
+     */
+    public static ITestParamStateCursor elements(ITestParamState state) {
+        return state instanceof ITestTraversableState ? ((ITestTraversableState) state).elements() : byNames(state);
+    }
+
+    /**
+     * @return cursor over attributes of the state, empty if it has none
+     */
+    public static ITestParamStateCursor attributes(ITestParamState state) {
+        return state instanceof ITestTraversableState ? ((ITestTraversableState) state).attributes() : byAttributeNames(state);
+    }
+
+    /**
+     * @return true if elements of the state are array items named "0".."size-1"
+     */
+    public static boolean isIndexed(ITestParamState state) {
+        return state instanceof ITestIndexedState && ((ITestIndexedState) state).isIndexed();
+    }
+
+    /**
+     * @return element at the index, same as getElement(String.valueOf(index)) for states without indexed access
+     */
+    public static ITestParamState getElement(ITestParamState state, int index) {
+        return state instanceof ITestIndexedState ? ((ITestIndexedState) state).getElement(index) : state.getElement(String.valueOf(index));
+    }
+
+    /**
+     * @return cursor over getNames() with getElement(name) lookups
+     */
+    public static ITestParamStateCursor byNames(final ITestParamState state) {
+        Collection<String> names = state.getNames();
+        if ( null == names || names.isEmpty() ) {
+            return EMPTY;
+        }
+        final Iterator<String> iterator = names.iterator();
+        return new ITestParamStateCursor() {
+            private String name;
+
+            @Override
+            public boolean next() {
+                if ( iterator.hasNext() ) {
+                    name = iterator.next();
+                    return true;
+                }
+                return false;
+            }
+
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public ITestParamState getElement() {
+                return state.getElement(name);
+            }
+
+            @Override
+            public String getValue() {
+                return null;
+            }
+        };
+    }
+
+    /**
+     * @return cursor over getAttributeNames() with getAttribute(name) lookups
+     */
+    public static ITestParamStateCursor byAttributeNames(final ITestParamState state) {
+        Iterable<String> names = state.getAttributeNames();
+        if ( null == names ) {
+            return EMPTY;
+        }
+        final Iterator<String> iterator = names.iterator();
+        return new ITestParamStateCursor() {
+            private String name;
+
+            @Override
+            public boolean next() {
+                if ( iterator.hasNext() ) {
+                    name = iterator.next();
+                    return true;
+                }
+                return false;
+            }
+
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public ITestParamState getElement() {
+                return null;
+            }
+
+            @Override
+            public String getValue() {
+                return state.getAttribute(name);
+            }
+        };
+    }
+
+    /**
+     * @return cursor over the map entries, for states keeping elements in a map
+     */
+    public static ITestParamStateCursor elements(Map<String, ITestParamState> elements) {
+        return null == elements || elements.isEmpty() ? EMPTY : new EntryCursor<ITestParamState>(elements, true);
+    }
+
+    /**
+     * @return cursor over the map entries, for states keeping attributes in a map
+     */
+    public static ITestParamStateCursor attributes(Map<String, String> attributes) {
+        return null == attributes || attributes.isEmpty() ? EMPTY : new EntryCursor<String>(attributes, false);
+    }
+
+    /**
+     * @return cursor over items of an indexed state with getElement(int), names are created only if asked for
+     */
+    public static ITestParamStateCursor indexed(final ITestParamState state) {
+        final int size = state.getSizeParam();
+        if ( 0 == size ) {
+            return EMPTY;
+        }
+        return new ITestParamStateCursor() {
+            private int index = -1;
+
+            @Override
+            public boolean next() {
+                return ++index < size;
+            }
+
+            @Override
+            public String getName() {
+                return String.valueOf(index);
+            }
+
+            @Override
+            public ITestParamState getElement() {
+                return ITestParamStates.getElement(state, index);
+            }
+
+            @Override
+            public String getValue() {
+                return null;
+            }
+        };
+    }
+
+    private static class EntryCursor<V> implements ITestParamStateCursor {
+        private final Iterator<Map.Entry<String, V>> iterator;
+
+        private final boolean elements;
+
+        private Map.Entry<String, V> entry;
+
+        EntryCursor(Map<String, V> map, boolean elements) {
+            this.iterator = map.entrySet().iterator();
+            this.elements = elements;
+        }
+
+        @Override
+        public boolean next() {
+            if ( iterator.hasNext() ) {
+                entry = iterator.next();
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public String getName() {
+            return entry.getKey();
+        }
+
+        @Override
+        public ITestParamState getElement() {
+            return elements ? (ITestParamState) entry.getValue() : null;
+        }
+
+        @Override
+        public String getValue() {
+            return elements ? null : (String) entry.getValue();
+        }
+    }
+}
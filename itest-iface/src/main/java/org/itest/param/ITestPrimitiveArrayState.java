@@ -0,0 +1,13 @@
+package org.itest.param;
+
+/**
+ * Indexed state of numeric leaves packed in a primitive array. Element i is a leaf with value String.valueOf(array[i]), so values can be copied or
+ * compared in bulk instead of element by element.
+ */
+public interface ITestPrimitiveArrayState extends ITestIndexedState {
+
+    /**
+     * @return long[] or double[]
+     */
+    Object getPrimitiveArray();
+}
@@ -0,0 +1,20 @@
+package org.itest.param;
+
+import java.io.Reader;
+
+/**
+ * Parser reading params from a reader itself, used by {@link ITestParamParsers} instead of reading the whole input into a string.
+ */
+public interface ITestStreamingParamParser extends ITestParamParser {
+
+    /**
+     * Parses params read incrementally from the reader (e.g. large definition files), same syntax as {@link #parse(String)}.
+     */
+    ITestParamState parse(Reader params);
+
+    /**
+     * Reads the whole input, but only records where the values of the top-level and second-level keys are. They are parsed when requested with
+     * getElement, so large class-level definition files cost little when only some of their tests are used.
+     */
+    ITestParamState parseLazy(Reader params);
+}
@@ -0,0 +1,17 @@
+package org.itest.param;
+
+/**
+ * State walking its elements and attributes itself, used by {@link ITestParamStates} instead of getNames() and lookups by name.
+ */
+public interface ITestTraversableState extends ITestParamState {
+
+    /**
+     * @return cursor over elements, empty if there are none
+     */
+    ITestParamStateCursor elements();
+
+    /**
+     * @return cursor over attributes, empty if there are none
+     */
+    ITestParamStateCursor attributes();
+}
@@ -0,0 +1,18 @@
+package org.itest.verify;
+
+import java.util.Collection;
+
+import org.itest.param.ITestParamState;
+
+/**
+ * Verifier counting successful assertions instead of returning them, results are created only for failures.
+ */
+public interface ITestCountingExecutionVerifier extends ITestExecutionVerifier {
+
+    /**
+     * @param failures
+     *            receives failed assertions
+     * @return number of performed assertions, the same as size of {@link #verify(String, Object, ITestParamState)} result
+     */
+    int verify(String name, Object itestObject, ITestParamState stateParam, Collection<ITestFieldVerificationResult> failures);
+}
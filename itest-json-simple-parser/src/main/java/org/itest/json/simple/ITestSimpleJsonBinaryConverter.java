@@ -0,0 +1,119 @@
+package org.itest.json.simple;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.itest.ITestConstants;
+import org.itest.json.simple.format.SimpleJsonStateFormatter;
+import org.itest.param.ITestParamState;
+import org.itest.util.param.ITestParamStateCodec;
+
+/**
+ * Converts definition files between simplified json ({@value org.itest.ITestConstants#DEFINITION_SUFFIX}) and binary form
+ * ({@value org.itest.ITestConstants#BINARY_DEFINITION_SUFFIX}, see {@link ITestParamStateCodec}), so large static datasets can be shipped pre-encoded.<br/>
+ * Usage: ITestSimpleJsonBinaryConverter [-navigable] &lt;file or directory&gt; [&lt;output file&gt;]. Direction is given by the input suffix,
+ * output is the input with the other suffix by default, it is written to a temporary file and then renamed. All .itest.json files of a directory are encoded. -navigable writes the form read in place
+ * from memory mapped file, for large datasets.
+ */
+public class ITestSimpleJsonBinaryConverter {
+
+    public static void main(String... args) throws IOException {
+        boolean navigable = args.length > 0 && "-navigable".equals(args[0]);
+        int first = navigable ? 1 : 0;
+        if ( args.length - first < 1 || args.length - first > 2 ) {
+            System.err.println("Usage: " + ITestSimpleJsonBinaryConverter.class.getName() + " [-navigable] <file or directory> [<output file>]");
+            System.exit(1);
+        }
+        File input = new File(args[first]);
+        if ( input.isDirectory() ) {
+            List<File> files = new ArrayList<File>();
+            collectFiles(input, files);
+            for (File file : files) {
+                System.out.println(convert(file, null, navigable));
+            }
+        } else {
+            System.out.println(convert(input, args.length - first > 1 ? new File(args[first + 1]) : null, navigable));
+        }
+    }
+
+    /**
+     * @param output
+     *            output file or null for the input with the other suffix
+     * @param navigable
+     *            binary output in navigable form, see {@link ITestParamStateCodec#encodeNavigable(ITestParamState)}
+     * @return output file
+     */
+    public static File convert(File input, File output, boolean navigable) throws IOException {
+        String name = input.getName();
+        if ( name.endsWith(ITestConstants.BINARY_DEFINITION_SUFFIX) ) {
+            if ( null == output ) {
+                output = new File(input.getParentFile(), name.substring(0, name.length() - ITestConstants.BINARY_DEFINITION_SUFFIX.length())
+                        + ITestConstants.DEFINITION_SUFFIX);
+            }
+            toJson(input, output);
+        } else {
+            if ( null == output ) {
+                String base = name.endsWith(ITestConstants.DEFINITION_SUFFIX) ? name.substring(0, name.length()
+                        - ITestConstants.DEFINITION_SUFFIX.length()) : name;
+                output = new File(input.getParentFile(), base + ITestConstants.BINARY_DEFINITION_SUFFIX);
+            }
+            toBinary(input, output, navigable);
+        }
+        return output;
+    }
+
+    public static void toBinary(File json, File bin, boolean navigable) throws IOException {
+        ITestParamState state;
+        Reader reader = new InputStreamReader(new FileInputStream(json), "UTF-8");
+        try {
+            state = new ITestSimpleJsonParamParserImpl().parse(reader);
+        } finally {
+            reader.close();
+        }
+        if ( navigable ) {
+            ITestParamStateCodec.writeNavigable(state, bin);
+        } else {
+            ITestParamStateCodec.write(state, bin);
+        }
+    }
+
+    public static void toJson(File bin, File json) throws IOException {
+        ITestParamState state = ITestParamStateCodec.read(bin);
+        File tmp = ITestParamStateCodec.createTempFile(json);
+        try {
+            Writer writer = new OutputStreamWriter(new FileOutputStream(tmp), "UTF-8");
+            try {
+                if ( null != state ) {
+                    new SimpleJsonStateFormatter().format(state, writer);
+                }
+            } finally {
+                writer.close();
+            }
+            ITestParamStateCodec.replace(tmp, json);
+        } finally {
+            tmp.delete();
+        }
+    }
+
+    private static void collectFiles(File dir, List<File> res) {
+        File[] files = dir.listFiles();
+        if ( null == files ) {
+            return;
+        }
+        for (File file : files) {
+            if ( file.isDirectory() ) {
+                collectFiles(file, res);
+            } else if ( file.getName().endsWith(ITestConstants.DEFINITION_SUFFIX) ) {
+                res.add(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package org.itest.json.simple;
+
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.Map;
+
+import org.itest.param.ITestIndexedState;
+import org.itest.param.ITestParamState;
+import org.itest.param.ITestParamStateCursor;
+import org.itest.param.ITestParamStates;
+import org.itest.param.ITestTraversableState;
+
+/**
+ * Json array kept as an array: elements are named "0".."size-1" (empty slots are null elements), names are generated on demand.
+ */
+public class ITestSimpleJsonIndexedState implements ITestTraversableState, ITestIndexedState {
+
+    private final ITestParamState[] elements;
+
+    private final int size;
+
+    private final Map<String, String> attributes;
+
+    public ITestSimpleJsonIndexedState(ITestParamState[] elements, Map<String, String> attributes) {
+        this.elements = elements;
+        this.size = elements.length;
+        this.attributes = attributes;
+    }
+
+    /**
+     * For subclasses keeping elements in another form, {@link #item(int)} has to be overridden.
+     */
+    protected ITestSimpleJsonIndexedState(int size, Map<String, String> attributes) {
+        this.elements = null;
+        this.size = size;
+        this.attributes = attributes;
+    }
+
+    protected ITestParamState item(int index) {
+        return elements[index];
+    }
+
+    @Override
+    public Integer getSizeParam() {
+        return size;
+    }
+
+    @Override
+    public Collection<String> getNames() {
+        return new AbstractList<String>() {
+            @Override
+            public String get(int index) {
+                if ( index < 0 || index >= size ) {
+                    throw new IndexOutOfBoundsException(String.valueOf(index));
+                }
+                return String.valueOf(index);
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return o instanceof String && toIndex((String) o) >= 0;
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public ITestParamState getElement(String name) {
+        int index = toIndex(name);
+        return index < 0 ? null : item(index);
+    }
+
+    @Override
+    public boolean isIndexed() {
+        return true;
+    }
+
+    @Override
+    public ITestParamState getElement(int index) {
+        return index < 0 || index >= size ? null : item(index);
+    }
+
+    @Override
+    public String getValue() {
+        return null;
+    }
+
+    @Override
+    public String getAttribute(String name) {
+        return null == attributes ? null : attributes.get(name);
+    }
+
+    @Override
+    public Iterable<String> getAttributeNames() {
+        return null == attributes ? null : attributes.keySet();
+    }
+
+    @Override
+    public ITestParamStateCursor elements() {
+        return ITestParamStates.indexed(this);
+    }
+
+    @Override
+    public ITestParamStateCursor attributes() {
+        return ITestParamStates.attributes(attributes);
+    }
+
+    Map<String, String> getAttributes() {
+        return attributes;
+    }
+
+    /**
+     * @return index for the element name or -1 if it is not a name of an element ("01" is not, as it was never a key of the array map)
+     */
+    private int toIndex(String name) {
+        int length = null == name ? 0 : name.length();
+        if ( 0 == length || length > 10 || (length > 1 && '0' == name.charAt(0)) ) {
+            return -1;
+        }
+        long index = 0;
+        for (int i = 0; i < length; i++) {
+            char c = name.charAt(i);
+            if ( c < '0' || c > '9' ) {
+                return -1;
+            }
+            index = index * 10 + (c - '0');
+        }
+        return index < size ? (int) index : -1;
+    }
+
+    public String toString() {
+        StringBuilder sb = new StringBuilder().append('{');
+        for (int i = 0; i < size; i++) {
+            if ( i > 0 ) {
+                sb.append(", ");
+            }
+            sb.append(i).append('=').append(item(i));
+        }
+        return sb.append('}').toString();
+    }
+}
@@ -0,0 +1,102 @@
+package org.itest.json.simple;
+
+import java.util.Collection;
+import java.util.Map;
+
+import org.itest.json.simple.impl.SimpleJsonTokenizer;
+import org.itest.param.ITestParamState;
+import org.itest.util.param.ITestCompactMap;
+
+/**
+ * Json object whose values are kept as offsets into the input and parsed on first {@link #getElement(String)}. Names, their order and attributes are
+ * the same as {@link ITestSimpleJsonStateReader#read()} gives, objects with '_' key are not read lazily.
+ */
+class ITestSimpleJsonLazyState implements ITestParamState {
+
+    private final char[] buf;
+
+    private final int end;
+
+    private final ITestSimpleJsonStateTable table;
+
+    /**
+     * levels of objects below this one to be read lazily
+     */
+    private final int levels;
+
+    private final Map<String, Integer> starts;
+
+    private final Map<String, ITestParamState> elements = new ITestCompactMap<ITestParamState>();
+
+    private final Map<String, String> attributes;
+
+    private ITestSimpleJsonLazyState(char[] buf, int end, ITestSimpleJsonStateTable table, int levels, Map<String, Integer> starts,
+            Map<String, String> attributes) {
+        this.buf = buf;
+        this.end = end;
+        this.table = table;
+        this.levels = levels;
+        this.starts = starts;
+        this.attributes = attributes;
+    }
+
+    /**
+     * Reads the object at start, values of its keys are read lazily down to the given levels of objects. Input ends at end, not with the object:
+     * the tokenizer looks at the char after a value.
+     */
+    static ITestParamState read(char[] buf, int start, int end, int levels, ITestSimpleJsonStateTable table) {
+        Map<String, Integer> starts = new ITestCompactMap<Integer>();
+        Map<String, String> attributes = new ITestCompactMap<String>();
+        if ( new ITestSimpleJsonStateReader(new SimpleJsonTokenizer(buf, start, end), table).scan(starts, attributes) ) {
+            return new ITestSimpleJsonLazyState(buf, end, table, levels, starts, attributes.isEmpty() ? null : attributes);
+        }
+        return new ITestSimpleJsonStateReader(new SimpleJsonTokenizer(buf, start, end), table).read();
+    }
+
+    @Override
+    public Integer getSizeParam() {
+        return starts.size();
+    }
+
+    @Override
+    public Collection<String> getNames() {
+        return starts.keySet();
+    }
+
+    @Override
+    public synchronized ITestParamState getElement(String name) {
+        ITestParamState res = elements.get(name);
+        if ( null == res ) {
+            Integer start = starts.get(name);
+            if ( null == start ) {
+                return null;
+            }
+            if ( levels > 0 && '{' == new SimpleJsonTokenizer(buf, start, end).nextClean() ) {
+                res = read(buf, start, end, levels - 1, table);
+            } else {
+                res = new ITestSimpleJsonStateReader(new SimpleJsonTokenizer(buf, start, end), table).read();
+            }
+            elements.put(name, res);
+        }
+        return res;
+    }
+
+    @Override
+    public String getValue() {
+        return null;
+    }
+
+    @Override
+    public String getAttribute(String name) {
+        return null == attributes ? null : attributes.get(name);
+    }
+
+    @Override
+    public Iterable<String> getAttributeNames() {
+        return null == attributes ? null : attributes.keySet();
+    }
+
+    public String toString() {
+        return starts.keySet().toString();
+    }
+}
@@ -0,0 +1,108 @@
+package org.itest.json.simple;
+
+import java.util.List;
+import java.util.Map;
+
+import org.itest.param.ITestParamState;
+import org.itest.param.ITestPrimitiveArrayState;
+
+/**
+ * Json array of numbers kept as long[] or double[]. Only arrays whose every value is the canonical string of the number (Long.toString,
+ * Double.toString) are packed, so leaves have exactly the parsed values. Leaves are created on first access and kept, so repeated access
+ * returns the same state.
+ */
+public class ITestSimpleJsonPackedState extends ITestSimpleJsonIndexedState implements ITestPrimitiveArrayState {
+
+    private final long[] longs;
+
+    private final double[] doubles;
+
+    private ITestParamState[] leaves;
+
+    public ITestSimpleJsonPackedState(long[] longs, Map<String, String> attributes) {
+        super(longs.length, attributes);
+        this.longs = longs;
+        this.doubles = null;
+    }
+
+    public ITestSimpleJsonPackedState(double[] doubles, Map<String, String> attributes) {
+        super(doubles.length, attributes);
+        this.longs = null;
+        this.doubles = doubles;
+    }
+
+    @Override
+    public Object getPrimitiveArray() {
+        return null == longs ? doubles : longs;
+    }
+
+    @Override
+    protected synchronized ITestParamState item(int index) {
+        if ( null == leaves ) {
+            leaves = new ITestParamState[null == longs ? doubles.length : longs.length];
+        }
+        ITestParamState res = leaves[index];
+        if ( null == res ) {
+            res = new ITestSimpleJsonState(null == longs ? Double.toString(doubles[index]) : Long.toString(longs[index]), null, null);
+            leaves[index] = res;
+        }
+        return res;
+    }
+
+    /**
+     * @return long[] or double[] with the values or null if they are not all canonical numbers of one type
+     */
+    static Object pack(List<String> values) {
+        int size = values.size();
+        if ( 0 == size ) {
+            return null;
+        }
+        long[] longs = new long[size];
+        for (int i = 0; i < size; i++) {
+            String value = values.get(i);
+            if ( !isNumber(value) ) {
+                return null;
+            }
+            try {
+                longs[i] = Long.parseLong(value);
+            } catch (NumberFormatException e) {
+                longs = null;
+                break;
+            }
+            if ( !Long.toString(longs[i]).equals(value) ) {
+                longs = null;
+                break;
+            }
+        }
+        if ( null != longs ) {
+            return longs;
+        }
+        double[] doubles = new double[size];
+        for (int i = 0; i < size; i++) {
+            String value = values.get(i);
+            if ( !isNumber(value) ) {
+                return null;
+            }
+            try {
+                doubles[i] = Double.parseDouble(value);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            if ( !Double.toString(doubles[i]).equals(value) ) {
+                return null;
+            }
+        }
+        return doubles;
+    }
+
+    /**
+     * cheap check before parsing, to avoid exceptions for arrays of strings
+     */
+    private static boolean isNumber(String value) {
+        if ( null == value || 0 == value.length() ) {
+            return false;
+        }
+        char c = value.charAt('-' == value.charAt(0) && value.length() > 1 ? 1 : 0);
+        return c >= '0' && c <= '9';
+    }
+}
@@ -25,25 +25,47 @@
  */
 package org.itest.json.simple;
 
-import org.itest.json.simple.impl.SimpleJsonParser;
-import org.itest.json.simple.impl.SimpleJsonState;
-import org.itest.param.ITestParamParser;
+import java.io.Reader;
+
+import org.itest.json.simple.impl.SimpleJsonTokenizer;
 import org.itest.param.ITestParamState;
+import org.itest.param.ITestStreamingParamParser;
+
+public class ITestSimpleJsonParamParserImpl implements ITestStreamingParamParser {
 
-public class ITestSimpleJsonParamParserImpl implements ITestParamParser {
+    private final ITestSimpleJsonStateTable table;
+
+    public ITestSimpleJsonParamParserImpl() {
+        this(false);
+    }
+
+    /**
+     * @param shareSubtrees
+     *            structurally equal subtrees of all parsed params are replaced with one shared instance, kept as long as the parser
+     */
+    public ITestSimpleJsonParamParserImpl(boolean shareSubtrees) {
+        this.table = shareSubtrees ? new ITestSimpleJsonStateTable() : null;
+    }
 
     @Override
     public ITestParamState parse(String params) {
         if ( null == params || 0 == params.length() ) {
             return null;
         }
-        StringBuilder sb = new StringBuilder(params);
-        if ( '{' != sb.charAt(0) ) {
-            sb.insert(0, '{');
-            sb.append('}');
-        }
-        SimpleJsonState simpleJsonState = SimpleJsonParser.readFrom(sb.toString());
-        return new ITestSimpleJsonState(simpleJsonState);
+        return new ITestSimpleJsonStateReader(SimpleJsonTokenizer.forObject(params), table).read();
+    }
+
+    @Override
+    public ITestParamState parse(Reader params) {
+        SimpleJsonTokenizer x = new SimpleJsonTokenizer(params);
+        return x.isEmpty() ? null : new ITestSimpleJsonStateReader(x, table).read();
+    }
+
+    @Override
+    public ITestParamState parseLazy(Reader params) {
+        // input is read once into the array the lazy state keeps
+        SimpleJsonTokenizer x = SimpleJsonTokenizer.readFully(params);
+        return null == x ? null : ITestSimpleJsonLazyState.read(x.getBuffer(), (int) x.getPosition(), x.getEnd(), 1, table);
     }
 
 }
@@ -26,11 +26,15 @@
 package org.itest.json.simple;
 
 import org.itest.json.simple.impl.SimpleJsonState;
+import org.itest.param.ITestIndexedState;
 import org.itest.param.ITestParamState;
+import org.itest.param.ITestParamStateCursor;
+import org.itest.param.ITestTraversableState;
+import org.itest.util.param.ITestCompactMap;
 
 import java.util.*;
 
-public class ITestSimpleJsonState implements ITestParamState {
+public class ITestSimpleJsonState implements ITestTraversableState, ITestIndexedState {
 
     private String value;
 
@@ -38,6 +42,12 @@ public class ITestSimpleJsonState implements ITestParamState {
 
     private Map<String, String> attributes;
 
+    ITestSimpleJsonState(String value, Map<String, ITestParamState> elements, Map<String, String> attributes) {
+        this.value = value;
+        this.elements = elements;
+        this.attributes = attributes;
+    }
+
     public ITestSimpleJsonState(SimpleJsonState simpleJsonState) {
         Iterable<String> i = simpleJsonState.names();
         if ( null == i ) {
@@ -80,7 +90,7 @@ public class ITestSimpleJsonState implements ITestParamState {
 
     private void addAttribute(String key, String value) {
         if ( null == attributes ) {
-            attributes = new HashMap<String, String>();
+            attributes = new ITestCompactMap<String>();
         }
         attributes.put(key, value);
     }
@@ -100,6 +110,16 @@ public class ITestSimpleJsonState implements ITestParamState {
         return null == elements ? null : elements.get(name);
     }
 
+    @Override
+    public boolean isIndexed() {
+        return false;
+    }
+
+    @Override
+    public ITestParamState getElement(int index) {
+        return getElement(String.valueOf(index));
+    }
+
     @Override
     public String getValue() {
         return value;
@@ -114,11 +134,25 @@ public class ITestSimpleJsonState implements ITestParamState {
         return null == attributes ? null : attributes.keySet();
     }
 
+    @Override
+    public ITestParamStateCursor elements() {
+        return ITestCompactMap.elements(elements);
+    }
+
+    @Override
+    public ITestParamStateCursor attributes() {
+        return ITestCompactMap.attributes(attributes);
+    }
+
+    Map<String, String> getAttributes() {
+        return attributes;
+    }
+
     private static Map<String, String> emptyMap() {
         return Collections.emptyMap();
     }
     public static Map<String, ITestParamState> createElements(){
-        return new LinkedHashMap<String,ITestParamState>();
+        return new ITestCompactMap<ITestParamState>();
     }
 
     public String toString() {
@@ -0,0 +1,375 @@
+package org.itest.json.simple;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.itest.json.simple.impl.SimpleJsonTokenizer;
+import org.itest.param.ITestParamState;
+import org.itest.util.param.ITestCompactMap;
+
+/**
+ * Reads simplified json straight into {@link ITestSimpleJsonState} nodes, with the same result as SimpleJsonParser followed by
+ * {@link ITestSimpleJsonState#ITestSimpleJsonState(org.itest.json.simple.impl.SimpleJsonState)}: '@' keys become attributes, '_' key gives the value
+ * or its elements are folded into the parent. Duplicated keys keep position of the first occurrence and the last value. Arrays are read into
+ * {@link ITestSimpleJsonIndexedState}, arrays of numbers into {@link ITestSimpleJsonPackedState}.
+ */
+class ITestSimpleJsonStateReader {
+
+    private static final String VALUE_KEY = "_";
+
+    /**
+     * returned by readKey() at the end of object, key may be null ("null" is read as null)
+     */
+    private static final String END = new String("}");
+
+    private final SimpleJsonTokenizer x;
+
+    /**
+     * shares equal subtrees if not null
+     */
+    private final ITestSimpleJsonStateTable table;
+
+    ITestSimpleJsonStateReader(SimpleJsonTokenizer x, ITestSimpleJsonStateTable table) {
+        this.x = x;
+        this.table = table;
+    }
+
+    ITestParamState read() {
+        switch (peek()) {
+            case '{':
+                return readObject();
+            case '[':
+                return toState(readArray(), null);
+            default:
+                return share(new ITestSimpleJsonState(x.nextValue(), null, null));
+        }
+    }
+
+    /**
+     * @return true if next value is an object or an array
+     */
+    private boolean isStructure() {
+        char c = peek();
+        return '{' == c || '[' == c;
+    }
+
+    private char peek() {
+        char c = x.nextClean();
+        x.back();
+        return c;
+    }
+
+    /**
+     * @return array items (null for empty slots) or long[]/double[] if all items are numbers
+     */
+    private Object readArray() {
+        List<ITestParamState> items = new ArrayList<ITestParamState>();
+        // values of leading leaf items, their states are created only if the array can not be packed
+        List<String> values = new ArrayList<String>();
+        boolean leaves = true;
+        if ( x.nextClean() != '[' ) {
+            throw x.syntaxError("A JSONArray text must start with '['");
+        }
+        char c;
+        L: for (;;) {
+            c = x.nextClean();
+            switch (c) {
+                case ',':
+                    if ( leaves ) {
+                        addLeaves(items, values);
+                        leaves = false;
+                    }
+                    items.add(null);
+                    break;
+                case ']':
+                    break L;
+                default:
+                    x.back();
+                    if ( leaves && !isStructure() ) {
+                        values.add(x.nextValue());
+                    } else {
+                        if ( leaves ) {
+                            addLeaves(items, values);
+                            leaves = false;
+                        }
+                        items.add(read());
+                    }
+                    c = x.nextClean();
+                    if ( ']' == c ) {
+                        break L;
+                    } else if ( ',' == c ) {
+                    } else {
+                        throw x.syntaxError("Expected a ',' or ']'");
+                    }
+            }
+        }
+        if ( leaves ) {
+            Object packed = ITestSimpleJsonPackedState.pack(values);
+            if ( null != packed ) {
+                return packed;
+            }
+            addLeaves(items, values);
+        }
+        return items.toArray(new ITestParamState[items.size()]);
+    }
+
+    private void addLeaves(List<ITestParamState> items, List<String> values) {
+        for (String value : values) {
+            items.add(share(new ITestSimpleJsonState(value, null, null)));
+        }
+        values.clear();
+    }
+
+    private ITestSimpleJsonIndexedState toState(Object items, Map<String, String> attributes) {
+        if ( items instanceof long[] ) {
+            return share(new ITestSimpleJsonPackedState((long[]) items, attributes));
+        } else if ( items instanceof double[] ) {
+            return share(new ITestSimpleJsonPackedState((double[]) items, attributes));
+        }
+        return share(new ITestSimpleJsonIndexedState((ITestParamState[]) items, attributes));
+    }
+
+    private <T extends ITestParamState> T share(T state) {
+        return null == table ? state : table.share(state);
+    }
+
+    private ITestParamState readObject() {
+        Map<String, ITestParamState> elements = null;
+        Map<String, String> attributes = null;
+        boolean valueKey = false;
+        // elements present before the first '_' key
+        int valueKeyPosition = 0;
+        String value = null;
+        Map<String, ITestParamState> valueElements = null;
+        Object valueItems = null;
+
+        if ( x.nextClean() != '{' ) {
+            throw x.syntaxError("A JSONObject text must begin with '{'");
+        }
+        L: for (;;) {
+            String key = readKey();
+            if ( END == key ) {
+                break L;
+            }
+            if ( key.startsWith("@") ) {
+                String attribute = isStructure() ? skip() : x.nextValue();
+                if ( null == attributes ) {
+                    attributes = new ITestCompactMap<String>();
+                }
+                attributes.put(ITestSimpleJsonSymbols.intern(key.substring(1)), attribute);
+            } else if ( VALUE_KEY.equals(key) ) {
+                if ( !valueKey ) {
+                    valueKey = true;
+                    valueKeyPosition = null == elements ? 0 : elements.size();
+                }
+                valueElements = null;
+                valueItems = null;
+                value = null;
+                switch (peek()) {
+                    case '{':
+                        valueElements = readRaw();
+                        break;
+                    case '[':
+                        valueItems = readArray();
+                        break;
+                    default:
+                        value = x.nextValue();
+                }
+            } else {
+                if ( null == elements ) {
+                    elements = ITestSimpleJsonState.createElements();
+                }
+                elements.put(key, read());
+            }
+            if ( readSeparator() ) {
+                break L;
+            }
+        }
+        if ( null != valueItems ) {
+            ITestSimpleJsonIndexedState array = toState(valueItems, attributes);
+            if ( null == elements ) {
+                return array;
+            }
+            valueElements = ITestSimpleJsonState.createElements();
+            for (int i = 0, size = array.getSizeParam(); i < size; i++) {
+                valueElements.put(String.valueOf(i), array.getElement(i));
+            }
+        }
+        if ( null != valueElements ) {
+            elements = fold(elements, valueKeyPosition, valueElements);
+        }
+        if ( (!valueKey || null != valueElements) && null == elements ) {
+            elements = ITestSimpleJsonState.createElements();
+        }
+        return share(new ITestSimpleJsonState(value, elements, attributes));
+    }
+
+    /**
+     * Puts elements of '_' key at its position: after keys which occurred before it, later keys override them.
+     */
+    private static Map<String, ITestParamState> fold(Map<String, ITestParamState> elements, int position, Map<String, ITestParamState> valueElements) {
+        if ( null == elements ) {
+            elements = ITestSimpleJsonState.createElements();
+        }
+        if ( position == elements.size() ) {
+            elements.putAll(valueElements);
+            return elements;
+        }
+        Map<String, ITestParamState> res = ITestSimpleJsonState.createElements();
+        Iterator<Map.Entry<String, ITestParamState>> iterator = elements.entrySet().iterator();
+        for (int i = 0; i < position; i++) {
+            Map.Entry<String, ITestParamState> entry = iterator.next();
+            res.put(entry.getKey(), entry.getValue());
+        }
+        res.putAll(valueElements);
+        while (iterator.hasNext()) {
+            Map.Entry<String, ITestParamState> entry = iterator.next();
+            res.put(entry.getKey(), entry.getValue());
+        }
+        return res;
+    }
+
+    /**
+     * Object under '_' key: all its keys (including '@' and '_') are plain element names.
+     */
+    private Map<String, ITestParamState> readRaw() {
+        Map<String, ITestParamState> elements = ITestSimpleJsonState.createElements();
+        if ( x.nextClean() != '{' ) {
+            throw x.syntaxError("A JSONObject text must begin with '{'");
+        }
+        for (;;) {
+            String key = readKey();
+            if ( END == key ) {
+                break;
+            }
+            elements.put(key, read());
+            if ( readSeparator() ) {
+                break;
+            }
+        }
+        return elements;
+    }
+
+    /**
+     * Reads keys of an object recording where their values start, the values are skipped. '@' keys are read as attributes, duplicated keys keep
+     * position of the first occurrence and start of the last value.
+     *
+     * @return false if the object has '_' key, it has to be read with {@link #read()}
+     */
+    boolean scan(Map<String, Integer> starts, Map<String, String> attributes) {
+        if ( x.nextClean() != '{' ) {
+            throw x.syntaxError("A JSONObject text must begin with '{'");
+        }
+        for (;;) {
+            String key = readKey();
+            if ( END == key ) {
+                break;
+            }
+            if ( key.startsWith("@") ) {
+                attributes.put(ITestSimpleJsonSymbols.intern(key.substring(1)), isStructure() ? skip() : x.nextValue());
+            } else if ( VALUE_KEY.equals(key) ) {
+                return false;
+            } else {
+                starts.put(key, (int) x.getPosition());
+                skipValue();
+            }
+            if ( readSeparator() ) {
+                break;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads and drops a structure, attributes keep only plain values.
+     */
+    private String skip() {
+        skipValue();
+        return null;
+    }
+
+    /**
+     * Reads a value without creating states.
+     */
+    private void skipValue() {
+        switch (peek()) {
+            case '{':
+                x.nextClean();
+                for (;;) {
+                    if ( END == readKey() ) {
+                        break;
+                    }
+                    skipValue();
+                    if ( readSeparator() ) {
+                        break;
+                    }
+                }
+                break;
+            case '[':
+                x.nextClean();
+                L: for (;;) {
+                    switch (x.nextClean()) {
+                        case ',':
+                            break;
+                        case ']':
+                            break L;
+                        default:
+                            x.back();
+                            skipValue();
+                            char c = x.nextClean();
+                            if ( ']' == c ) {
+                                break L;
+                            } else if ( ',' != c ) {
+                                throw x.syntaxError("Expected a ',' or ']'");
+                            }
+                    }
+                }
+                break;
+            default:
+                x.nextValue();
+        }
+    }
+
+    /**
+     * Reads the key and ':' after it.
+     *
+     * @return the key or {@link #END}
+     */
+    private String readKey() {
+        char c = x.nextClean();
+        switch (c) {
+            case 0:
+                throw x.syntaxError("A JSONObject text must end with '}'");
+            case '}':
+                return END;
+            default:
+                x.back();
+        }
+        String key = ITestSimpleJsonSymbols.intern(x.nextValue());
+        if ( x.nextClean() != ':' ) {
+            throw x.syntaxError("Expected a ':' after a key");
+        }
+        return key;
+    }
+
+    /**
+     * @return true at the end of object
+     */
+    private boolean readSeparator() {
+        switch (x.nextClean()) {
+            case ';':
+            case ',':
+                if ( x.nextClean() == '}' ) {
+                    return true;
+                }
+                x.back();
+                return false;
+            case '}':
+                return true;
+            default:
+                throw x.syntaxError("Expected a ',' or '}'");
+        }
+    }
+}
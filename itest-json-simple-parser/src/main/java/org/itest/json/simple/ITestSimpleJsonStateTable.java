@@ -0,0 +1,131 @@
+package org.itest.json.simple;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.itest.param.ITestParamState;
+import org.itest.param.ITestParamStateCursor;
+import org.itest.param.ITestParamStates;
+
+/**
+ * Hash-consing of parsed states: structurally equal subtrees are replaced with one shared instance. States are added bottom-up, so children of
+ * equal states are already the same instances and are compared by identity. Shared states are kept as long as the table.
+ */
+class ITestSimpleJsonStateTable {
+
+    private final ConcurrentMap<Key, ITestParamState> states = new ConcurrentHashMap<Key, ITestParamState>();
+
+    /**
+     * @return the state or an equal one added before
+     */
+    <T extends ITestParamState> T share(T state) {
+        @SuppressWarnings("unchecked")
+        T res = (T) states.putIfAbsent(new Key(state), state);
+        return null == res ? state : res;
+    }
+
+    int size() {
+        return states.size();
+    }
+
+    private static final class Key {
+        private final ITestParamState state;
+
+        private final int hash;
+
+        Key(ITestParamState state) {
+            this.state = state;
+            this.hash = hash(state);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if ( !(obj instanceof Key) ) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return hash == other.hash && same(state, other.state);
+        }
+    }
+
+    private static int hash(ITestParamState state) {
+        int h = state.getClass().hashCode();
+        h = 31 * h + (null == state.getValue() ? 0 : state.getValue().hashCode());
+        Map<String, String> attributes = getAttributes(state);
+        h = 31 * h + (null == attributes ? 0 : attributes.hashCode());
+        if ( state instanceof ITestSimpleJsonPackedState ) {
+            Object array = ((ITestSimpleJsonPackedState) state).getPrimitiveArray();
+            h = 31 * h + (array instanceof long[] ? Arrays.hashCode((long[]) array) : Arrays.hashCode((double[]) array));
+        } else if ( ITestParamStates.isIndexed(state) ) {
+            for (int i = 0, size = state.getSizeParam(); i < size; i++) {
+                h = 31 * h + System.identityHashCode(ITestParamStates.getElement(state, i));
+            }
+        } else {
+            for (ITestParamStateCursor cursor = ITestParamStates.elements(state); cursor.next();) {
+                String name = cursor.getName();
+                h = 31 * h + (null == name ? 0 : name.hashCode());
+                h = 31 * h + System.identityHashCode(cursor.getElement());
+            }
+        }
+        return h;
+    }
+
+    private static boolean same(ITestParamState s1, ITestParamState s2) {
+        if ( s1.getClass() != s2.getClass() || !equal(s1.getValue(), s2.getValue()) || !equal(getAttributes(s1), getAttributes(s2)) ) {
+            return false;
+        }
+        if ( s1 instanceof ITestSimpleJsonPackedState ) {
+            Object a1 = ((ITestSimpleJsonPackedState) s1).getPrimitiveArray();
+            Object a2 = ((ITestSimpleJsonPackedState) s2).getPrimitiveArray();
+            if ( a1 instanceof long[] ) {
+                return a2 instanceof long[] && Arrays.equals((long[]) a1, (long[]) a2);
+            }
+            return a2 instanceof double[] && Arrays.equals((double[]) a1, (double[]) a2);
+        }
+        if ( ITestParamStates.isIndexed(s1) ) {
+            int size = s1.getSizeParam();
+            if ( size != s2.getSizeParam() ) {
+                return false;
+            }
+            for (int i = 0; i < size; i++) {
+                if ( ITestParamStates.getElement(s1, i) != ITestParamStates.getElement(s2, i) ) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        Collection<String> names1 = s1.getNames();
+        Collection<String> names2 = s2.getNames();
+        if ( null == names1 || null == names2 ) {
+            return names1 == names2;
+        }
+        if ( names1.size() != names2.size() ) {
+            return false;
+        }
+        for (ITestParamStateCursor c1 = ITestParamStates.elements(s1), c2 = ITestParamStates.elements(s2); c1.next();) {
+            if ( !c2.next() || !equal(c1.getName(), c2.getName()) || c1.getElement() != c2.getElement() ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Map<String, String> getAttributes(ITestParamState state) {
+        if ( state instanceof ITestSimpleJsonIndexedState ) {
+            return ((ITestSimpleJsonIndexedState) state).getAttributes();
+        }
+        return ((ITestSimpleJsonState) state).getAttributes();
+    }
+
+    private static boolean equal(Object o1, Object o2) {
+        return null == o1 ? null == o2 : o1.equals(o2);
+    }
+}
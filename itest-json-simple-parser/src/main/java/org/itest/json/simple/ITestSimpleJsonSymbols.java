@@ -0,0 +1,34 @@
+package org.itest.json.simple;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Symbol table for keys of parsed definitions: the same keys (T, A, R, field names) repeated in all definitions share one String instance.
+ */
+class ITestSimpleJsonSymbols {
+
+    /**
+     * keys are not interned any more above this size, the table is never cleared
+     */
+    private static final int MAX_SIZE = 64 * 1024;
+
+    private static final ConcurrentMap<String, String> SYMBOLS = new ConcurrentHashMap<String, String>();
+
+    static String intern(String key) {
+        if ( null == key ) {
+            return null;
+        }
+        String res = SYMBOLS.get(key);
+        if ( null == res ) {
+            if ( SYMBOLS.size() >= MAX_SIZE ) {
+                return key;
+            }
+            res = SYMBOLS.putIfAbsent(key, key);
+            if ( null == res ) {
+                res = key;
+            }
+        }
+        return res;
+    }
+}
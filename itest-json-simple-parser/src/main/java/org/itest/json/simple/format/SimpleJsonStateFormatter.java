@@ -0,0 +1,175 @@
+package org.itest.json.simple.format;
+
+import org.itest.param.ITestParamState;
+import org.itest.param.ITestParamStateCursor;
+import org.itest.param.ITestParamStates;
+
+import java.io.IOException;
+import java.util.Collection;
+
+/**
+ * Writes {@link ITestParamState} trees back as compact simplified json (no whitespace, no comments).<br/>
+ * The output parsed again with {@link org.itest.json.simple.ITestSimpleJsonParamParserImpl} gives an equivalent state: names, values, attributes,
+ * empty array slots and the value/elements distinction are preserved.
+ */
+public class SimpleJsonStateFormatter {
+
+    private static final String STOP_CHARS = ",:]}\"'[{;=#";
+
+    public String format(ITestParamState state) {
+        StringBuilder sb = new StringBuilder();
+        format(state, sb);
+        return sb.toString();
+    }
+
+    public void format(ITestParamState state, Appendable out) {
+        try {
+            formatState(state, out);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void formatState(ITestParamState state, Appendable out) throws IOException {
+        if ( null == state ) {
+            out.append("null");
+            return;
+        }
+        Collection<String> names = state.getNames();
+        Iterable<String> attributeNames = state.getAttributeNames();
+        boolean hasAttributes = null != attributeNames && attributeNames.iterator().hasNext();
+        if ( null == names ) {
+            if ( hasAttributes ) {
+                out.append('{');
+                formatAttributes(state, out);
+                out.append(",_:");
+                formatValue(state.getValue(), out);
+                out.append('}');
+            } else {
+                formatValue(state.getValue(), out);
+            }
+        } else if ( null == state.getValue() && isArray(state, names) ) {
+            if ( hasAttributes ) {
+                out.append('{');
+                formatAttributes(state, out);
+                out.append(",_:");
+                formatArray(state, names.size(), out);
+                out.append('}');
+            } else {
+                formatArray(state, names.size(), out);
+            }
+        } else {
+            out.append('{');
+            boolean separator = false;
+            if ( hasAttributes ) {
+                formatAttributes(state, out);
+                separator = true;
+            }
+            if ( null != state.getValue() ) {
+                if ( separator ) {
+                    out.append(',');
+                }
+                out.append("_:");
+                formatValue(state.getValue(), out);
+                separator = true;
+            }
+            for (ITestParamStateCursor cursor = ITestParamStates.elements(state); cursor.next();) {
+                if ( separator ) {
+                    out.append(',');
+                }
+                formatValue(cursor.getName(), out);
+                out.append(':');
+                formatState(cursor.getElement(), out);
+                separator = true;
+            }
+            out.append('}');
+        }
+    }
+
+    private void formatAttributes(ITestParamState state, Appendable out) throws IOException {
+        boolean separator = false;
+        for (ITestParamStateCursor cursor = ITestParamStates.attributes(state); cursor.next();) {
+            if ( separator ) {
+                out.append(',');
+            }
+            formatValue('@' + cursor.getName(), out);
+            out.append(':');
+            formatValue(cursor.getValue(), out);
+            separator = true;
+        }
+    }
+
+    private void formatArray(ITestParamState state, int size, Appendable out) throws IOException {
+        out.append('[');
+        ITestParamState element = null;
+        for (int i = 0; i < size; i++) {
+            if ( i > 0 ) {
+                out.append(',');
+            }
+            element = ITestParamStates.getElement(state, i);
+            if ( null != element ) {
+                formatState(element, out);
+            }
+        }
+        if ( size > 0 && null == element ) {
+            // trailing empty slot needs explicit separator, [1,] is parsed as single element array
+            out.append(',');
+        }
+        out.append(']');
+    }
+
+    private static boolean isArray(ITestParamState state, Collection<String> names) {
+        if ( ITestParamStates.isIndexed(state) ) {
+            return true;
+        }
+        if ( names.isEmpty() ) {
+            return false;
+        }
+        for (int i = 0; i < names.size(); i++) {
+            if ( !names.contains(String.valueOf(i)) ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void formatValue(String value, Appendable out) throws IOException {
+        if ( null == value ) {
+            out.append("null");
+        } else if ( isSafeUnquoted(value) ) {
+            out.append(value);
+        } else {
+            char quote = hasUnescaped(value, '"') ? '\'' : '"';
+            out.append(quote).append(value).append(quote);
+        }
+    }
+
+    private static boolean isSafeUnquoted(String value) {
+        int length = value.length();
+        if ( 0 == length || '/' == value.charAt(0) || ' ' == value.charAt(0) || ' ' == value.charAt(length - 1) || "null".equalsIgnoreCase(value) ) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if ( c < ' ' || STOP_CHARS.indexOf(c) >= 0 ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean hasUnescaped(String value, char quote) {
+        boolean escapeNext = false;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if ( escapeNext ) {
+                escapeNext = false;
+            } else if ( '\\' == c ) {
+                escapeNext = true;
+            } else if ( quote == c ) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
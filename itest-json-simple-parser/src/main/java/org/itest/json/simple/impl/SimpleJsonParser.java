@@ -25,6 +25,7 @@
  */
 package org.itest.json.simple.impl;
 
+import java.io.Reader;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
@@ -37,6 +38,19 @@ public class SimpleJsonParser {
         return res;
     }
 
+    /**
+     * Reads the input incrementally, braces of the top level object are optional.
+     *
+     * @return null for empty input
+     */
+    public static SimpleJsonState readObjectFrom(Reader in) {
+        SimpleJsonTokenizer x = new SimpleJsonTokenizer(in);
+        if ( x.isEmpty() ) {
+            return null;
+        }
+        return new SimpleJsonParser().read(x);
+    }
+
     private SimpleJsonState read(SimpleJsonTokenizer x) {
         SimpleJsonState res;
         char c = x.nextClean();
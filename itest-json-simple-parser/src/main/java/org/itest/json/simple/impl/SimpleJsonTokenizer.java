@@ -25,15 +25,204 @@
  */
 package org.itest.json.simple.impl;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Tokenizer working on a char array with index arithmetic: whitespace, comments and token boundaries are found without per char calls, strings are
+ * created only for returned values.<br/>
+ * Reading from a {@link Reader} it keeps a fixed size buffer, refilled when exhausted. Only the token being read (and one char for {@link #back()})
+ * is kept, the buffer grows only for tokens longer than the buffer.
+ */
 public class SimpleJsonTokenizer {
 
+    private static final String STOP_CHARS = ",:]}\"[{;=#";
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private char[] buf;
+
+    private int length;
+
     private int index;
 
-    private final String source;
+    private final Reader reader;
+
+    private boolean eof;
+
+    /**
+     * implicit top level object: '}' to be appended at the end of input
+     */
+    private boolean closeImplicitObject;
+
+    /**
+     * chars dropped from the buffer, to report positions from the beginning of input
+     */
+    private long discarded;
 
     public SimpleJsonTokenizer(String s) {
-        this.index = 0;
-        this.source = s;
+        this(s.toCharArray(), s.length());
+    }
+
+    /**
+     * Tokenizer over the string, enclosed in braces if it does not start with '{' (as the reader based one does).
+     */
+    public static SimpleJsonTokenizer forObject(String s) {
+        int length = s.length();
+        if ( length > 0 && '{' == s.charAt(0) ) {
+            return new SimpleJsonTokenizer(s);
+        }
+        char[] buf = new char[length + 2];
+        buf[0] = '{';
+        s.getChars(0, length, buf, 1);
+        buf[length + 1] = '}';
+        return new SimpleJsonTokenizer(buf, length + 2);
+    }
+
+    public SimpleJsonTokenizer(char[] buf, int length) {
+        this(buf, 0, length);
+    }
+
+    /**
+     * Tokenizer over a part of the array, input ends at end.
+     */
+    public SimpleJsonTokenizer(char[] buf, int start, int end) {
+        this.buf = buf;
+        this.length = end;
+        this.index = start;
+        this.reader = null;
+        this.eof = true;
+    }
+
+    /**
+     * Array tokenizer over the whole input of the reader, read into one array grown while reading. If the input does not start with '{', it is
+     * read as if it was enclosed in braces, as by the reader based tokenizer: they are put around the input in the same array.
+     *
+     * @return null if there was nothing to read
+     */
+    public static SimpleJsonTokenizer readFully(Reader reader) {
+        char[] buf = new char[BUFFER_SIZE];
+        // first char is read at 1, so an implicit '{' can be put in front of it
+        int length = 1;
+        try {
+            for (int read; (read = reader.read(buf, length, buf.length - length)) >= 0;) {
+                length += read;
+                if ( length == buf.length ) {
+                    buf = Arrays.copyOf(buf, buf.length + (buf.length >> 1));
+                }
+            }
+        } catch (IOException e) {
+            throw new SimpleJsonException(e);
+        }
+        if ( 1 == length ) {
+            return null;
+        }
+        if ( '{' == buf[1] ) {
+            return new SimpleJsonTokenizer(buf, 1, length);
+        }
+        // the array is never full after reading
+        buf[0] = '{';
+        buf[length++] = '}';
+        return new SimpleJsonTokenizer(buf, 0, length);
+    }
+
+    /**
+     * @return array the tokenizer reads, for array based tokenizer the one it was created with
+     */
+    public char[] getBuffer() {
+        return buf;
+    }
+
+    /**
+     * @return end of input in the array of array based tokenizer
+     */
+    public int getEnd() {
+        return length;
+    }
+
+    /**
+     * @return number of chars read from the beginning of input (index into the array for array based tokenizer)
+     */
+    public long getPosition() {
+        return discarded + index;
+    }
+
+    /**
+     * Tokenizer over the reader. If the input does not start with '{', it is read as if it was enclosed in braces, the same way
+     * ITestSimpleJsonParamParserImpl treats string params.
+     */
+    public SimpleJsonTokenizer(Reader reader) {
+        this.buf = new char[BUFFER_SIZE];
+        this.reader = reader;
+        // first char is read at 1, so an implicit '{' can be put in front of it
+        this.length = 1;
+        fill(0);
+        if ( length > 1 ) {
+            if ( '{' == buf[1] ) {
+                index = 1;
+                discarded = -1;
+            } else {
+                buf[0] = '{';
+                closeImplicitObject = true;
+            }
+        } else {
+            length = 0;
+        }
+    }
+
+    /**
+     * @return true if there was nothing to read
+     */
+    public boolean isEmpty() {
+        return 0 == length && 0 == discarded;
+    }
+
+    /**
+     * Reads more input into the buffer, dropping chars before keep when the buffer is full.
+     *
+     * @return number of chars dropped, indexes into the buffer have to be shifted by this value
+     */
+    private int fill(int keep) {
+        if ( eof ) {
+            return 0;
+        }
+        int shift = 0;
+        if ( length == buf.length ) {
+            if ( keep > 0 ) {
+                System.arraycopy(buf, keep, buf, 0, length - keep);
+                length -= keep;
+                index -= keep;
+                discarded += keep;
+                shift = keep;
+            } else {
+                char[] newBuf = new char[buf.length * 2];
+                System.arraycopy(buf, 0, newBuf, 0, length);
+                buf = newBuf;
+            }
+        }
+        int read;
+        try {
+            read = reader.read(buf, length, buf.length - length);
+        } catch (IOException e) {
+            throw new SimpleJsonException(e);
+        }
+        if ( read < 0 ) {
+            eof = true;
+            if ( closeImplicitObject ) {
+                buf[length++] = '}';
+            }
+        } else {
+            length += read;
+        }
+        return shift;
+    }
+
+    /**
+     * first position to be kept in the buffer: previous char for back()
+     */
+    private int keep() {
+        return index > 0 ? index - 1 : 0;
     }
 
     public void back() {
@@ -43,104 +232,163 @@ public class SimpleJsonTokenizer {
     }
 
     public boolean more() {
-        return this.index < this.source.length();
+        while (index >= length && !eof) {
+            fill(keep());
+        }
+        return this.index < this.length;
     }
 
     public char next() {
         if ( more() ) {
-            char c = source.charAt(this.index);
-            this.index += 1;
-            return c;
+            return buf[index++];
         }
         return 0;
     }
 
     public char nextClean() throws SimpleJsonException {
         for (;;) {
-            char c = next();
+            int i = index;
+            for (;;) {
+                if ( i == length ) {
+                    index = i;
+                    if ( !more() ) {
+                        return 0;
+                    }
+                    i = index;
+                }
+                if ( buf[i] > ' ' || buf[i] == 0 ) {
+                    break;
+                }
+                i++;
+            }
+            char c = buf[i];
+            index = i + 1;
             if ( c == '/' ) {
                 switch (next()) {
                     case '/':
-                        do {
-                            c = next();
-                        } while (c != '\n' && c != '\r' && c != 0);
+                        skipLine();
                         break;
                     case '*':
-                        for (;;) {
-                            c = next();
-                            if ( c == 0 ) {
-                                throw syntaxError("Unclosed comment.");
-                            }
-                            if ( c == '*' ) {
-                                if ( next() == '/' ) {
-                                    break;
-                                }
-                                back();
-                            }
-                        }
+                        skipComment();
                         break;
                     default:
                         back();
                         return '/';
                 }
             } else if ( c == '#' ) {
-                do {
-                    c = next();
-                } while (c != '\n' && c != '\r' && c != 0);
-            } else if ( c == 0 || c > ' ' ) {
+                skipLine();
+            } else {
                 return c;
             }
         }
     }
 
+    private void skipLine() {
+        while (more()) {
+            char c = buf[index++];
+            if ( c == '\n' || c == '\r' || c == 0 ) {
+                return;
+            }
+        }
+    }
+
+    private void skipComment() throws SimpleJsonException {
+        while (more()) {
+            char c = buf[index++];
+            if ( c == 0 ) {
+                throw syntaxError("Unclosed comment.");
+            }
+            if ( c == '*' && more() && buf[index] == '/' ) {
+                index++;
+                return;
+            }
+        }
+        throw syntaxError("Unclosed comment.");
+    }
+
+    /**
+     * @return chars till the unescaped quote, escape sequences are kept as they are
+     */
     public String stringTill(char quote) throws SimpleJsonException {
-        StringBuilder sb = new StringBuilder();
-        char c;
-        boolean escapeNext=false;
-        while (true) {
-            c = next();
+        int start = index;
+        int i = start;
+        boolean escapeNext = false;
+        for (;; i++) {
+            if ( i == length ) {
+                int shift = fill(start);
+                i -= shift;
+                start -= shift;
+                if ( i == length ) {
+                    index = length;
+                    throw syntaxError("Unterminated string");
+                }
+            }
+            char c = buf[i];
             if ( 0 == c ) {
+                index = i + 1;
                 throw syntaxError("Unterminated string");
-            } if(escapeNext){
-                sb.append(c);
-                escapeNext=false;
-            } else if ('\\' == c){
-                sb.append(c);
-                escapeNext=true;
+            }
+            if ( escapeNext ) {
+                escapeNext = false;
+            } else if ( '\\' == c ) {
+                escapeNext = true;
             } else if ( quote == c ) {
-                return sb.toString();
-            } else {
-                sb.append(c);
+                index = i + 1;
+                return new String(buf, start, i - start);
             }
         }
     }
 
     public String nextValue() throws SimpleJsonException {
         char c = nextClean();
-        String s;
-
         switch (c) {
             case '"':
             case '\'':
                 return stringTill(c);
             default:
-                StringBuffer sb = new StringBuffer();
-                while (c >= ' ' && ",:]}\"[{;=#".indexOf(c) < 0) {
-                    sb.append(c);
-                    c = next();
-                }
-                back();
-
-                s = sb.toString().trim();
-                if ( s.equals("") ) {
+                if ( c < ' ' || STOP_CHARS.indexOf(c) >= 0 ) {
+                    back();
                     throw syntaxError("Missing value.");
                 }
-                if ( s.toLowerCase().equals("null") ) {
+                char first = c;
+                int start = index;
+                int end = index;
+                for (;; end++) {
+                    if ( end == length ) {
+                        // keep the first char too, it is normally the one just before start
+                        int shift = fill(start > 0 ? start - 1 : 0);
+                        end -= shift;
+                        start -= shift;
+                        if ( end == length ) {
+                            break;
+                        }
+                    }
+                    c = buf[end];
+                    if ( c < ' ' || STOP_CHARS.indexOf(c) >= 0 ) {
+                        break;
+                    }
+                }
+                // stop char is left for the caller, at the end of input the last char is (as it always was)
+                index = end < length ? end : end - 1;
+                if ( start == 0 || buf[start - 1] != first ) {
+                    // '/' pushed back by nextClean at the end of input
+                    String s = (first + new String(buf, start, end - start)).trim();
+                    return "null".equalsIgnoreCase(s) ? null : s;
+                }
+                start--;
+                while (buf[end - 1] == ' ') {
+                    end--;
+                }
+                if ( isNull(buf, start, end) ) {
                     return null;
                 }
-                return s;
+                return new String(buf, start, end - start);
         }
+    }
 
+    private static boolean isNull(char[] buf, int start, int end) {
+        return end - start == 4 && (buf[start] == 'n' || buf[start] == 'N') && (buf[start + 1] == 'u' || buf[start + 1] == 'U')
+                && (buf[start + 2] == 'l' || buf[start + 2] == 'L') && (buf[start + 3] == 'l' || buf[start + 3] == 'L');
     }
 
     public SimpleJsonException syntaxError(String message) {
@@ -149,6 +397,6 @@ public class SimpleJsonTokenizer {
 
     @Override
     public String toString() {
-        return " at character " + this.index + " (" + source.substring(index) + ")";
+        return " at character " + (discarded + this.index) + " (" + new String(buf, index, length - index) + ")";
     }
-}
\ No newline at end of file
+}
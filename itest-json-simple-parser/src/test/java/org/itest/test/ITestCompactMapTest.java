@@ -0,0 +1,137 @@
+package org.itest.test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.itest.json.simple.ITestSimpleJsonParamParserImpl;
+import org.itest.param.ITestParamState;
+import org.itest.param.ITestParamStateCursor;
+import org.itest.util.param.ITestCompactMap;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ITestCompactMapTest {
+
+    @Test
+    public void order() {
+        Map<String, Integer> map = new ITestCompactMap<Integer>();
+        Map<String, Integer> expected = new LinkedHashMap<String, Integer>();
+        for (String key : Arrays.asList("c", "a", "b")) {
+            map.put(key, key.charAt(0) - 'a');
+            expected.put(key, key.charAt(0) - 'a');
+        }
+        Assert.assertEquals(Arrays.asList("c", "a", "b"), new ArrayList<String>(map.keySet()));
+        Assert.assertEquals(Arrays.asList(2, 0, 1), new ArrayList<Integer>(map.values()));
+        Assert.assertEquals(expected, map);
+        Assert.assertEquals(expected.entrySet(), map.entrySet());
+        Assert.assertEquals(expected.hashCode(), map.hashCode());
+    }
+
+    @Test
+    public void overwrite() {
+        Map<String, Integer> map = new ITestCompactMap<Integer>();
+        map.put("a", 1);
+        map.put("b", 2);
+        Assert.assertEquals(Integer.valueOf(1), map.put("a", 3));
+        Assert.assertEquals(Arrays.asList("a", "b"), new ArrayList<String>(map.keySet()));
+        Assert.assertEquals(Integer.valueOf(3), map.get("a"));
+        Assert.assertEquals(2, map.size());
+    }
+
+    @Test
+    public void removeAcrossIndexThreshold() {
+        Map<String, Integer> map = new ITestCompactMap<Integer>();
+        for (int i = 0; i < 20; i++) {
+            map.put("k" + i, i);
+        }
+        // removal re-indexes following keys, lookups switch back to scanning below the threshold
+        for (int i = 0; i < 19; i++) {
+            Assert.assertEquals(Integer.valueOf(i), map.remove("k" + i));
+            Assert.assertNull(map.get("k" + i));
+            Assert.assertEquals(19 - i, map.size());
+            for (int j = i + 1; j < 20; j++) {
+                Assert.assertEquals(Integer.valueOf(j), map.get("k" + j));
+            }
+        }
+        Assert.assertNull(map.remove("k0"));
+        for (int i = 0; i < 20; i++) {
+            map.put("n" + i, i);
+        }
+        Assert.assertEquals(Integer.valueOf(19), map.get("k19"));
+        Assert.assertEquals(Integer.valueOf(12), map.get("n12"));
+        Assert.assertEquals(21, map.size());
+    }
+
+    @Test
+    public void iteratorRemove() {
+        Map<String, Integer> map = new ITestCompactMap<Integer>();
+        for (int i = 0; i < 12; i++) {
+            map.put("k" + i, i);
+        }
+        for (Iterator<Map.Entry<String, Integer>> iterator = map.entrySet().iterator(); iterator.hasNext();) {
+            if ( iterator.next().getValue() % 3 != 0 ) {
+                iterator.remove();
+            }
+        }
+        Assert.assertEquals(Arrays.asList("k0", "k3", "k6", "k9"), new ArrayList<String>(map.keySet()));
+        Assert.assertEquals(Integer.valueOf(9), map.get("k9"));
+        Iterator<String> keys = map.keySet().iterator();
+        try {
+            keys.remove();
+            Assert.fail();
+        } catch (IllegalStateException e) {
+        }
+        keys.next();
+        keys.remove();
+        Assert.assertEquals(Arrays.asList(3, 6, 9), new ArrayList<Integer>(map.values()));
+    }
+
+    @Test
+    public void nullKeys() {
+        Map<String, Integer> map = new ITestCompactMap<Integer>();
+        map.put(null, 1);
+        map.put("a", null);
+        Assert.assertTrue(map.containsKey(null));
+        Assert.assertTrue(map.containsKey("a"));
+        Assert.assertEquals(Integer.valueOf(1), map.get(null));
+        for (int i = 0; i < 10; i++) {
+            map.put("k" + i, i);
+        }
+        Assert.assertEquals(Integer.valueOf(1), map.get(null));
+        Assert.assertEquals(Integer.valueOf(1), map.remove(null));
+        Assert.assertFalse(map.containsKey(null));
+        Assert.assertEquals(11, map.size());
+    }
+
+    @Test
+    public void cursor() {
+        ITestCompactMap<ITestParamState> elements = new ITestCompactMap<ITestParamState>();
+        ITestParamState a = new ITestSimpleJsonParamParserImpl().parse("x:1");
+        elements.put("b", null);
+        elements.put("a", a);
+        List<String> names = new ArrayList<String>();
+        List<ITestParamState> states = new ArrayList<ITestParamState>();
+        for (ITestParamStateCursor cursor = ITestCompactMap.elements(elements); cursor.next();) {
+            names.add(cursor.getName());
+            states.add(cursor.getElement());
+            Assert.assertNull(cursor.getValue());
+        }
+        Assert.assertEquals(Arrays.asList("b", "a"), names);
+        Assert.assertEquals(Arrays.asList(null, a), states);
+
+        ITestCompactMap<String> attributes = new ITestCompactMap<String>();
+        attributes.put("class", "X");
+        ITestParamStateCursor cursor = ITestCompactMap.attributes(attributes);
+        Assert.assertTrue(cursor.next());
+        Assert.assertEquals("class", cursor.getName());
+        Assert.assertEquals("X", cursor.getValue());
+        Assert.assertNull(cursor.getElement());
+        Assert.assertFalse(cursor.next());
+        Assert.assertFalse(ITestCompactMap.attributes(null).next());
+        Assert.assertFalse(ITestCompactMap.elements(new LinkedHashMap<String, ITestParamState>()).next());
+    }
+}
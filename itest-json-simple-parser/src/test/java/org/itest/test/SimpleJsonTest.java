@@ -25,9 +25,28 @@
  */
 package org.itest.test;
 
+import java.io.File;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.StringReader;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 import org.apache.commons.lang.StringEscapeUtils;
+import org.itest.json.simple.ITestSimpleJsonBinaryConverter;
+import org.itest.json.simple.ITestSimpleJsonParamParserImpl;
+import org.itest.json.simple.format.SimpleJsonStateFormatter;
 import org.itest.json.simple.impl.SimpleJsonParser;
 import org.itest.json.simple.impl.SimpleJsonState;
+import org.itest.param.ITestParamState;
+import org.itest.param.ITestParamStateCursor;
+import org.itest.param.ITestParamStates;
+import org.itest.param.ITestPrimitiveArrayState;
+import org.itest.util.param.ITestParamStateCodec;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -54,4 +73,295 @@ public class SimpleJsonTest {
 
         }
     }
+
+    @Test
+    public void readerTest() {
+        StringBuilder longValue = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            longValue.append((char) ('a' + i % 26));
+        }
+        SimpleJsonState o = SimpleJsonParser.readObjectFrom(new StringReader("// implicit braces\na:a,b:'" + longValue + "',t:[{},1,2,,4,null]"));
+        Assert.assertEquals("a", o.get("a").getValue());
+        Assert.assertEquals(longValue.toString(), o.get("b").getValue());
+        Assert.assertEquals(null, o.get("t").get("3"));
+        Assert.assertEquals("4", o.get("t").get("4").getValue());
+        Assert.assertEquals("a", SimpleJsonParser.readObjectFrom(new StringReader("{a:a}")).get("a").getValue());
+        Assert.assertNull(SimpleJsonParser.readObjectFrom(new StringReader("")));
+    }
+
+    @Test
+    public void tokenizerTest() {
+        // comments
+        ITestParamState o = parseAll("// line\na:1, /* block\n */ b:2 # hash\n, c:/*x*/3,d:1/2,e:x#tail\n,f:[1,/**/2]");
+        Assert.assertEquals(Arrays.asList("a", "b", "c", "d", "e", "f"), new ArrayList<String>(o.getNames()));
+        Assert.assertEquals("3", o.getElement("c").getValue());
+        Assert.assertEquals("1/2", o.getElement("d").getValue());
+        Assert.assertEquals("x", o.getElement("e").getValue());
+        Assert.assertEquals(Integer.valueOf(2), o.getElement("f").getSizeParam());
+        // quoted, unquoted and escaped strings, escape sequences are kept as they are
+        o = parseAll("a:'x y',b:\"q\\\"r\",c: u v ,d:null,e:'null',f:'a,b:c',g:\"it's\",h:'\\\\',i:Null");
+        Assert.assertEquals("x y", o.getElement("a").getValue());
+        Assert.assertEquals("q\\\"r", o.getElement("b").getValue());
+        Assert.assertEquals("u v", o.getElement("c").getValue());
+        Assert.assertNull(o.getElement("d").getValue());
+        Assert.assertEquals("null", o.getElement("e").getValue());
+        Assert.assertEquals("a,b:c", o.getElement("f").getValue());
+        Assert.assertEquals("it's", o.getElement("g").getValue());
+        Assert.assertEquals("\\\\", o.getElement("h").getValue());
+        Assert.assertNull(o.getElement("i").getValue());
+        // implicit top-level braces
+        Assert.assertEquals(toString(parseAll("{a:1,b:{c:2}}")), toString(parseAll("a:1,b:{c:2}")));
+        Assert.assertEquals(toString(parseAll("{a:1}")), toString(parseAll(" /* c */ a:1, // c")));
+        // end of input right after a value, a comment or a separator
+        for (String input : new String[] { "a:xyz", "a:xyz ", "a:'xyz'", "{a:xyz}", "a:'xyz'//\n", "a:xyz#\n", "a:'xyz'/**/", "{a:xyz}//", "a:xyz,", "a:xyz,/**/" }) {
+            Assert.assertEquals(input, "xyz", parseAll(input).getElement("a").getValue());
+        }
+        Assert.assertEquals("/", parseAll("a:/").getElement("a").getValue());
+        // '/' is not a stop char, a comment right after an unquoted value is a part of it
+        Assert.assertEquals("1 // c", parseAll("a:1 // c").getElement("a").getValue());
+        for (String input : new String[] { "a:'xyz", "a:\"xyz\\\"", "a:1, /* xyz", "a:" }) {
+            try {
+                parseAll(input);
+                Assert.fail(input);
+            } catch (RuntimeException e) {
+            }
+        }
+    }
+
+    @Test
+    public void tokenizerRefillTest() {
+        // every kind of token read across the end of the 8K reader buffer
+        String tokens = "/* comment */a:'quoted \\' string',b:unquoted value,c:\"q\",# hash\nd:null,e:[1,2]";
+        ITestParamState expected = new ITestSimpleJsonParamParserImpl().parse("p:x," + tokens);
+        for (int padding = 8100; padding < 8250; padding++) {
+            StringBuilder input = new StringBuilder("p:'");
+            while (input.length() < padding) {
+                input.append('x');
+            }
+            input.append("',").append(tokens);
+            ITestParamState o = parseAll(input.toString());
+            Assert.assertEquals(padding - 3, o.getElement("p").getValue().length());
+            for (String name : Arrays.asList("a", "b", "c", "d", "e")) {
+                Assert.assertEquals(name + " at " + padding, toString(expected.getElement(name)), toString(o.getElement(name)));
+            }
+        }
+    }
+
+    @Test
+    public void indexedTest() {
+        ITestParamState o = new ITestSimpleJsonParamParserImpl().parse("t:[0,1,2,3,4,5,6,7,8,9,10,,12],u:{@size:3,_:[a]},v:{k:x,_:[a]}");
+        ITestParamState t = o.getElement("t");
+        Assert.assertTrue(ITestParamStates.isIndexed(t));
+        Assert.assertEquals(Integer.valueOf(13), t.getSizeParam());
+        Assert.assertEquals(Arrays.asList("0", "1", "2", "3", "4", "5", "6", "7", "8", "9", "10", "11", "12"), t.getNames());
+        Assert.assertEquals("10", ITestParamStates.getElement(t, 10).getValue());
+        Assert.assertEquals("10", t.getElement("10").getValue());
+        Assert.assertNull(ITestParamStates.getElement(t, 11));
+        Assert.assertNull(ITestParamStates.getElement(t, 13));
+        Assert.assertNull(t.getElement("01"));
+        Assert.assertTrue(ITestParamStates.isIndexed(o.getElement("u")));
+        Assert.assertEquals("3", o.getElement("u").getAttribute("size"));
+        Assert.assertFalse(ITestParamStates.isIndexed(o.getElement("v")));
+        Assert.assertEquals("a", ITestParamStates.getElement(o.getElement("v"), 0).getValue());
+    }
+
+    @Test
+    public void packedTest() {
+        ITestParamState o = new ITestSimpleJsonParamParserImpl().parse("l:[1,2,-3],d:[1.5,'2.0'],m:[1,1.5],z:[01,2],n:[1,null],u:{@size:2,_:[7,8]}");
+        Assert.assertArrayEquals(new long[] { 1, 2, -3 }, (long[]) ((ITestPrimitiveArrayState) o.getElement("l")).getPrimitiveArray());
+        Assert.assertEquals("-3", ITestParamStates.getElement(o.getElement("l"), 2).getValue());
+        Assert.assertEquals(Arrays.asList("0", "1", "2"), o.getElement("l").getNames());
+        Assert.assertArrayEquals(new double[] { 1.5, 2.0 }, (double[]) ((ITestPrimitiveArrayState) o.getElement("d")).getPrimitiveArray(), 0);
+        Assert.assertEquals("2.0", o.getElement("d").getElement("1").getValue());
+        Assert.assertFalse(o.getElement("m") instanceof ITestPrimitiveArrayState);
+        Assert.assertEquals("1", ITestParamStates.getElement(o.getElement("m"), 0).getValue());
+        Assert.assertFalse(o.getElement("z") instanceof ITestPrimitiveArrayState);
+        Assert.assertEquals("01", ITestParamStates.getElement(o.getElement("z"), 0).getValue());
+        Assert.assertFalse(o.getElement("n") instanceof ITestPrimitiveArrayState);
+        Assert.assertTrue(o.getElement("u") instanceof ITestPrimitiveArrayState);
+        Assert.assertEquals("2", o.getElement("u").getAttribute("size"));
+        // leaves are kept, identity caches see the same state on every access
+        Assert.assertSame(ITestParamStates.getElement(o.getElement("l"), 1), o.getElement("l").getElement("1"));
+        ITestParamState decoded = ITestParamStateCodec.decode(ITestParamStateCodec.encode(o)).getElement("d");
+        Assert.assertTrue(decoded instanceof ITestPrimitiveArrayState);
+        Assert.assertSame(ITestParamStates.getElement(decoded, 1), ITestParamStates.getElement(decoded, 1));
+        ITestParamState mapped = ITestParamStateCodec.decode(ITestParamStateCodec.encodeNavigable(o)).getElement("l");
+        Assert.assertTrue(mapped instanceof ITestPrimitiveArrayState);
+        Assert.assertSame(ITestParamStates.getElement(mapped, 2), mapped.getElement("2"));
+        Assert.assertEquals("-3", mapped.getElement("2").getValue());
+    }
+
+    @Test
+    public void sharedTest() {
+        ITestSimpleJsonParamParserImpl parser = new ITestSimpleJsonParamParserImpl(true);
+        ITestParamState o1 = parser.parse("T:{a:1,b:[x,{c:2}]},A:[[1,2]],R:{a:1,b:[x,{c:2}],@size:2}");
+        ITestParamState o2 = parser.parse(new String("A:[[1,2]],T:{a:1,b:[x,{c:2}]}"));
+        Assert.assertSame(o1.getElement("T"), o2.getElement("T"));
+        Assert.assertSame(o1.getElement("A"), o2.getElement("A"));
+        Assert.assertSame(o1.getElement("T").getElement("b"), o1.getElement("R").getElement("b"));
+        Assert.assertNotSame(o1.getElement("T"), o1.getElement("R"));
+        Assert.assertNotSame(o1, o2);
+        Assert.assertSame(o1.getNames().iterator().next(), o2.getNames().toArray()[1]);
+
+        ITestParamState o3 = new ITestSimpleJsonParamParserImpl().parse("T:{a:1,b:[x,{c:2}]},U:{a:1,b:[x,{c:2}]}");
+        Assert.assertNotSame(o3.getElement("T"), o3.getElement("U"));
+    }
+
+    @Test
+    public void cursorTest() {
+        ITestParamState state = new ITestSimpleJsonParamParserImpl().parse("{@a:1,b:2,c:[x,,z],@d:3}");
+        StringBuilder sb = new StringBuilder();
+        for (ITestParamStateCursor cursor = ITestParamStates.attributes(state); cursor.next();) {
+            sb.append(cursor.getName()).append('=').append(cursor.getValue()).append(';');
+        }
+        for (ITestParamStateCursor cursor = ITestParamStates.elements(state); cursor.next();) {
+            sb.append(cursor.getName()).append('=').append(cursor.getElement()).append(';');
+        }
+        for (ITestParamStateCursor cursor = ITestParamStates.elements(state.getElement("c")); cursor.next();) {
+            sb.append(cursor.getName()).append('=').append(cursor.getElement()).append(';');
+        }
+        Assert.assertEquals("a=1;d=3;b=:2;c={0=:x, 1=null, 2=:z};0=:x;1=null;2=:z;", sb.toString());
+        Assert.assertFalse(ITestParamStates.elements(state.getElement("b")).next());
+    }
+
+    @Test
+    public void lazyTest() {
+        String json = "m1:{s1:{a:[1,{b:'}'}],@n:x},s2:{_:[1,2]}},/* } */m2:{s1:{_:5,c:1}},m3:x,m1:{s3:{@n:y},s1:{a:2}},@size:3";
+        ITestSimpleJsonParamParserImpl parser = new ITestSimpleJsonParamParserImpl();
+        ITestParamState eager = parser.parse(json);
+        ITestParamState lazy = parser.parseLazy(new StringReader(json));
+        Assert.assertEquals(eager.toString(), String.valueOf(toMap(lazy)));
+        Assert.assertEquals("3", lazy.getAttribute("size"));
+        Assert.assertSame(lazy.getElement("m1"), lazy.getElement("m1"));
+        Assert.assertEquals(Arrays.asList("s3", "s1"), new ArrayList<String>(lazy.getElement("m1").getNames()));
+        Assert.assertEquals("y", lazy.getElement("m1").getElement("s3").getAttribute("n"));
+        Assert.assertNull(parser.parseLazy(new StringReader("")));
+        Assert.assertEquals(eager.toString(), String.valueOf(toMap(parser.parseLazy(new StringReader("{" + json + "}")))));
+
+        // input read past the growth of the array, with and without braces
+        StringBuilder large = new StringBuilder();
+        for (int i = 0; large.length() < 40000; i++) {
+            large.append("k").append(i).append(":{v:'").append(i).append("'},");
+        }
+        large.append("last:{v:x}");
+        eager = parser.parse(large.toString());
+        Assert.assertEquals(eager.toString(), String.valueOf(toMap(parser.parseLazy(new StringReader(large.toString())))));
+        Assert.assertEquals(eager.toString(), String.valueOf(toMap(parser.parseLazy(new StringReader("{" + large + "}")))));
+        Assert.assertEquals("x", parser.parseLazy(new StringReader(large.toString())).getElement("last").getElement("v").getValue());
+    }
+
+    @Test
+    public void binaryTest() {
+        String json = "{@class:X,a:[1,,{b:'ü'}],n:[1,2,3],d:{@size:2,_:[1.5,2.5]},v:{_:5,c:null},e:{},x:null}";
+        ITestParamState state = new ITestSimpleJsonParamParserImpl().parse(json);
+        ITestParamState decoded = ITestParamStateCodec.decode(ITestParamStateCodec.encode(state));
+        SimpleJsonStateFormatter formatter = new SimpleJsonStateFormatter();
+        Assert.assertEquals(formatter.format(state), formatter.format(decoded));
+        Assert.assertTrue(ITestParamStates.isIndexed(decoded.getElement("a")));
+        Assert.assertArrayEquals(new long[] { 1, 2, 3 }, (long[]) ((ITestPrimitiveArrayState) decoded.getElement("n")).getPrimitiveArray());
+        Assert.assertEquals("2", decoded.getElement("d").getAttribute("size"));
+        Assert.assertNull(ITestParamStateCodec.decode(ITestParamStateCodec.encode(null)));
+
+        ITestParamState mapped = ITestParamStateCodec.decode(ITestParamStateCodec.encodeNavigable(state));
+        Assert.assertEquals(formatter.format(state), formatter.format(mapped));
+        Assert.assertEquals(Arrays.asList("a", "n", "d", "v", "e", "x"), new ArrayList<String>(mapped.getNames()));
+        Assert.assertNull(mapped.getElement("b"));
+        Assert.assertEquals("ü", ITestParamStates.getElement(mapped.getElement("a"), 2).getElement("b").getValue());
+        Assert.assertArrayEquals(new double[] { 1.5, 2.5 }, (double[]) ((ITestPrimitiveArrayState) mapped.getElement("d")).getPrimitiveArray(), 0);
+    }
+
+    @Test
+    public void binaryFileTest() throws IOException {
+        File dir = File.createTempFile("itest", "");
+        Assert.assertTrue(dir.delete() && dir.mkdir());
+        try {
+            SimpleJsonStateFormatter formatter = new SimpleJsonStateFormatter();
+            ITestSimpleJsonParamParserImpl parser = new ITestSimpleJsonParamParserImpl();
+            File bin = new File(dir, "A.itest.bin");
+            ITestParamStateCodec.writeNavigable(parser.parse("{a:[1,2,3],b:{c:'long value read in place'}}"), bin);
+            ITestParamState mapped = ITestParamStateCodec.read(bin);
+            // the file is replaced, not truncated, the mapped state still reads the old content
+            ITestParamStateCodec.writeNavigable(parser.parse("{x:1}"), bin);
+            Assert.assertEquals("{a:[1,2,3],b:{c:long value read in place}}", formatter.format(mapped));
+            Assert.assertEquals("{x:1}", formatter.format(ITestParamStateCodec.read(bin)));
+
+            File json = new File(dir, "A.itest.json");
+            ITestSimpleJsonBinaryConverter.toJson(bin, json);
+            ITestSimpleJsonBinaryConverter.toBinary(json, bin, false);
+            Assert.assertEquals("{x:1}", formatter.format(ITestParamStateCodec.read(bin)));
+            Assert.assertEquals(Arrays.asList("A.itest.bin", "A.itest.json"), sorted(dir.list()));
+        } finally {
+            for (File file : dir.listFiles()) {
+                file.delete();
+            }
+            dir.delete();
+        }
+    }
+
+    private static List<String> sorted(String[] names) {
+        Arrays.sort(names);
+        return Arrays.asList(names);
+    }
+
+    @Test
+    public void formatterTest() {
+        SimpleJsonStateFormatter formatter = new SimpleJsonStateFormatter();
+        ITestSimpleJsonParamParserImpl parser = new ITestSimpleJsonParamParserImpl();
+        String[] examples = { "a:b", "a:' b ',c:'x,y',d:\"it's\",e:'say \\'hi\\''", "a:null,b:'null',c:''", "t:[1,,3,],u:[],v:{}",
+                "w:{@size:2,_:[a,b]},x:{@class:X,_:v},y:{k:v,_:[a]}", "'a:b':{'[x]':'{y}'},c:/d,e:'#f',g:'ü'", "n:[1,2.5,-3],m:{_:v,k:w}" };
+        for (String example : examples) {
+            String formatted = formatter.format(parser.parse(example));
+            Assert.assertEquals(example, formatted, formatter.format(parser.parse(formatted)));
+            Assert.assertEquals(example, toString(parser.parse(example)), toString(parser.parse(formatted)));
+        }
+        Assert.assertEquals("{a:b,t:[1,,3]}", formatter.format(parser.parse("// comment\n a : b , t : [ 1 , , 3 ]")));
+        Assert.assertEquals("null", formatter.format(null));
+    }
+
+    /**
+     * Parses the input given as a string, by a reader and by a reader returning few chars at once, the results have to be the same.
+     */
+    private static ITestParamState parseAll(String input) {
+        ITestSimpleJsonParamParserImpl parser = new ITestSimpleJsonParamParserImpl();
+        ITestParamState res = parser.parse(input);
+        Assert.assertEquals(input, toString(res), toString(parser.parse(new StringReader(input))));
+        Assert.assertEquals(input, toString(res), toString(parser.parse(new FilterReader(new StringReader(input)) {
+            @Override
+            public int read(char[] cbuf, int off, int len) throws IOException {
+                return super.read(cbuf, off, Math.min(len, 7));
+            }
+        })));
+        Assert.assertEquals(input, toString(res), toString(parser.parseLazy(new StringReader(input))));
+        return res;
+    }
+
+    /**
+     * @return all names, values, attributes and index flags of the state
+     */
+    private static String toString(ITestParamState state) {
+        if ( null == state ) {
+            return "~";
+        }
+        StringBuilder sb = new StringBuilder().append(state.getValue()).append(ITestParamStates.isIndexed(state) ? "[" : "{");
+        for (ITestParamStateCursor cursor = ITestParamStates.attributes(state); cursor.next();) {
+            sb.append('@').append(cursor.getName()).append('=').append(cursor.getValue()).append(',');
+        }
+        if ( null != state.getNames() ) {
+            for (String name : state.getNames()) {
+                sb.append(name).append('=').append(toString(state.getElement(name))).append(',');
+            }
+        }
+        return sb.append(null == state.getNames() ? "." : "").append('}').toString();
+    }
+
+    private static Object toMap(ITestParamState state) {
+        if ( null == state || null == state.getNames() || ITestParamStates.isIndexed(state) ) {
+            return state;
+        }
+        Map<String, Object> res = new LinkedHashMap<String, Object>();
+        for (String name : state.getNames()) {
+            res.put(name, toMap(state.getElement(name)));
+        }
+        return res;
+    }
 }
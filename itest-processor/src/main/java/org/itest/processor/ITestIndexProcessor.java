@@ -0,0 +1,347 @@
+package org.itest.processor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic.Kind;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+
+import org.itest.ITestConstants;
+import org.itest.annotation.ITest;
+import org.itest.annotation.ITests;
+import org.itest.json.simple.ITestSimpleJsonParamParserImpl;
+import org.itest.param.ITestParamParser;
+import org.itest.param.ITestParamState;
+import org.itest.util.index.ITestIndexDeclarations;
+
+/**
+ * Compile time counterpart of ITestDeclarationProviderAnnotationImpl.<br/>
+ * Validates init/verify params of every @ITests method (syntax errors fail the compilation), writes pre-parsed declarations of each class to
+ * &lt;class&gt;{@value org.itest.ITestConstants#INDEX_DECLARATION_SUFFIX} resource and generates index class listing classes with itests, registered
+ * in {@value org.itest.ITestConstants#INDEX_RESOURCE}. Indexed classes are also listed in {@value #INDEXED_CLASSES_RESOURCE}, an incremental
+ * compilation keeps the classes indexed before unless they were recompiled without itests or removed.
+ */
+@SupportedAnnotationTypes("org.itest.annotation.ITests")
+@SupportedOptions(ITestIndexProcessor.OPTION_INDEX_PACKAGE)
+public class ITestIndexProcessor extends AbstractProcessor {
+
+    public static final String OPTION_INDEX_PACKAGE = "itest.index.package";
+
+    public static final String INDEX_CLASS_NAME = "ITestGeneratedIndex";
+
+    public static final String INDEXED_CLASSES_RESOURCE = "META-INF/itest/classes";
+
+    private final ITestParamParser parser = new ITestSimpleJsonParamParserImpl();
+
+    private final List<String> indexClasses = new ArrayList<String>();
+
+    /**
+     * classes indexed by the previous compilation to the same output
+     */
+    private final Set<String> previousClasses = new LinkedHashSet<String>();
+
+    /**
+     * classes listed by index classes of this compilation
+     */
+    private final Set<String> indexedClasses = new LinkedHashSet<String>();
+
+    /**
+     * top-level classes compiled in this compilation
+     */
+    private final Set<String> compiledClasses = new HashSet<String>();
+
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        try {
+            FileObject resource = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", INDEXED_CLASSES_RESOURCE);
+            BufferedReader reader = new BufferedReader(resource.openReader(true));
+            try {
+                String line;
+                while (null != (line = reader.readLine())) {
+                    if ( line.length() > 0 ) {
+                        previousClasses.add(line);
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (IOException e) {
+            // full compilation, nothing indexed before
+        }
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if ( roundEnv.processingOver() ) {
+            writeIndexResource();
+            return false;
+        }
+        for (Element element : roundEnv.getRootElements()) {
+            if ( element instanceof TypeElement ) {
+                compiledClasses.add(processingEnv.getElementUtils().getBinaryName((TypeElement) element).toString());
+            }
+        }
+        Map<TypeElement, ITestIndexDeclarations> declarations = new LinkedHashMap<TypeElement, ITestIndexDeclarations>();
+        boolean valid = true;
+        for (Element element : roundEnv.getElementsAnnotatedWith(ITests.class)) {
+            if ( ElementKind.METHOD != element.getKind() ) {
+                continue;
+            }
+            ExecutableElement method = (ExecutableElement) element;
+            TypeElement type = (TypeElement) method.getEnclosingElement();
+            ITestIndexDeclarations classDeclarations = declarations.get(type);
+            if ( null == classDeclarations ) {
+                classDeclarations = new ITestIndexDeclarations();
+                declarations.put(type, classDeclarations);
+            }
+            String signature = getMethodSignature(method);
+            for (ITest iTest : method.getAnnotation(ITests.class).value()) {
+                String params = iTest.init();
+                try {
+                    ITestParamState init = parser.parse(params);
+                    params = iTest.verify();
+                    ITestParamState verify = parser.parse(params);
+                    classDeclarations.add(signature, init, iTest.init(), verify, iTest.verify());
+                } catch (RuntimeException e) {
+                    processingEnv.getMessager().printMessage(Kind.ERROR, "Invalid itest params (" + params + "): " + e.getMessage(), method);
+                    valid = false;
+                }
+            }
+        }
+        if ( valid && !declarations.isEmpty() ) {
+            for (Map.Entry<TypeElement, ITestIndexDeclarations> entry : declarations.entrySet()) {
+                writeDeclarations(entry.getKey(), entry.getValue());
+            }
+            Set<String> classes = new LinkedHashSet<String>();
+            for (TypeElement type : declarations.keySet()) {
+                classes.add(processingEnv.getElementUtils().getBinaryName(type).toString());
+            }
+            if ( indexClasses.isEmpty() ) {
+                addPreviousClasses(classes);
+            }
+            writeIndexClass(declarations.keySet(), classes);
+        }
+        return false;
+    }
+
+    /**
+     * Adds classes indexed before that were not recompiled (so their itests did not change) and still exist.
+     */
+    private void addPreviousClasses(Set<String> classes) {
+        for (String className : previousClasses) {
+            int pos = className.indexOf('$');
+            if ( !compiledClasses.contains(pos < 0 ? className : className.substring(0, pos))
+                    && null != processingEnv.getElementUtils().getTypeElement(className.replace('$', '.')) ) {
+                classes.add(className);
+            }
+        }
+    }
+
+    private void writeDeclarations(TypeElement type, ITestIndexDeclarations declarations) {
+        String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+        String packageName = getPackageName(type);
+        String relativeName = (packageName.length() == 0 ? binaryName : binaryName.substring(packageName.length() + 1))
+                + ITestConstants.INDEX_DECLARATION_SUFFIX;
+        try {
+            FileObject resource = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, packageName, relativeName, type);
+            OutputStream os = resource.openOutputStream();
+            try {
+                declarations.writeTo(os);
+            } finally {
+                os.close();
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Kind.ERROR, "Can't write itest index: " + e.getMessage(), type);
+        }
+    }
+
+    private void writeIndexClass(Set<TypeElement> types, Set<String> classes) {
+        String packageName = processingEnv.getOptions().get(OPTION_INDEX_PACKAGE);
+        if ( null == packageName ) {
+            packageName = getCommonPackageName(classes);
+        }
+        String simpleName = INDEX_CLASS_NAME;
+        String className = packageName.length() == 0 ? simpleName : packageName + '.' + simpleName;
+        for (int round = 2; indexClasses.contains(className); round++) {
+            simpleName = INDEX_CLASS_NAME + round;
+            className = packageName.length() == 0 ? simpleName : packageName + '.' + simpleName;
+        }
+        try {
+            JavaFileObject source = processingEnv.getFiler().createSourceFile(className, types.toArray(new Element[types.size()]));
+            PrintWriter out = new PrintWriter(source.openWriter());
+            try {
+                if ( packageName.length() > 0 ) {
+                    out.println("package " + packageName + ";");
+                    out.println();
+                }
+                out.println("/**");
+                out.println(" * Generated by " + getClass().getName() + ", do not edit.");
+                out.println(" */");
+                out.println("public final class " + simpleName + " {");
+                out.println("    public static final String[] CLASSES = {");
+                for (String indexedClass : classes) {
+                    out.println("            \"" + indexedClass + "\",");
+                }
+                out.println("    };");
+                out.println();
+                out.println("    private " + simpleName + "() {");
+                out.println("    }");
+                out.println("}");
+            } finally {
+                out.close();
+            }
+            indexClasses.add(className);
+            indexedClasses.addAll(classes);
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Kind.ERROR, "Can't write itest index class " + className + ": " + e.getMessage());
+        }
+    }
+
+    private void writeIndexResource() {
+        if ( indexClasses.isEmpty() ) {
+            return;
+        }
+        try {
+            writeLines(ITestConstants.INDEX_RESOURCE, indexClasses);
+            writeLines(INDEXED_CLASSES_RESOURCE, indexedClasses);
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Kind.ERROR, "Can't write itest index: " + e.getMessage());
+        }
+    }
+
+    private void writeLines(String resourceName, Collection<String> lines) throws IOException {
+        FileObject resource = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", resourceName);
+        Writer out = resource.openWriter();
+        try {
+            for (String line : lines) {
+                out.write(line);
+                out.write('\n');
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    private String getPackageName(TypeElement type) {
+        PackageElement packageElement = processingEnv.getElementUtils().getPackageOf(type);
+        return packageElement.isUnnamed() ? "" : packageElement.getQualifiedName().toString();
+    }
+
+    private String getCommonPackageName(Set<String> classes) {
+        String res = null;
+        for (String className : classes) {
+            int dot = className.lastIndexOf('.');
+            String packageName = dot < 0 ? "" : className.substring(0, dot);
+            if ( null == res ) {
+                res = packageName;
+            } else {
+                while (!(packageName.equals(res) || packageName.startsWith(res + '.'))) {
+                    int pos = res.lastIndexOf('.');
+                    res = pos < 0 ? "" : res.substring(0, pos);
+                }
+            }
+        }
+        return null == res ? "" : res;
+    }
+
+    /**
+     * Same format as ITestUtils.getMethodSingnature(method, true), parameter types as returned by Class.getName().
+     */
+    private String getMethodSignature(ExecutableElement method) {
+        StringBuilder sb = new StringBuilder().append(method.getSimpleName()).append('(');
+        List<? extends VariableElement> parameters = method.getParameters();
+        for (int i = 0; i < parameters.size(); i++) {
+            if ( i > 0 ) {
+                sb.append(',');
+            }
+            TypeMirror type = processingEnv.getTypeUtils().erasure(parameters.get(i).asType());
+            if ( TypeKind.ARRAY == type.getKind() ) {
+                appendDescriptor(type, sb);
+            } else {
+                appendClassName(type, sb);
+            }
+        }
+        return sb.append(')').toString();
+    }
+
+    private void appendClassName(TypeMirror type, StringBuilder sb) {
+        if ( type.getKind().isPrimitive() ) {
+            sb.append(type.getKind().name().toLowerCase(Locale.ENGLISH));
+        } else {
+            sb.append(processingEnv.getElementUtils().getBinaryName((TypeElement) ((DeclaredType) type).asElement()));
+        }
+    }
+
+    private void appendDescriptor(TypeMirror type, StringBuilder sb) {
+        switch (type.getKind()) {
+            case ARRAY:
+                sb.append('[');
+                appendDescriptor(((ArrayType) type).getComponentType(), sb);
+                break;
+            case BOOLEAN:
+                sb.append('Z');
+                break;
+            case BYTE:
+                sb.append('B');
+                break;
+            case CHAR:
+                sb.append('C');
+                break;
+            case SHORT:
+                sb.append('S');
+                break;
+            case INT:
+                sb.append('I');
+                break;
+            case LONG:
+                sb.append('J');
+                break;
+            case FLOAT:
+                sb.append('F');
+                break;
+            case DOUBLE:
+                sb.append('D');
+                break;
+            default:
+                sb.append('L');
+                appendClassName(type, sb);
+                sb.append(';');
+        }
+    }
+}
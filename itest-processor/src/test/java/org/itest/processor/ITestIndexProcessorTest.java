@@ -0,0 +1,192 @@
+package org.itest.processor;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+
+import org.itest.ITestConstants;
+import org.itest.annotation.ITests;
+import org.itest.param.ITestParamStates;
+import org.itest.param.ITestPrimitiveArrayState;
+import org.itest.util.index.ITestIndexDeclarations;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ITestIndexProcessorTest {
+
+    private static final String SOURCE = "package p;\n" //
+            + "import org.itest.annotation.*;\n" //
+            + "public class A {\n" //
+            + "    @ITests(@ITest(init = \"A:[3,16]\", verify = \"R:19\"))\n" //
+            + "    public int sum(int a, int b) { return a + b; }\n" //
+            + "    @ITests({ @ITest(init = \"A:[{x:'y z'},[]]\"), @ITest(verify = \"R:{@size:1}\") })\n" //
+            + "    void m(String[] s, java.util.List<String> l) { }\n" //
+            + "    static class B {\n" //
+            + "        @ITests(@ITest(init = \"A:[1]\", verify = \"R:1\"))\n" //
+            + "        int id(long[] a) { return 1; }\n" //
+            + "    }\n" //
+            + "}\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void index() throws Exception {
+        File out = folder.getRoot();
+        DiagnosticCollector<JavaFileObject> diagnostics = compile(out, SOURCE);
+        Assert.assertEquals(Collections.emptyList(), diagnostics.getDiagnostics());
+
+        ITestIndexDeclarations declarations = readDeclarations(new File(out, "p/A" + ITestConstants.INDEX_DECLARATION_SUFFIX));
+        Assert.assertTrue(declarations.isCurrent("sum(int,int)", 0, "A:[3,16]", "R:19"));
+        Assert.assertArrayEquals(new long[] { 3, 16 },
+                (long[]) ((ITestPrimitiveArrayState) declarations.getInit("sum(int,int)", 0).getElement("A")).getPrimitiveArray());
+        Assert.assertEquals("19", declarations.getVerify("sum(int,int)", 0).getElement("R").getValue());
+        Assert.assertFalse(declarations.isCurrent("sum(int,int)", 0, "A:[3,17]", "R:19"));
+
+        String m = "m([Ljava.lang.String;,java.util.List)";
+        Assert.assertTrue(declarations.isCurrent(m, 0, "A:[{x:'y z'},[]]", ""));
+        Assert.assertEquals("y z", ITestParamStates.getElement(declarations.getInit(m, 0).getElement("A"), 0).getElement("x").getValue());
+        Assert.assertNull(declarations.getVerify(m, 0));
+        Assert.assertNull(declarations.getInit(m, 1));
+        Assert.assertEquals("1", declarations.getVerify(m, 1).getElement("R").getAttribute("size"));
+
+        ITestIndexDeclarations nested = readDeclarations(new File(out, "p/A$B" + ITestConstants.INDEX_DECLARATION_SUFFIX));
+        Assert.assertTrue(nested.isCurrent("id([J)", 0, "A:[1]", "R:1"));
+
+        Assert.assertTrue(new File(out, "p/" + ITestIndexProcessor.INDEX_CLASS_NAME + ".java").isFile());
+        Assert.assertEquals("p." + ITestIndexProcessor.INDEX_CLASS_NAME + "\n", read(new File(out, ITestConstants.INDEX_RESOURCE)));
+        Assert.assertEquals(new HashSet<String>(Arrays.asList("p.A", "p.A$B")), getIndexedClasses(out, "p"));
+    }
+
+    @Test
+    public void indexPackage() throws Exception {
+        File out = folder.getRoot();
+        DiagnosticCollector<JavaFileObject> diagnostics = compile(out, SOURCE, "-A" + ITestIndexProcessor.OPTION_INDEX_PACKAGE + "=q");
+        Assert.assertEquals(Collections.emptyList(), diagnostics.getDiagnostics());
+        Assert.assertEquals("q." + ITestIndexProcessor.INDEX_CLASS_NAME + "\n", read(new File(out, ITestConstants.INDEX_RESOURCE)));
+    }
+
+    @Test
+    public void incremental() throws Exception {
+        File out = folder.getRoot();
+        String c = "package p.c;\n" //
+                + "import org.itest.annotation.*;\n" //
+                + "public class C {\n" //
+                + "    @ITests(@ITest(init = \"A:[1]\", verify = \"R:1\"))\n" //
+                + "    public int id(int a) { return a; }\n" //
+                + "}\n";
+        Assert.assertEquals(Collections.emptyList(), compile(out, source("p/A", SOURCE)).getDiagnostics());
+        // classes not recompiled stay indexed
+        Assert.assertEquals(Collections.emptyList(), compile(out, source("p/c/C", c)).getDiagnostics());
+        Assert.assertEquals("p." + ITestIndexProcessor.INDEX_CLASS_NAME + "\n", read(new File(out, ITestConstants.INDEX_RESOURCE)));
+        Assert.assertEquals(new HashSet<String>(Arrays.asList("p.A", "p.A$B", "p.c.C")),
+                new HashSet<String>(Arrays.asList(read(new File(out, ITestIndexProcessor.INDEXED_CLASSES_RESOURCE)).split("\n"))));
+        Assert.assertEquals(new HashSet<String>(Arrays.asList("p.A", "p.A$B", "p.c.C")), getIndexedClasses(out, "p"));
+        // recompiled classes are indexed as they are now
+        String a = SOURCE.replace("@ITests(@ITest(init = \"A:[1]\", verify = \"R:1\"))", "");
+        Assert.assertEquals(Collections.emptyList(), compile(out, source("p/A", a)).getDiagnostics());
+        Assert.assertEquals(new HashSet<String>(Arrays.asList("p.A", "p.c.C")), getIndexedClasses(out, "p"));
+    }
+
+    @Test
+    public void invalidParams() throws Exception {
+        File out = folder.getRoot();
+        DiagnosticCollector<JavaFileObject> diagnostics = compile(out, SOURCE.replace("R:19", "R:{19"));
+        Assert.assertEquals(1, diagnostics.getDiagnostics().size());
+        Diagnostic<? extends JavaFileObject> diagnostic = diagnostics.getDiagnostics().get(0);
+        Assert.assertEquals(Diagnostic.Kind.ERROR, diagnostic.getKind());
+        Assert.assertTrue(diagnostic.getMessage(null), diagnostic.getMessage(null).startsWith("Invalid itest params (R:{19)"));
+        Assert.assertEquals(5, diagnostic.getLineNumber());
+        Assert.assertFalse(new File(out, "p/A" + ITestConstants.INDEX_DECLARATION_SUFFIX).exists());
+        Assert.assertFalse(new File(out, ITestConstants.INDEX_RESOURCE).exists());
+    }
+
+    private static DiagnosticCollector<JavaFileObject> compile(File out, String source, String... options) throws IOException {
+        return compile(out, source("p/A", source), options);
+    }
+
+    private static JavaFileObject source(String className, final String source) {
+        return new SimpleJavaFileObject(URI.create("string:///" + className + ".java"), JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return source;
+            }
+        };
+    }
+
+    private static DiagnosticCollector<JavaFileObject> compile(File out, JavaFileObject file, String... options) throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+        StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, null);
+        try {
+            fileManager.setLocation(StandardLocation.CLASS_OUTPUT, Arrays.asList(out));
+            fileManager.setLocation(StandardLocation.SOURCE_OUTPUT, Arrays.asList(out));
+            fileManager.setLocation(StandardLocation.CLASS_PATH, Arrays.asList(getLocation(ITests.class), out));
+            List<String> args = new ArrayList<String>(Arrays.asList(options));
+            args.add("-Xlint:-options");
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics, args, null, Arrays.asList(file));
+            task.setProcessors(Arrays.asList(new ITestIndexProcessor()));
+            task.call();
+        } finally {
+            fileManager.close();
+        }
+        return diagnostics;
+    }
+
+    private Set<String> getIndexedClasses(File out, String packageName) throws Exception {
+        URLClassLoader classLoader = new URLClassLoader(new URL[] { out.toURI().toURL() }, getClass().getClassLoader());
+        Class<?> indexClass = classLoader.loadClass(packageName + "." + ITestIndexProcessor.INDEX_CLASS_NAME);
+        return new HashSet<String>(Arrays.asList((String[]) indexClass.getField("CLASSES").get(null)));
+    }
+
+    private static File getLocation(Class<?> clazz) {
+        try {
+            return new File(clazz.getProtectionDomain().getCodeSource().getLocation().toURI());
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static ITestIndexDeclarations readDeclarations(File file) throws IOException {
+        InputStream is = new FileInputStream(file);
+        try {
+            return ITestIndexDeclarations.readFrom(is);
+        } finally {
+            is.close();
+        }
+    }
+
+    private static String read(File file) throws IOException {
+        InputStream is = new FileInputStream(file);
+        try {
+            StringBuilder sb = new StringBuilder();
+            for (int c; (c = is.read()) >= 0;) {
+                sb.append((char) c);
+            }
+            return sb.toString();
+        } finally {
+            is.close();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package org.itest.util.index;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.itest.param.ITestParamState;
+import org.itest.util.param.ITestParamStateCodec;
+
+/**
+ * Pre-parsed itest declarations of a single class, written at compile time by the itest annotation processor next to the class file (see
+ * {@link org.itest.ITestConstants#INDEX_DECLARATION_SUFFIX}).<br/>
+ * For every method (keyed by its full signature) it keeps the init and verify params of each @ITest in declaration order, already validated and
+ * encoded by {@link ITestParamStateCodec}, so they are decoded instead of parsed. Hash of the original annotation text is kept to detect stale
+ * entries.
+ */
+public class ITestIndexDeclarations {
+
+    private static final int VERSION = 2;
+
+    private final Map<String, List<Entry>> declarations = new LinkedHashMap<String, List<Entry>>();
+
+    public void add(String methodSignature, ITestParamState init, String originalInit, ITestParamState verify, String originalVerify) {
+        add(methodSignature, new Entry(encode(init), originalInit.hashCode(), encode(verify), originalVerify.hashCode()));
+    }
+
+    private void add(String methodSignature, Entry entry) {
+        List<Entry> entries = declarations.get(methodSignature);
+        if ( null == entries ) {
+            entries = new ArrayList<Entry>();
+            declarations.put(methodSignature, entries);
+        }
+        entries.add(entry);
+    }
+
+    private static byte[] encode(ITestParamState state) {
+        ByteBuffer buf = ITestParamStateCodec.encode(state);
+        byte[] res = new byte[buf.remaining()];
+        buf.get(res);
+        return res;
+    }
+
+    public boolean isEmpty() {
+        return declarations.isEmpty();
+    }
+
+    /**
+     * @return true if itest at given position is indexed for the same init and verify text
+     */
+    public boolean isCurrent(String methodSignature, int itest, String originalInit, String originalVerify) {
+        Entry entry = getEntry(methodSignature, itest);
+        return null != entry && entry.initHash == originalInit.hashCode() && entry.verifyHash == originalVerify.hashCode();
+    }
+
+    /**
+     * @return init params of itest at given position, decoded on every call
+     */
+    public ITestParamState getInit(String methodSignature, int itest) {
+        return ITestParamStateCodec.decode(ByteBuffer.wrap(getEntry(methodSignature, itest).init));
+    }
+
+    /**
+     * @return verify params of itest at given position, decoded on every call
+     */
+    public ITestParamState getVerify(String methodSignature, int itest) {
+        return ITestParamStateCodec.decode(ByteBuffer.wrap(getEntry(methodSignature, itest).verify));
+    }
+
+    private Entry getEntry(String methodSignature, int itest) {
+        List<Entry> entries = declarations.get(methodSignature);
+        return null == entries || itest >= entries.size() ? null : entries.get(itest);
+    }
+
+    public void writeTo(OutputStream os) throws IOException {
+        DataOutputStream out = new DataOutputStream(os);
+        out.writeInt(VERSION);
+        out.writeInt(declarations.size());
+        for (Map.Entry<String, List<Entry>> methodEntry : declarations.entrySet()) {
+            out.writeUTF(methodEntry.getKey());
+            out.writeInt(methodEntry.getValue().size());
+            for (Entry entry : methodEntry.getValue()) {
+                out.writeInt(entry.init.length);
+                out.write(entry.init);
+                out.writeInt(entry.initHash);
+                out.writeInt(entry.verify.length);
+                out.write(entry.verify);
+                out.writeInt(entry.verifyHash);
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * @return declarations or null if the index was written by other version of itest-processor
+     */
+    public static ITestIndexDeclarations readFrom(InputStream is) throws IOException {
+        DataInputStream in = new DataInputStream(is);
+        if ( VERSION != in.readInt() ) {
+            return null;
+        }
+        ITestIndexDeclarations res = new ITestIndexDeclarations();
+        int methods = in.readInt();
+        for (int i = 0; i < methods; i++) {
+            String methodSignature = in.readUTF();
+            int itests = in.readInt();
+            for (int j = 0; j < itests; j++) {
+                byte[] init = new byte[in.readInt()];
+                in.readFully(init);
+                int initHash = in.readInt();
+                byte[] verify = new byte[in.readInt()];
+                in.readFully(verify);
+                int verifyHash = in.readInt();
+                res.add(methodSignature, new Entry(init, initHash, verify, verifyHash));
+            }
+        }
+        return res;
+    }
+
+    static class Entry {
+        private final byte[] init;
+
+        private final int initHash;
+
+        private final byte[] verify;
+
+        private final int verifyHash;
+
+        Entry(byte[] init, int initHash, byte[] verify, int verifyHash) {
+            this.init = init;
+            this.initHash = initHash;
+            this.verify = verify;
+            this.verifyHash = verifyHash;
+        }
+    }
+}
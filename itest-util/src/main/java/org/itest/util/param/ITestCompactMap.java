@@ -0,0 +1,348 @@
+package org.itest.util.param;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.itest.param.ITestParamState;
+import org.itest.param.ITestParamStateCursor;
+import org.itest.param.ITestParamStates;
+
+/**
+ * Map of param state elements or attributes in insertion order, like LinkedHashMap, kept in two arrays. Keys of small maps are found by a linear
+ * scan, an index is built only for maps wider than {@link #INDEX_THRESHOLD}. Null keys and values are allowed.
+ */
+public class ITestCompactMap<V> extends AbstractMap<String, V> {
+
+    static final int INDEX_THRESHOLD = 8;
+
+    private static final String[] NO_KEYS = {};
+
+    private static final Object[] NO_VALUES = {};
+
+    private String[] keys = NO_KEYS;
+
+    private Object[] values = NO_VALUES;
+
+    private int size;
+
+    /**
+     * positions of keys, only in wide maps
+     */
+    private Map<String, Integer> index;
+
+    public ITestCompactMap() {
+    }
+
+    public ITestCompactMap(int capacity) {
+        if ( capacity > 0 ) {
+            keys = new String[capacity];
+            values = new Object[capacity];
+        }
+    }
+
+    private int indexOf(Object key) {
+        if ( null != index ) {
+            Integer position = index.get(key);
+            return null == position ? -1 : position;
+        }
+        for (int i = 0; i < size; i++) {
+            String k = keys[i];
+            if ( k == key || (null != key && key.equals(k)) ) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public V get(Object key) {
+        int i = indexOf(key);
+        return i < 0 ? null : (V) values[i];
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public V put(String key, V value) {
+        int i = indexOf(key);
+        if ( i >= 0 ) {
+            V res = (V) values[i];
+            values[i] = value;
+            return res;
+        }
+        if ( size == keys.length ) {
+            int length = size < INDEX_THRESHOLD ? size + 2 : size + (size >> 1);
+            keys = Arrays.copyOf(keys, length);
+            values = Arrays.copyOf(values, length);
+        }
+        keys[size] = key;
+        values[size] = value;
+        size++;
+        if ( null != index ) {
+            index.put(key, size - 1);
+        } else if ( size > INDEX_THRESHOLD ) {
+            buildIndex();
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public V remove(Object key) {
+        int i = indexOf(key);
+        if ( i < 0 ) {
+            return null;
+        }
+        V res = (V) values[i];
+        removeAt(i);
+        return res;
+    }
+
+    private void removeAt(int i) {
+        System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+        System.arraycopy(values, i + 1, values, i, size - i - 1);
+        size--;
+        keys[size] = null;
+        values[size] = null;
+        if ( null != index ) {
+            if ( size > INDEX_THRESHOLD ) {
+                buildIndex();
+            } else {
+                index = null;
+            }
+        }
+    }
+
+    private void buildIndex() {
+        index = new HashMap<String, Integer>(size * 2);
+        for (int i = 0; i < size; i++) {
+            index.put(keys[i], i);
+        }
+    }
+
+    @Override
+    public void clear() {
+        keys = NO_KEYS;
+        values = NO_VALUES;
+        size = 0;
+        index = null;
+    }
+
+    @Override
+    public Set<String> keySet() {
+        return new AbstractSet<String>() {
+            @Override
+            public Iterator<String> iterator() {
+                return new Itr<String>() {
+                    @Override
+                    String get(int i) {
+                        return keys[i];
+                    }
+                };
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return containsKey(o);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public Collection<V> values() {
+        return new AbstractCollection<V>() {
+            @Override
+            public Iterator<V> iterator() {
+                return new Itr<V>() {
+                    @SuppressWarnings("unchecked")
+                    @Override
+                    V get(int i) {
+                        return (V) values[i];
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public Set<Map.Entry<String, V>> entrySet() {
+        return new AbstractSet<Map.Entry<String, V>>() {
+            @Override
+            public Iterator<Map.Entry<String, V>> iterator() {
+                return new Itr<Map.Entry<String, V>>() {
+                    @Override
+                    Map.Entry<String, V> get(int i) {
+                        return new Entry(i);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * @return cursor over the elements by position, no entry is created per element; other maps are walked by {@link ITestParamStates}
+     */
+    @SuppressWarnings("unchecked")
+    public static ITestParamStateCursor elements(Map<String, ITestParamState> elements) {
+        if ( elements instanceof ITestCompactMap ) {
+            return ((ITestCompactMap<ITestParamState>) elements).new Cursor(true);
+        }
+        return ITestParamStates.elements(elements);
+    }
+
+    /**
+     * @return cursor over the attributes by position, no entry is created per attribute; other maps are walked by {@link ITestParamStates}
+     */
+    @SuppressWarnings("unchecked")
+    public static ITestParamStateCursor attributes(Map<String, String> attributes) {
+        if ( attributes instanceof ITestCompactMap ) {
+            return ((ITestCompactMap<String>) attributes).new Cursor(false);
+        }
+        return ITestParamStates.attributes(attributes);
+    }
+
+    private class Cursor implements ITestParamStateCursor {
+        private final boolean elements;
+
+        private int i = -1;
+
+        Cursor(boolean elements) {
+            this.elements = elements;
+        }
+
+        @Override
+        public boolean next() {
+            return ++i < size;
+        }
+
+        @Override
+        public String getName() {
+            return keys[i];
+        }
+
+        @Override
+        public ITestParamState getElement() {
+            return elements ? (ITestParamState) values[i] : null;
+        }
+
+        @Override
+        public String getValue() {
+            return elements ? null : (String) values[i];
+        }
+    }
+
+    private abstract class Itr<T> implements Iterator<T> {
+        private int next;
+
+        private int last = -1;
+
+        abstract T get(int i);
+
+        @Override
+        public boolean hasNext() {
+            return next < size;
+        }
+
+        @Override
+        public T next() {
+            if ( next >= size ) {
+                throw new NoSuchElementException();
+            }
+            last = next++;
+            return get(last);
+        }
+
+        @Override
+        public void remove() {
+            if ( last < 0 ) {
+                throw new IllegalStateException();
+            }
+            removeAt(last);
+            next = last;
+            last = -1;
+        }
+    }
+
+    private class Entry implements Map.Entry<String, V> {
+        private final int i;
+
+        Entry(int i) {
+            this.i = i;
+        }
+
+        @Override
+        public String getKey() {
+            return keys[i];
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public V getValue() {
+            return (V) values[i];
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public V setValue(V value) {
+            V res = (V) values[i];
+            values[i] = value;
+            return res;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if ( !(o instanceof Map.Entry) ) {
+                return false;
+            }
+            Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+            return eq(getKey(), e.getKey()) && eq(getValue(), e.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return (null == getKey() ? 0 : getKey().hashCode()) ^ (null == getValue() ? 0 : getValue().hashCode());
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+
+    private static boolean eq(Object a, Object b) {
+        return null == a ? null == b : a.equals(b);
+    }
+}
@@ -0,0 +1,169 @@
+package org.itest.util.param;
+
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.Map;
+
+import org.itest.param.ITestIndexedState;
+import org.itest.param.ITestParamState;
+import org.itest.param.ITestParamStateCursor;
+import org.itest.param.ITestParamStates;
+import org.itest.param.ITestTraversableState;
+
+/**
+ * State read by {@link ITestParamStateCodec}: named elements in definition order or indexed items ("0".."size-1").
+ */
+class ITestDecodedParamState implements ITestTraversableState, ITestIndexedState {
+
+    private final String value;
+
+    private final Map<String, ITestParamState> elements;
+
+    private final ITestParamState[] items;
+
+    private final int size;
+
+    private final boolean indexed;
+
+    private final Map<String, String> attributes;
+
+    ITestDecodedParamState(String value, Map<String, ITestParamState> elements, Map<String, String> attributes) {
+        this.value = value;
+        this.elements = elements;
+        this.items = null;
+        this.size = null == elements ? 0 : elements.size();
+        this.indexed = false;
+        this.attributes = attributes;
+    }
+
+    ITestDecodedParamState(String value, ITestParamState[] items, Map<String, String> attributes) {
+        this(value, items, items.length, attributes);
+    }
+
+    /**
+     * For indexed subclasses keeping items in another form, {@link #item(int)} has to be overridden.
+     */
+    ITestDecodedParamState(String value, ITestParamState[] items, int size, Map<String, String> attributes) {
+        this.value = value;
+        this.elements = null;
+        this.items = items;
+        this.size = size;
+        this.indexed = true;
+        this.attributes = attributes;
+    }
+
+    ITestParamState item(int index) {
+        return items[index];
+    }
+
+    @Override
+    public Integer getSizeParam() {
+        return null == elements && !indexed ? null : size;
+    }
+
+    @Override
+    public Collection<String> getNames() {
+        if ( !indexed ) {
+            return null == elements ? null : elements.keySet();
+        }
+        return new AbstractList<String>() {
+            @Override
+            public String get(int index) {
+                if ( index < 0 || index >= size ) {
+                    throw new IndexOutOfBoundsException(String.valueOf(index));
+                }
+                return String.valueOf(index);
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return o instanceof String && toIndex((String) o) >= 0;
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public ITestParamState getElement(String name) {
+        if ( indexed ) {
+            int index = toIndex(name);
+            return index < 0 ? null : item(index);
+        }
+        return null == elements ? null : elements.get(name);
+    }
+
+    @Override
+    public boolean isIndexed() {
+        return indexed;
+    }
+
+    @Override
+    public ITestParamState getElement(int index) {
+        if ( indexed ) {
+            return index < 0 || index >= size ? null : item(index);
+        }
+        return getElement(String.valueOf(index));
+    }
+
+    @Override
+    public String getValue() {
+        return value;
+    }
+
+    @Override
+    public String getAttribute(String name) {
+        return null == attributes ? null : attributes.get(name);
+    }
+
+    @Override
+    public Iterable<String> getAttributeNames() {
+        return null == attributes ? null : attributes.keySet();
+    }
+
+    @Override
+    public ITestParamStateCursor elements() {
+        return indexed ? ITestParamStates.indexed(this) : ITestParamStates.elements(elements);
+    }
+
+    @Override
+    public ITestParamStateCursor attributes() {
+        return ITestParamStates.attributes(attributes);
+    }
+
+    /**
+     * @return index for the element name or -1 if it is not a name of an item
+     */
+    private int toIndex(String name) {
+        int length = null == name ? 0 : name.length();
+        if ( 0 == length || length > 10 || (length > 1 && '0' == name.charAt(0)) ) {
+            return -1;
+        }
+        long index = 0;
+        for (int i = 0; i < length; i++) {
+            char c = name.charAt(i);
+            if ( c < '0' || c > '9' ) {
+                return -1;
+            }
+            index = index * 10 + (c - '0');
+        }
+        return index < size ? (int) index : -1;
+    }
+
+    public String toString() {
+        if ( !indexed ) {
+            return null == elements ? ":" + value : String.valueOf(elements);
+        }
+        StringBuilder sb = new StringBuilder().append('{');
+        for (int i = 0; i < size; i++) {
+            if ( i > 0 ) {
+                sb.append(", ");
+            }
+            sb.append(i).append('=').append(item(i));
+        }
+        return sb.append('}').toString();
+    }
+}
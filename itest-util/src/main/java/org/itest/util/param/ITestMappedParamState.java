@@ -0,0 +1,341 @@
+package org.itest.util.param;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.itest.exception.ITestException;
+import org.itest.param.ITestIndexedState;
+import org.itest.param.ITestParamState;
+import org.itest.param.ITestParamStateCursor;
+import org.itest.param.ITestParamStates;
+import org.itest.param.ITestPrimitiveArrayState;
+import org.itest.param.ITestTraversableState;
+
+/**
+ * View of a node of navigable {@link ITestParamStateCodec} form. Nothing is cached: values, attributes and children are read from the buffer on
+ * every access (absolute reads only, the buffer can be shared between threads), child lookup by name is a binary search over the sorted index.
+ */
+class ITestMappedParamState implements ITestTraversableState, ITestIndexedState {
+
+    final ByteBuffer buf;
+
+    private final String[] dictionary;
+
+    private final int tag;
+
+    private final int valuePosition;
+
+    private final int attributesPosition;
+
+    /**
+     * position of the first entry of elements (name index and child position), indexed items (child position) or packed numbers
+     */
+    final int body;
+
+    final int size;
+
+    private ITestMappedParamState(ByteBuffer buf, String[] dictionary, int tag, int position) {
+        this.buf = buf;
+        this.dictionary = dictionary;
+        this.tag = tag;
+        ITestParamStateCodec.Decoder decoder = decoder(position + 1);
+        valuePosition = 0 == (tag & ITestParamStateCodec.VALUE) ? -1 : decoder.position();
+        if ( valuePosition >= 0 ) {
+            decoder.skipString();
+        }
+        attributesPosition = 0 == (tag & ITestParamStateCodec.ATTRIBUTES) ? -1 : decoder.position();
+        if ( attributesPosition >= 0 ) {
+            for (int i = 0, count = decoder.readInt(); i < count; i++) {
+                decoder.readInt();
+                decoder.skipString();
+            }
+        }
+        int bodyPosition = decoder.position();
+        if ( hasBody(tag) ) {
+            size = buf.getInt(bodyPosition);
+            body = bodyPosition + 4;
+        } else {
+            size = 0;
+            body = bodyPosition;
+        }
+    }
+
+    /**
+     * @return state of the node at the position, null for null node
+     */
+    static ITestParamState at(ByteBuffer buf, String[] dictionary, int position) {
+        int tag = buf.get(position) & 0xFF;
+        if ( ITestParamStateCodec.NULL == tag ) {
+            return null;
+        }
+        if ( 0 == (tag & ITestParamStateCodec.STATE) ) {
+            throw new ITestException("Invalid itest binary definition tag: " + tag + " at " + position);
+        }
+        if ( 0 != (tag & (ITestParamStateCodec.PACKED_LONGS | ITestParamStateCodec.PACKED_DOUBLES)) ) {
+            return new Packed(buf, dictionary, tag, position);
+        }
+        return new ITestMappedParamState(buf, dictionary, tag, position);
+    }
+
+    private static boolean hasBody(int tag) {
+        return 0 != (tag & (ITestParamStateCodec.ELEMENTS | ITestParamStateCodec.INDEXED | ITestParamStateCodec.PACKED_LONGS
+                | ITestParamStateCodec.PACKED_DOUBLES));
+    }
+
+    private ITestParamStateCodec.Decoder decoder(int position) {
+        ByteBuffer duplicate = buf.duplicate();
+        duplicate.position(position);
+        return new ITestParamStateCodec.Decoder(duplicate);
+    }
+
+    ITestParamState item(int index) {
+        return at(buf, dictionary, buf.getInt(body + 4 * index));
+    }
+
+    @Override
+    public Integer getSizeParam() {
+        return hasBody(tag) ? size : null;
+    }
+
+    @Override
+    public Collection<String> getNames() {
+        if ( isIndexed() ) {
+            return new AbstractList<String>() {
+                @Override
+                public String get(int index) {
+                    if ( index < 0 || index >= size ) {
+                        throw new IndexOutOfBoundsException(String.valueOf(index));
+                    }
+                    return String.valueOf(index);
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+        }
+        if ( 0 == (tag & ITestParamStateCodec.ELEMENTS) ) {
+            return null;
+        }
+        return new AbstractList<String>() {
+            @Override
+            public String get(int index) {
+                if ( index < 0 || index >= size ) {
+                    throw new IndexOutOfBoundsException(String.valueOf(index));
+                }
+                return dictionary[buf.getInt(body + 8 * index)];
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return o instanceof String && find((String) o) >= 0;
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public ITestParamState getElement(String name) {
+        if ( isIndexed() ) {
+            int index = toIndex(name);
+            return index < 0 ? null : item(index);
+        }
+        int entry = find(name);
+        return entry < 0 ? null : at(buf, dictionary, buf.getInt(body + 8 * entry + 4));
+    }
+
+    /**
+     * @return entry of the element or -1
+     */
+    private int find(String name) {
+        if ( 0 == (tag & ITestParamStateCodec.ELEMENTS) || null == name ) {
+            return -1;
+        }
+        int sorted = body + 8 * size;
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int entry = buf.getInt(sorted + 4 * mid);
+            int cmp = dictionary[buf.getInt(body + 8 * entry)].compareTo(name);
+            if ( cmp < 0 ) {
+                low = mid + 1;
+            } else if ( cmp > 0 ) {
+                high = mid - 1;
+            } else {
+                return entry;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean isIndexed() {
+        return 0 != (tag & (ITestParamStateCodec.INDEXED | ITestParamStateCodec.PACKED_LONGS | ITestParamStateCodec.PACKED_DOUBLES));
+    }
+
+    @Override
+    public ITestParamState getElement(int index) {
+        if ( isIndexed() ) {
+            return index < 0 || index >= size ? null : item(index);
+        }
+        return getElement(String.valueOf(index));
+    }
+
+    @Override
+    public String getValue() {
+        return valuePosition < 0 ? null : decoder(valuePosition).readString();
+    }
+
+    @Override
+    public String getAttribute(String name) {
+        if ( attributesPosition < 0 ) {
+            return null;
+        }
+        ITestParamStateCodec.Decoder decoder = decoder(attributesPosition);
+        for (int i = 0, count = decoder.readInt(); i < count; i++) {
+            if ( dictionary[decoder.readInt()].equals(name) ) {
+                return decoder.readString();
+            }
+            decoder.skipString();
+        }
+        return null;
+    }
+
+    @Override
+    public Iterable<String> getAttributeNames() {
+        if ( attributesPosition < 0 ) {
+            return null;
+        }
+        ITestParamStateCodec.Decoder decoder = decoder(attributesPosition);
+        int count = decoder.readInt();
+        List<String> res = new ArrayList<String>(count);
+        for (int i = 0; i < count; i++) {
+            res.add(dictionary[decoder.readInt()]);
+            decoder.skipString();
+        }
+        return res;
+    }
+
+    @Override
+    public ITestParamStateCursor elements() {
+        if ( isIndexed() ) {
+            return ITestParamStates.indexed(this);
+        }
+        // entries in definition order, no lookups
+        return new ITestParamStateCursor() {
+            private int entry = -1;
+
+            @Override
+            public boolean next() {
+                return ++entry < size;
+            }
+
+            @Override
+            public String getName() {
+                return dictionary[buf.getInt(body + 8 * entry)];
+            }
+
+            @Override
+            public ITestParamState getElement() {
+                return at(buf, dictionary, buf.getInt(body + 8 * entry + 4));
+            }
+
+            @Override
+            public String getValue() {
+                return null;
+            }
+        };
+    }
+
+    @Override
+    public ITestParamStateCursor attributes() {
+        return ITestParamStates.byAttributeNames(this);
+    }
+
+    /**
+     * @return index for the element name or -1 if it is not a name of an item
+     */
+    private int toIndex(String name) {
+        int length = null == name ? 0 : name.length();
+        if ( 0 == length || length > 10 || (length > 1 && '0' == name.charAt(0)) ) {
+            return -1;
+        }
+        long index = 0;
+        for (int i = 0; i < length; i++) {
+            char c = name.charAt(i);
+            if ( c < '0' || c > '9' ) {
+                return -1;
+            }
+            index = index * 10 + (c - '0');
+        }
+        return index < size ? (int) index : -1;
+    }
+
+    public String toString() {
+        Collection<String> names = getNames();
+        if ( null == names ) {
+            return ":" + getValue();
+        }
+        StringBuilder sb = new StringBuilder().append('{');
+        for (String name : names) {
+            if ( sb.length() > 1 ) {
+                sb.append(", ");
+            }
+            sb.append(name).append('=').append(getElement(name));
+        }
+        return sb.append('}').toString();
+    }
+
+    /**
+     * Numbers are copied from the buffer on every {@link #getPrimitiveArray()} call, leaves are created on first access and kept.
+     */
+    static class Packed extends ITestMappedParamState implements ITestPrimitiveArrayState {
+
+        private final boolean longs;
+
+        private ITestParamState[] leaves;
+
+        Packed(ByteBuffer buf, String[] dictionary, int tag, int position) {
+            super(buf, dictionary, tag, position);
+            this.longs = 0 != (tag & ITestParamStateCodec.PACKED_LONGS);
+        }
+
+        @Override
+        public Object getPrimitiveArray() {
+            ByteBuffer duplicate = buf.duplicate();
+            duplicate.position(body);
+            if ( longs ) {
+                long[] res = new long[size];
+                duplicate.asLongBuffer().get(res);
+                return res;
+            }
+            double[] res = new double[size];
+            duplicate.asDoubleBuffer().get(res);
+            return res;
+        }
+
+        @Override
+        synchronized ITestParamState item(int index) {
+            if ( null == leaves ) {
+                leaves = new ITestParamState[size];
+            }
+            ITestParamState res = leaves[index];
+            if ( null == res ) {
+                String value = longs ? Long.toString(buf.getLong(body + 8 * index)) : Double.toString(buf.getDouble(body + 8 * index));
+                res = new ITestDecodedParamState(value, (Map<String, ITestParamState>) null, null);
+                leaves[index] = res;
+            }
+            return res;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package org.itest.util.param;
+
+import java.util.Map;
+
+import org.itest.param.ITestParamState;
+import org.itest.param.ITestPrimitiveArrayState;
+
+/**
+ * Decoded {@link ITestPrimitiveArrayState}, items are leaves created on first access and kept.
+ */
+class ITestPackedParamState extends ITestDecodedParamState implements ITestPrimitiveArrayState {
+
+    private final long[] longs;
+
+    private final double[] doubles;
+
+    private ITestParamState[] leaves;
+
+    ITestPackedParamState(long[] longs, Map<String, String> attributes) {
+        super(null, null, longs.length, attributes);
+        this.longs = longs;
+        this.doubles = null;
+    }
+
+    ITestPackedParamState(double[] doubles, Map<String, String> attributes) {
+        super(null, null, doubles.length, attributes);
+        this.longs = null;
+        this.doubles = doubles;
+    }
+
+    @Override
+    public Object getPrimitiveArray() {
+        return null == longs ? doubles : longs;
+    }
+
+    @Override
+    synchronized ITestParamState item(int index) {
+        if ( null == leaves ) {
+            leaves = new ITestParamState[null == longs ? doubles.length : longs.length];
+        }
+        ITestParamState res = leaves[index];
+        if ( null == res ) {
+            res = new ITestDecodedParamState(null == longs ? Double.toString(doubles[index]) : Long.toString(longs[index]), (Map<String, ITestParamState>) null,
+                    null);
+            leaves[index] = res;
+        }
+        return res;
+    }
+}
@@ -0,0 +1,524 @@
+package org.itest.util.param;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.itest.exception.ITestException;
+import org.itest.param.ITestParamState;
+import org.itest.param.ITestParamStateCursor;
+import org.itest.param.ITestParamStates;
+import org.itest.param.ITestPrimitiveArrayState;
+
+/**
+ * Binary form of {@link ITestParamState} trees, written next to or instead of .itest.json definitions (see
+ * {@link org.itest.ITestConstants#BINARY_DEFINITION_SUFFIX}).<br/>
+ * Layout: magic, version, dictionary of element and attribute names, root node. Node is a tag byte with flags of present parts, then value,
+ * attributes and elements. Names are dictionary indexes, so a name is decoded once however many times it occurs. Numbers are varints, strings are
+ * UTF-8 prefixed by length + 1 (0 for null). Indexed states keep their items without names, primitive array states keep the raw numbers.
+ * Navigable form ({@link #encodeNavigable(ITestParamState)}) has fixed size counts and child positions instead, so nodes can be read in place.
+ */
+public class ITestParamStateCodec {
+
+    private static final int MAGIC = 0x49544253;
+
+    private static final int VERSION = 1;
+
+    private static final int NAVIGABLE_VERSION = 2;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    static final int NULL = 0;
+
+    static final int STATE = 0x80;
+
+    static final int VALUE = 0x01;
+
+    static final int ELEMENTS = 0x02;
+
+    static final int ATTRIBUTES = 0x04;
+
+    static final int INDEXED = 0x08;
+
+    static final int PACKED_LONGS = 0x10;
+
+    static final int PACKED_DOUBLES = 0x20;
+
+    /**
+     * @return encoded state, ready to be read (position 0)
+     */
+    public static ByteBuffer encode(ITestParamState state) {
+        Encoder encoder = createEncoder(state, VERSION);
+        encoder.writeState(state);
+        encoder.buf.flip();
+        return encoder.buf;
+    }
+
+    /**
+     * Encodes the state in navigable form: {@link #decode(ByteBuffer)} does not build the tree but returns a view reading the buffer on access.
+     * Child lookup is a binary search over names, heap use does not depend on the size of the data (only on the number of distinct names). Meant
+     * for large datasets read memory mapped ({@link #read(File)}), limited to 2GB.
+     *
+     * @return encoded state, ready to be read (position 0)
+     */
+    public static ByteBuffer encodeNavigable(ITestParamState state) {
+        Encoder encoder = createEncoder(state, NAVIGABLE_VERSION);
+        encoder.writeNode(state);
+        encoder.buf.flip();
+        return encoder.buf;
+    }
+
+    private static Encoder createEncoder(ITestParamState state, int version) {
+        Map<String, Integer> dictionary = new LinkedHashMap<String, Integer>();
+        collectNames(state, dictionary);
+        Encoder encoder = new Encoder(dictionary);
+        encoder.buf.putInt(MAGIC);
+        encoder.buf.put((byte) version);
+        encoder.writeInt(dictionary.size());
+        for (String name : dictionary.keySet()) {
+            encoder.writeString(name);
+        }
+        return encoder;
+    }
+
+    /**
+     * Decodes state from the position of the buffer, the position is moved past it. State in navigable form is not decoded, the returned state
+     * reads the buffer in place, so it must not be changed afterwards.
+     */
+    public static ITestParamState decode(ByteBuffer buf) {
+        try {
+            if ( buf.getInt() != MAGIC ) {
+                throw new ITestException("Not an itest binary definition.");
+            }
+            int version = buf.get();
+            if ( VERSION != version && NAVIGABLE_VERSION != version ) {
+                throw new ITestException("Unsupported itest binary definition version: " + version);
+            }
+            Decoder decoder = new Decoder(buf);
+            String[] dictionary = new String[decoder.readInt()];
+            for (int i = 0; i < dictionary.length; i++) {
+                dictionary[i] = decoder.readString();
+            }
+            if ( NAVIGABLE_VERSION == version ) {
+                return ITestMappedParamState.at(buf, dictionary, buf.position());
+            }
+            decoder.dictionary = dictionary;
+            return decoder.readState();
+        } catch (BufferUnderflowException e) {
+            throw new ITestException("Truncated itest binary definition.", e);
+        }
+    }
+
+    /**
+     * Decodes the file, memory mapped. Files written by {@link #write(ITestParamState, File)} are replaced, not rewritten, so the mapping stays
+     * valid; files changed in place must be read with {@link #read(InputStream)}.
+     */
+    public static ITestParamState read(File file) throws IOException {
+        FileInputStream is = new FileInputStream(file);
+        try {
+            FileChannel channel = is.getChannel();
+            return decode(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } finally {
+            is.close();
+        }
+    }
+
+    /**
+     * Decodes the whole stream, it is not closed.
+     */
+    public static ITestParamState read(InputStream is) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(8192);
+        byte[] bytes = new byte[8192];
+        for (int read; (read = is.read(bytes)) >= 0;) {
+            out.write(bytes, 0, read);
+        }
+        return decode(ByteBuffer.wrap(out.toByteArray()));
+    }
+
+    public static void write(ITestParamState state, File file) throws IOException {
+        write(encode(state), file);
+    }
+
+    public static void writeNavigable(ITestParamState state, File file) throws IOException {
+        write(encodeNavigable(state), file);
+    }
+
+    private static void write(ByteBuffer buf, File file) throws IOException {
+        File tmp = createTempFile(file);
+        try {
+            FileOutputStream os = new FileOutputStream(tmp);
+            try {
+                FileChannel channel = os.getChannel();
+                while (buf.hasRemaining()) {
+                    channel.write(buf);
+                }
+            } finally {
+                os.close();
+            }
+            replace(tmp, file);
+        } finally {
+            tmp.delete();
+        }
+    }
+
+    /**
+     * @return new empty file next to the given one, to be written and then moved over it with {@link #replace(File, File)}
+     */
+    public static File createTempFile(File file) throws IOException {
+        return File.createTempFile(file.getName(), ".tmp", file.getAbsoluteFile().getParentFile());
+    }
+
+    /**
+     * Moves the file over the target by renaming, content of the target mapped or read before stays as it was.
+     */
+    public static void replace(File file, File target) throws IOException {
+        if ( file.renameTo(target) ) {
+            return;
+        }
+        // rename does not overwrite on some platforms
+        if ( !target.delete() || !file.renameTo(target) ) {
+            throw new IOException("Can not replace " + target + " with " + file);
+        }
+    }
+
+    private static Object getPrimitiveArray(ITestParamState state) {
+        return state instanceof ITestPrimitiveArrayState ? ((ITestPrimitiveArrayState) state).getPrimitiveArray() : null;
+    }
+
+    private static void collectNames(ITestParamState state, Map<String, Integer> dictionary) {
+        if ( null == state ) {
+            return;
+        }
+        for (ITestParamStateCursor cursor = ITestParamStates.attributes(state); cursor.next();) {
+            addName(cursor.getName(), dictionary);
+        }
+        if ( null != getPrimitiveArray(state) ) {
+            return;
+        }
+        if ( ITestParamStates.isIndexed(state) ) {
+            for (int i = 0, size = state.getSizeParam(); i < size; i++) {
+                collectNames(ITestParamStates.getElement(state, i), dictionary);
+            }
+        } else {
+            for (ITestParamStateCursor cursor = ITestParamStates.elements(state); cursor.next();) {
+                addName(cursor.getName(), dictionary);
+                collectNames(cursor.getElement(), dictionary);
+            }
+        }
+    }
+
+    private static void addName(String name, Map<String, Integer> dictionary) {
+        if ( !dictionary.containsKey(name) ) {
+            dictionary.put(name, dictionary.size());
+        }
+    }
+
+    static class Encoder {
+        private final Map<String, Integer> dictionary;
+
+        private ByteBuffer buf = ByteBuffer.allocate(4096);
+
+        Encoder(Map<String, Integer> dictionary) {
+            this.dictionary = dictionary;
+        }
+
+        void writeState(ITestParamState state) {
+            ensure(1);
+            if ( null == state ) {
+                buf.put((byte) NULL);
+                return;
+            }
+            Object packed = getPrimitiveArray(state);
+            int tag = writeHead(state, packed);
+            if ( packed instanceof long[] ) {
+                long[] longs = (long[]) packed;
+                writeInt(longs.length);
+                putLongs(longs);
+            } else if ( packed instanceof double[] ) {
+                double[] doubles = (double[]) packed;
+                writeInt(doubles.length);
+                putDoubles(doubles);
+            } else if ( 0 != (tag & INDEXED) ) {
+                int size = state.getSizeParam();
+                writeInt(size);
+                for (int i = 0; i < size; i++) {
+                    writeState(ITestParamStates.getElement(state, i));
+                }
+            } else if ( 0 != (tag & ELEMENTS) ) {
+                writeInt(state.getNames().size());
+                for (ITestParamStateCursor cursor = ITestParamStates.elements(state); cursor.next();) {
+                    writeInt(dictionary.get(cursor.getName()));
+                    writeState(cursor.getElement());
+                }
+            }
+        }
+
+        /**
+         * Writes the node in navigable form: counts and child positions are fixed size ints, elements are followed by their indexes sorted by
+         * name.
+         *
+         * @return position of the node
+         */
+        int writeNode(ITestParamState state) {
+            ensure(1);
+            int position = buf.position();
+            if ( null == state ) {
+                buf.put((byte) NULL);
+                return position;
+            }
+            Object packed = getPrimitiveArray(state);
+            int tag = writeHead(state, packed);
+            if ( packed instanceof long[] ) {
+                long[] longs = (long[]) packed;
+                ensure(4);
+                buf.putInt(longs.length);
+                putLongs(longs);
+            } else if ( packed instanceof double[] ) {
+                double[] doubles = (double[]) packed;
+                ensure(4);
+                buf.putInt(doubles.length);
+                putDoubles(doubles);
+            } else if ( 0 != (tag & INDEXED) ) {
+                int size = state.getSizeParam();
+                int table = reserve(size, 4);
+                for (int i = 0; i < size; i++) {
+                    int child = writeNode(ITestParamStates.getElement(state, i));
+                    buf.putInt(table + 4 * i, child);
+                }
+            } else if ( 0 != (tag & ELEMENTS) ) {
+                final List<String> names = new ArrayList<String>(state.getNames());
+                int size = names.size();
+                int entries = reserve(size, 12);
+                int sorted = entries + 8 * size;
+                Integer[] order = new Integer[size];
+                for (int i = 0; i < size; i++) {
+                    order[i] = i;
+                }
+                Arrays.sort(order, new Comparator<Integer>() {
+                    @Override
+                    public int compare(Integer o1, Integer o2) {
+                        return names.get(o1).compareTo(names.get(o2));
+                    }
+                });
+                for (int i = 0; i < size; i++) {
+                    buf.putInt(sorted + 4 * i, order[i]);
+                }
+                for (int i = 0; i < size; i++) {
+                    String name = names.get(i);
+                    buf.putInt(entries + 8 * i, dictionary.get(name));
+                    int child = writeNode(state.getElement(name));
+                    buf.putInt(entries + 8 * i + 4, child);
+                }
+            }
+            return position;
+        }
+
+        /**
+         * Writes tag, value and attributes, the same in both forms.
+         *
+         * @return the tag
+         */
+        private int writeHead(ITestParamState state, Object packed) {
+            List<String> attributeNames = null;
+            if ( null != state.getAttributeNames() ) {
+                attributeNames = new ArrayList<String>();
+                for (String name : state.getAttributeNames()) {
+                    attributeNames.add(name);
+                }
+            }
+            int tag = STATE;
+            if ( null != state.getValue() ) {
+                tag |= VALUE;
+            }
+            if ( null != attributeNames ) {
+                tag |= ATTRIBUTES;
+            }
+            if ( packed instanceof long[] ) {
+                tag |= PACKED_LONGS;
+            } else if ( packed instanceof double[] ) {
+                tag |= PACKED_DOUBLES;
+            } else if ( ITestParamStates.isIndexed(state) ) {
+                tag |= INDEXED;
+            } else if ( null != state.getNames() ) {
+                tag |= ELEMENTS;
+            }
+            buf.put((byte) tag);
+            if ( 0 != (tag & VALUE) ) {
+                writeString(state.getValue());
+            }
+            if ( null != attributeNames ) {
+                writeInt(attributeNames.size());
+                for (String name : attributeNames) {
+                    writeInt(dictionary.get(name));
+                    writeString(state.getAttribute(name));
+                }
+            }
+            return tag;
+        }
+
+        /**
+         * Writes the count and leaves space for count entries of entrySize bytes.
+         *
+         * @return position of the entries
+         */
+        private int reserve(int count, int entrySize) {
+            ensure(4 + count * entrySize);
+            buf.putInt(count);
+            int res = buf.position();
+            buf.position(res + count * entrySize);
+            return res;
+        }
+
+        private void putLongs(long[] longs) {
+            ensure(8 * longs.length);
+            buf.asLongBuffer().put(longs);
+            buf.position(buf.position() + 8 * longs.length);
+        }
+
+        private void putDoubles(double[] doubles) {
+            ensure(8 * doubles.length);
+            buf.asDoubleBuffer().put(doubles);
+            buf.position(buf.position() + 8 * doubles.length);
+        }
+
+        void writeString(String s) {
+            if ( null == s ) {
+                writeInt(0);
+                return;
+            }
+            byte[] bytes = s.getBytes(UTF8);
+            writeInt(bytes.length + 1);
+            ensure(bytes.length);
+            buf.put(bytes);
+        }
+
+        void writeInt(int value) {
+            ensure(5);
+            while ((value & ~0x7F) != 0) {
+                buf.put((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            buf.put((byte) value);
+        }
+
+        private void ensure(int size) {
+            if ( buf.remaining() < size ) {
+                ByteBuffer newBuf = ByteBuffer.allocate(Math.max(buf.capacity() * 2, buf.position() + size));
+                buf.flip();
+                newBuf.put(buf);
+                buf = newBuf;
+            }
+        }
+    }
+
+    static class Decoder {
+        private final ByteBuffer buf;
+
+        private String[] dictionary;
+
+        private byte[] bytes;
+
+        Decoder(ByteBuffer buf) {
+            this.buf = buf;
+        }
+
+        ITestParamState readState() {
+            int tag = buf.get() & 0xFF;
+            if ( NULL == tag ) {
+                return null;
+            }
+            if ( 0 == (tag & STATE) ) {
+                throw new ITestException("Invalid itest binary definition tag: " + tag + " at " + (buf.position() - 1));
+            }
+            String value = 0 == (tag & VALUE) ? null : readString();
+            Map<String, String> attributes = null;
+            if ( 0 != (tag & ATTRIBUTES) ) {
+                int size = readInt();
+                attributes = new ITestCompactMap<String>(size);
+                for (int i = 0; i < size; i++) {
+                    String name = dictionary[readInt()];
+                    attributes.put(name, readString());
+                }
+            }
+            if ( 0 != (tag & PACKED_LONGS) ) {
+                long[] longs = new long[readInt()];
+                buf.asLongBuffer().get(longs);
+                buf.position(buf.position() + 8 * longs.length);
+                return new ITestPackedParamState(longs, attributes);
+            } else if ( 0 != (tag & PACKED_DOUBLES) ) {
+                double[] doubles = new double[readInt()];
+                buf.asDoubleBuffer().get(doubles);
+                buf.position(buf.position() + 8 * doubles.length);
+                return new ITestPackedParamState(doubles, attributes);
+            } else if ( 0 != (tag & INDEXED) ) {
+                ITestParamState[] items = new ITestParamState[readInt()];
+                for (int i = 0; i < items.length; i++) {
+                    items[i] = readState();
+                }
+                return new ITestDecodedParamState(value, items, attributes);
+            }
+            Map<String, ITestParamState> elements = null;
+            if ( 0 != (tag & ELEMENTS) ) {
+                int size = readInt();
+                elements = new ITestCompactMap<ITestParamState>(size);
+                for (int i = 0; i < size; i++) {
+                    String name = dictionary[readInt()];
+                    elements.put(name, readState());
+                }
+            }
+            return new ITestDecodedParamState(value, elements, attributes);
+        }
+
+        int position() {
+            return buf.position();
+        }
+
+        void skipString() {
+            int length = readInt() - 1;
+            if ( length > 0 ) {
+                buf.position(buf.position() + length);
+            }
+        }
+
+        String readString() {
+            int length = readInt() - 1;
+            if ( length < 0 ) {
+                return null;
+            }
+            if ( buf.hasArray() ) {
+                String res = new String(buf.array(), buf.arrayOffset() + buf.position(), length, UTF8);
+                buf.position(buf.position() + length);
+                return res;
+            }
+            if ( null == bytes || bytes.length < length ) {
+                bytes = new byte[Math.max(length, 256)];
+            }
+            buf.get(bytes, 0, length);
+            return new String(bytes, 0, length, UTF8);
+        }
+
+        int readInt() {
+            int res = 0;
+            for (int shift = 0;; shift += 7) {
+                byte b = buf.get();
+                res |= (b & 0x7F) << shift;
+                if ( b >= 0 ) {
+                    return res;
+                }
+            }
+        }
+    }
+}